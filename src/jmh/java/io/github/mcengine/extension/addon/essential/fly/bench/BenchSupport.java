@@ -0,0 +1,240 @@
+package io.github.mcengine.extension.addon.essential.fly.bench;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.memory.FlyDBMemory;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Minimal stand-ins for the Bukkit runtime so Fly code paths can be benchmarked outside a server.
+ * <p>
+ * Everything is built from {@link Proxy} instances: unhandled methods return {@code null}, {@code false} or {@code 0}.
+ * The fake scheduler never runs tasks, and the fake plugin reports itself disabled, so main-thread
+ * continuations are dropped instead of queued.
+ */
+public final class BenchSupport {
+
+    /** Players reported by {@code Bukkit.getOnlinePlayers()}. */
+    private static final List<Player> ONLINE = new ArrayList<>();
+
+    /** Hidden ctor. */
+    private BenchSupport() {}
+
+    /**
+     * Install the fake server once per JVM.
+     */
+    public static synchronized void installServer() {
+        if (Bukkit.getServer() != null) return;
+
+        ItemFactory items = proxy(ItemFactory.class, (self, m, args) -> switch (m.getName()) {
+            case "getItemMeta" -> newItemMeta();
+            case "isApplicable" -> true;
+            case "asMetaFor" -> args[0];
+            case "updateMaterial" -> args[1];
+            case "equals" -> args.length == 2 ? args[0] == args[1] : self == args[0];
+            default -> null;
+        });
+        BukkitTask task = proxy(BukkitTask.class, (self, m, args) -> null);
+        BukkitScheduler scheduler = proxy(BukkitScheduler.class, (self, m, args) -> task);
+
+        Server server = proxy(Server.class, (self, m, args) -> switch (m.getName()) {
+            case "getItemFactory" -> items;
+            case "getScheduler" -> scheduler;
+            case "getLogger" -> Logger.getLogger("FlyBench");
+            case "getOnlinePlayers" -> Collections.unmodifiableList(ONLINE);
+            case "getPlayer" -> findOnline(args[0]);
+            case "getName", "getVersion", "getBukkitVersion" -> "FlyBench";
+            case "isPrimaryThread" -> true;
+            default -> null;
+        });
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Fake plugin; reports itself disabled so {@code FlyDBAsync.mainThread()} drops continuations.
+     */
+    public static Plugin plugin() {
+        return proxy(Plugin.class, (self, m, args) -> switch (m.getName()) {
+            case "getName" -> "FlyBench";
+            case "getLogger" -> Logger.getLogger("FlyBench");
+            case "getDataFolder" -> new File(System.getProperty("java.io.tmpdir"), "fly-bench");
+            case "isEnabled" -> false;
+            default -> null;
+        });
+    }
+
+    /**
+     * Fake {@link FlyScheduler}: player work runs inline on the benchmark thread, global continuations are dropped
+     * (like a disabled plugin) and timers never fire, so benchmarks drive {@code advance()} themselves.
+     */
+    public static FlyScheduler scheduler() {
+        return new FlyScheduler() {
+            @Override
+            public void runForPlayer(Player player, Runnable task) {
+                task.run();
+            }
+
+            @Override
+            public void runGlobal(Runnable task) {}
+
+            @Override
+            public Task runGlobalLater(Runnable task, long delayTicks) {
+                return () -> {};
+            }
+
+            @Override
+            public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+                return () -> {};
+            }
+
+            @Override
+            public Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+                return () -> {};
+            }
+        };
+    }
+
+    /**
+     * Logger for Fly components.
+     */
+    public static MCEngineExtensionLogger logger() {
+        return new MCEngineExtensionLogger(plugin(), "AddOn", "EssentialFlyBench");
+    }
+
+    /**
+     * Create an online fake player and register it in {@code Bukkit.getOnlinePlayers()}.
+     */
+    public static Player onlinePlayer(String name) {
+        return onlinePlayer(name, null);
+    }
+
+    /**
+     * Create an online fake player holding {@code held} in the main hand, and register it in
+     * {@code Bukkit.getOnlinePlayers()}. The inventory never changes: taking the held item leaves it in place, and
+     * items given back always fit.
+     */
+    public static synchronized Player onlinePlayer(String name, ItemStack held) {
+        UUID uuid = UUID.nameUUIDFromBytes(("FlyBench:" + name).getBytes());
+        PlayerInventory inventory = proxy(PlayerInventory.class, (self, m, args) -> switch (m.getName()) {
+            case "getItem", "getItemInMainHand" -> held;
+            case "getStorageContents", "getContents" -> new ItemStack[]{held};
+            case "addItem" -> new HashMap<Integer, ItemStack>();
+            default -> null;
+        });
+        Player player = proxy(Player.class, (self, m, args) -> switch (m.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getInventory" -> inventory;
+            case "getName" -> name;
+            case "isOnline" -> true;
+            case "hasPermission" -> true;
+            case "hashCode" -> uuid.hashCode();
+            case "equals" -> self == args[0];
+            default -> null;
+        });
+        ONLINE.add(player);
+        return player;
+    }
+
+    /**
+     * Command sender with (or without) every permission.
+     */
+    public static CommandSender sender(boolean op) {
+        return proxy(CommandSender.class, (self, m, args) -> switch (m.getName()) {
+            case "getName" -> "FlyBenchConsole";
+            case "hasPermission", "isOp" -> op;
+            default -> null;
+        });
+    }
+
+    /**
+     * Heap-only {@link FlyDB} used where the benchmark must not measure I/O.
+     */
+    public static FlyDB heapFlyDB() {
+        return new FlyDBMemory(logger());
+    }
+
+    /** Item meta backed by a map-based persistent data container. */
+    private static ItemMeta newItemMeta() {
+        Map<NamespacedKey, Object> data = new HashMap<>();
+        PersistentDataContainer pdc = proxy(PersistentDataContainer.class, (self, m, args) -> switch (m.getName()) {
+            case "set" -> {
+                data.put((NamespacedKey) args[0], args[2]);
+                yield null;
+            }
+            case "remove" -> {
+                data.remove((NamespacedKey) args[0]);
+                yield null;
+            }
+            case "get" -> data.get((NamespacedKey) args[0]);
+            case "has" -> data.containsKey((NamespacedKey) args[0]);
+            case "isEmpty" -> data.isEmpty();
+            case "getKeys" -> data.keySet();
+            default -> null;
+        });
+        return proxy(ItemMeta.class, (self, m, args) -> switch (m.getName()) {
+            case "getPersistentDataContainer" -> pdc;
+            case "clone" -> self;
+            case "equals" -> self == args[0];
+            case "hashCode" -> System.identityHashCode(self);
+            default -> null;
+        });
+    }
+
+    /** Look up a registered online player by UUID (or name). */
+    private static Player findOnline(Object key) {
+        for (Player p : ONLINE) {
+            if (p.getUniqueId().equals(key) || p.getName().equals(key)) return p;
+        }
+        return null;
+    }
+
+    /** Build an interface proxy whose unhandled methods return type-appropriate defaults. */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        InvocationHandler withDefaults = (self, m, args) -> {
+            Object[] a = args == null ? new Object[0] : args;
+            if (m.getName().equals("toString") && a.length == 0) return type.getSimpleName() + "@FlyBench";
+            Object result = handler.invoke(self, m, a);
+            if (result != null) return result;
+            Class<?> r = m.getReturnType();
+            if (r == boolean.class) return false;
+            if (r == int.class) return 0;
+            if (r == long.class) return 0L;
+            if (r == double.class) return 0D;
+            if (r == float.class) return 0F;
+            if (r == short.class) return (short) 0;
+            if (r == byte.class) return (byte) 0;
+            if (r == char.class) return (char) 0;
+            if (Set.class.isAssignableFrom(r)) return Collections.emptySet();
+            if (Collection.class.isAssignableFrom(r)) return Collections.emptyList();
+            return null;
+        };
+        return (T) Proxy.newProxyInstance(BenchSupport.class.getClassLoader(), new Class<?>[]{type}, withDefaults);
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.mcengine.extension.addon.essential.fly.database;
+
+import io.github.mcengine.extension.addon.essential.fly.bench.BenchSupport;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyDBCache;
+import io.github.mcengine.extension.addon.essential.fly.database.memory.FlyDBMemory;
+import io.github.mcengine.extension.addon.essential.fly.database.sqlite.FlyDBSQLite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FlyDB} operations against an embedded SQLite file, with the in-memory backend as a zero-I/O baseline.
+ * <p>
+ * {@code impl=sqlite} measures {@link FlyDBSQLite} directly; {@code impl=cache} measures it behind {@link FlyDBCache};
+ * {@code impl=memory} measures {@link FlyDBMemory}.
+ * The MySQL and PostgreSQL backends use dialect-specific SQL and need a live server, so they are not covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlyDBBenchmark {
+
+    /** Implementation under test. */
+    @Param({"sqlite", "cache", "memory"})
+    public String impl;
+
+    /** Number of player rows. */
+    @Param({"1000"})
+    public int rows;
+
+    /** Flyers charged per bulk decrement. */
+    @Param({"50"})
+    public int batch;
+
+    /** Database file (deleted after the trial). */
+    private File file;
+
+    /** Single embedded connection shared by the backend. */
+    private Connection connection;
+
+    /** Implementation under test. */
+    private FlyDB db;
+
+    /** Known player ids. */
+    private UUID[] players;
+
+    /** One bulk charge's worth of players. */
+    private List<UUID> batchPlayers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchSupport.installServer();
+        file = Files.createTempFile("fly-bench", ".db").toFile();
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        FlyConnectionProvider provider = () -> connection;
+
+        FlyDB sqlite = new FlyDBSQLite(BenchSupport.logger(), provider);
+        sqlite.ensureSchema();
+        db = switch (impl) {
+            case "cache" -> new FlyDBCache(BenchSupport.logger(), sqlite);
+            case "memory" -> new FlyDBMemory(BenchSupport.logger());
+            default -> sqlite;
+        };
+
+        players = new UUID[rows];
+        for (int i = 0; i < rows; i++) {
+            players[i] = UUID.randomUUID();
+            db.setDuration(players[i], Integer.MAX_VALUE / 2);
+            db.ensurePlayerRow(players[i]);
+        }
+        batchPlayers = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) batchPlayers.add(players[i]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.close();
+        connection.close();
+        file.delete();
+    }
+
+    /** Pick a random known player. */
+    private UUID anyPlayer() {
+        return players[ThreadLocalRandom.current().nextInt(players.length)];
+    }
+
+    @Benchmark
+    public void ensurePlayerRow() {
+        db.ensurePlayerRow(anyPlayer());
+    }
+
+    @Benchmark
+    public int getDuration() {
+        return db.getDuration(anyPlayer());
+    }
+
+    @Benchmark
+    public void setDuration() {
+        db.setDuration(anyPlayer(), Integer.MAX_VALUE / 2);
+    }
+
+    @Benchmark
+    public int addDuration() {
+        return db.addDuration(anyPlayer(), 1);
+    }
+
+    @Benchmark
+    public int decrementDuration() {
+        return db.decrementDuration(anyPlayer(), 1);
+    }
+
+    @Benchmark
+    public Map<UUID, Integer> decrementDurations() {
+        return db.decrementDurations(batchPlayers, 1);
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.mcengine.extension.addon.essential.fly.listener;
+
+import io.github.mcengine.extension.addon.essential.fly.bench.BenchSupport;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyVoucherLedger;
+import io.github.mcengine.extension.addon.essential.fly.item.FlyItem;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyDuration;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyRedemptionQueue;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyStats;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Voucher detection cost in {@link FlyListener#onRightClick(PlayerInteractEvent)}.
+ * <p>
+ * {@code plainItem} is the common case (any right-click with a non-voucher item, PDC miss);
+ * {@code readVoucher} is the PDC read that recognises a voucher ({@link FlyItem#readSeconds(ItemStack)});
+ * {@code redeemVoucher} is a click with a voucher, through the whole redemption branch: the voucher is taken from the
+ * hand, queued, redeemed and granted. The Fly I/O executor and the main-thread hop run inline against the heap
+ * {@link FlyDB}, so neither I/O nor a thread hand-off is measured. The voucher carries no id, so every click grants
+ * (a copy of one redeemed id would be turned away by the ledger after the first).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VoucherDetectionBenchmark {
+
+    /** Listener under test. */
+    private FlyListener listener;
+
+    /** Async accessor (shut down after the trial). */
+    private FlyDBAsync flyDBAsync;
+
+    /** Clicking player. */
+    private Player player;
+
+    /** Player holding {@link #voucher}; the fake inventory keeps it in hand after every click. */
+    private Player holder;
+
+    /** Item without voucher data. */
+    private ItemStack plain;
+
+    /** Voucher item (one second, no id). */
+    private ItemStack voucher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchSupport.installServer();
+        flyDBAsync = new FlyDBAsync(BenchSupport.logger(), BenchSupport.heapFlyDB(), BenchSupport.scheduler()) {
+            @Override
+            public <T> CompletableFuture<T> submit(Function<FlyDB, T> work) {
+                try {
+                    return CompletableFuture.completedFuture(work.apply(blocking()));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+
+            @Override
+            public Executor mainThread() {
+                return Runnable::run;
+            }
+        };
+        FlyDuration flyDuration = new FlyDuration(flyDBAsync.scheduler(), BenchSupport.logger(), flyDBAsync, new FlyStats());
+        FlyRedemptionQueue redemptions = new FlyRedemptionQueue(BenchSupport.logger(), flyDBAsync, flyDuration,
+                new FlyStats(), new FlyVoucherLedger());
+        listener = new FlyListener(BenchSupport.logger(), flyDBAsync, flyDuration, redemptions, BenchSupport.plugin());
+        player = BenchSupport.onlinePlayer("clicker");
+
+        plain = new ItemStack(Material.PAPER, 1);
+        plain.setItemMeta(plain.getItemMeta());
+        voucher = FlyItem.createPaperVoucher(1);
+        ItemMeta meta = voucher.getItemMeta();
+        meta.getPersistentDataContainer().remove(FlyItem.KEY_ID);
+        voucher.setItemMeta(meta);
+        holder = BenchSupport.onlinePlayer("redeemer", voucher);
+    }
+
+    /** Keep the redeemer's balance from overflowing across iterations. */
+    @Setup(Level.Iteration)
+    public void resetBalance() {
+        flyDBAsync.blocking().setDuration(holder.getUniqueId(), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flyDBAsync.shutdown();
+    }
+
+    @Benchmark
+    public boolean plainItem() {
+        PlayerInteractEvent e = new PlayerInteractEvent(player, Action.RIGHT_CLICK_AIR, plain, null, BlockFace.SELF);
+        listener.onRightClick(e);
+        return e.isCancelled();
+    }
+
+    @Benchmark
+    public boolean redeemVoucher() {
+        PlayerInteractEvent e = new PlayerInteractEvent(holder, Action.RIGHT_CLICK_AIR, voucher, null, BlockFace.SELF);
+        listener.onRightClick(e);
+        return e.isCancelled();
+    }
+
+    @Benchmark
+    public Integer readVoucher() {
+        return FlyItem.readSeconds(voucher);
+    }
+}
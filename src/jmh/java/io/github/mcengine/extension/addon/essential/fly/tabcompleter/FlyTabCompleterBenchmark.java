@@ -0,0 +1,54 @@
+package io.github.mcengine.extension.addon.essential.fly.tabcompleter;
+
+import io.github.mcengine.extension.addon.essential.fly.bench.BenchSupport;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link FlyTabCompleter#onTabComplete} for the root level and for player-name completion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlyTabCompleterBenchmark {
+
+    /** Number of online players offered for {@code /fly time add <player>}. */
+    @Param({"10", "500"})
+    public int online;
+
+    /** Completer under test. */
+    private final FlyTabCompleter completer = new FlyTabCompleter();
+
+    /** Admin sender. */
+    private CommandSender admin;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchSupport.installServer();
+        for (int i = 0; i < online; i++) {
+            BenchSupport.onlinePlayer("tab" + online + "_" + i);
+        }
+        admin = BenchSupport.sender(true);
+    }
+
+    @Benchmark
+    public List<String> root() {
+        return completer.onTabComplete(admin, null, "fly", new String[]{""});
+    }
+
+    @Benchmark
+    public List<String> playerNames() {
+        return completer.onTabComplete(admin, null, "fly", new String[]{"time", "add", "tab"});
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import io.github.mcengine.extension.addon.essential.fly.bench.BenchSupport;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one wheel tick ({@link FlyDuration#advance()}) with a given number of active flyers.
+ * <p>
+ * Measures the main-thread side only: walking the due slot and submitting the bulk charge.
+ * The charge itself runs against a heap-only {@link FlyDB}; results are not applied because the
+ * fake plugin is disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlyDurationChargeBenchmark {
+
+    /** Number of active flyers spread over the wheel. */
+    @Param({"100", "1500", "10000"})
+    public int flyers;
+
+    /** Manager under test. */
+    private FlyDuration flyDuration;
+
+    /** Async accessor (shut down after each trial). */
+    private FlyDBAsync flyDBAsync;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchSupport.installServer();
+        FlyDB db = BenchSupport.heapFlyDB();
+        flyDBAsync = new FlyDBAsync(BenchSupport.logger(), db, BenchSupport.scheduler());
+        flyDuration = new FlyDuration(flyDBAsync.scheduler(), BenchSupport.logger(), flyDBAsync, new FlyStats());
+        for (int i = 0; i < flyers; i++) {
+            Player p = BenchSupport.onlinePlayer("flyer" + i);
+            db.setDuration(p.getUniqueId(), Integer.MAX_VALUE / 2);
+            flyDuration.activate(p, Integer.MAX_VALUE / 2);
+            // Advance between activations so flyers spread across slots like real logins do
+            flyDuration.advance();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flyDuration.stopAll();
+        flyDBAsync.shutdown();
+    }
+
+    @Benchmark
+    public void tick() {
+        flyDuration.advance();
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of duration rendering ({@link DurationUtil}) for typical tick, voucher and long balances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormatDurationBenchmark {
+
+    /** Remaining seconds to render. */
+    @Param({"30", "3600", "86399", "31536000"})
+    public int seconds;
+
+    /** Reused builder for {@link #appendCompact()}. */
+    private final StringBuilder sb = new StringBuilder(64);
+
+    @Benchmark
+    public String full() {
+        return DurationUtil.format(seconds);
+    }
+
+    @Benchmark
+    public String compact() {
+        return DurationUtil.formatCompact(seconds);
+    }
+
+    @Benchmark
+    public String message() {
+        return DurationUtil.message("§7Flight Remaining: §e", seconds, "§7.");
+    }
+
+    @Benchmark
+    public int appendCompact() {
+        sb.setLength(0);
+        return DurationUtil.append(sb, seconds, true).length();
+    }
+}
@@ -5,29 +5,46 @@ import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
 import io.github.mcengine.api.essential.extension.addon.IMCEngineEssentialAddOn;
 import io.github.mcengine.common.essential.MCEngineEssentialCommon;
 import io.github.mcengine.extension.addon.essential.fly.command.FlyCommand;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyConnectionPool;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyConnectionProvider;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyChangeFeed;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyDBCache;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyJournal;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyVoucherLedger;
+import io.github.mcengine.extension.addon.essential.fly.database.memory.FlyDBMemory;
+import io.github.mcengine.extension.addon.essential.fly.database.metrics.FlyDBMetrics;
 import io.github.mcengine.extension.addon.essential.fly.database.mysql.FlyDBMySQL;
 import io.github.mcengine.extension.addon.essential.fly.database.postgresql.FlyDBPostgreSQL;
 import io.github.mcengine.extension.addon.essential.fly.database.sqlite.FlyDBSQLite;
 import io.github.mcengine.extension.addon.essential.fly.listener.FlyListener;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
 import io.github.mcengine.extension.addon.essential.fly.tabcompleter.FlyTabCompleter;
 import io.github.mcengine.extension.addon.essential.fly.util.ConfigUtil;
 import io.github.mcengine.extension.addon.essential.fly.util.FlyDuration;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyRedemptionQueue;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyStats;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandMap;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Main class for the Fly extension.
  * <p>
  * Delegates config management to {@link io.github.mcengine.extension.addon.essential.fly.util.ConfigUtil}
- * and per-player flight scheduling to {@link io.github.mcengine.extension.addon.essential.fly.util.FlyDuration}.
+ * and shared flight scheduling to {@link io.github.mcengine.extension.addon.essential.fly.util.FlyDuration}.
  * Registers the {@code /fly} command and listeners.
  */
 public class Fly implements IMCEngineEssentialAddOn {
@@ -44,6 +61,16 @@ public class Fly implements IMCEngineEssentialAddOn {
      */
     private FlyDB flyDB;
 
+    /**
+     * Write-behind cache in front of the backend; {@link #flyDB} wraps it once wired.
+     */
+    private FlyDBCache flyDBCache;
+
+    /**
+     * Asynchronous accessor that runs all Fly DB work on a dedicated I/O thread.
+     */
+    private FlyDBAsync flyDBAsync;
+
     /**
      * Configuration folder path for the Fly AddOn.
      * Used as the base for {@code config.yml}.
@@ -55,6 +82,16 @@ public class Fly implements IMCEngineEssentialAddOn {
      */
     private FlyDuration flyDuration;
 
+    /**
+     * Per-player voucher redemption queue.
+     */
+    private FlyRedemptionQueue redemptions;
+
+    /**
+     * Runtime counters shown by {@code /fly stats}.
+     */
+    private final FlyStats stats = new FlyStats();
+
     @Override
     public void onLoad(Plugin plugin) {
         logger = new MCEngineExtensionLogger(plugin, "AddOn", "EssentialFly");
@@ -68,27 +105,85 @@ public class Fly implements IMCEngineEssentialAddOn {
                 return;
             }
 
-            // Wire DB based on database.type (no direct Connection usage)
+            // Region-aware on Folia, the Bukkit scheduler elsewhere
+            FlyScheduler scheduler = FlyScheduler.create(plugin);
+
+            // Identifies this server in the fly table (session leases, change feed)
+            String serverId = ConfigUtil.readLeaseServerId(plugin, folderPath);
+            String leaseOwner = ConfigUtil.readLeaseEnabled(plugin, folderPath) ? serverId : null;
+
+            // Wire DB based on database.type, on the shared Essential connection unless pool.enabled
             String dbType = ConfigUtil.readDbType(plugin);
-            switch (dbType == null ? "sqlite" : dbType.toLowerCase()) {
-                case "mysql" -> flyDB = new FlyDBMySQL(logger);
-                case "postgresql", "postgres" -> flyDB = new FlyDBPostgreSQL(logger);
-                case "sqlite" -> flyDB = new FlyDBSQLite(logger);
+            String type = dbType == null ? "sqlite" : dbType.toLowerCase();
+            FlyConnectionProvider connections = "memory".equals(type) ? null : openConnections(plugin, type);
+            switch (type) {
+                case "mysql" -> flyDB = new FlyDBMySQL(logger, connections);
+                case "postgresql", "postgres" -> flyDB = new FlyDBPostgreSQL(logger, connections);
+                case "sqlite" -> flyDB = new FlyDBSQLite(logger, connections);
+                case "memory" -> {
+                    // No I/O; optionally persisted to a snapshot file in the Fly folder
+                    File snapshot = ConfigUtil.readMemorySnapshot(plugin, folderPath)
+                            ? new File(plugin.getDataFolder(), folderPath + "/fly-memory.dat")
+                            : null;
+                    FlyDBMemory memory = new FlyDBMemory(logger, snapshot);
+                    memory.start(scheduler, ConfigUtil.readMemorySnapshotIntervalSeconds(plugin, folderPath));
+                    flyDB = memory;
+                }
                 default -> {
                     logger.warning("Unknown database.type='" + dbType + "', defaulting to SQLite for Fly.");
-                    flyDB = new FlyDBSQLite(logger);
+                    flyDB = new FlyDBSQLite(logger, connections);
                 }
             }
 
             // Ensure schema
             flyDB.ensureSchema();
 
-            // Init per-player flight manager
-            flyDuration = new FlyDuration(plugin, logger, flyDB);
+            if (flyDB instanceof FlyDBMemory) {
+                // Already in memory: a write-behind cache would only duplicate it
+                flyDB = new FlyDBMetrics(flyDB, stats.calls);
+            } else {
+                // Measure backend round trips, then serve durations from memory and write changes behind in batches
+                FlyDB backend = new FlyDBMetrics(flyDB, stats.backend);
+                FlyChangeFeed feed = null;
+                if (ConfigUtil.readCacheInvalidationEnabled(plugin, folderPath)) {
+                    // Publish grants/sets for other servers and refresh players they changed
+                    feed = new FlyChangeFeed(logger, backend, serverId);
+                    backend = feed;
+                }
+                // Journaled values the backend did not take stay pending in the cache, which keeps retrying them
+                Map<UUID, Integer> unwritten = new HashMap<>();
+                flyDBCache = new FlyDBCache(logger, backend, openJournal(plugin, backend, leaseOwner, unwritten));
+                unwritten.forEach(flyDBCache::adopt);
+                flyDBCache.start(scheduler, ConfigUtil.readCacheFlushIntervalSeconds(plugin, folderPath));
+                if (feed != null) {
+                    feed.start(scheduler, flyDBCache, ConfigUtil.readCacheInvalidationPollSeconds(plugin, folderPath));
+                }
+                flyDB = new FlyDBMetrics(flyDBCache, stats.calls);
+            }
+
+            // Keep every DB call off the main thread
+            flyDBAsync = new FlyDBAsync(logger, flyDB, scheduler);
 
-            // Register listeners (ensures DB row on join; cancels per-player task on leave)
+            // Init per-player flight manager (timing wheel or deadline accounting, per flight.accounting)
+            flyDuration = new FlyDuration(scheduler, logger, flyDBAsync, stats, ConfigUtil.readAccounting(plugin, folderPath));
+            if (leaseOwner != null) {
+                // Proxy networks sharing one fly table: only the server holding a player's lease charges them
+                flyDuration.enableLeases(serverId, ConfigUtil.readLeaseTtlSeconds(plugin, folderPath));
+                logger.info("Fly session leases enabled (server id '" + serverId + "').");
+            }
+
+            // Voucher clicks are merged per player and claimed in the redeemed-voucher ledger; vouchers owed to
+            // absent players survive restarts in the Fly folder
+            redemptions = new FlyRedemptionQueue(logger, flyDBAsync, flyDuration, stats, new FlyVoucherLedger(),
+                    new File(plugin.getDataFolder(), folderPath + "/fly-owed-vouchers.yml"));
+            // Players already online (a reload) get no join event
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                scheduler.runForPlayer(p, () -> redemptions.restore(p));
+            }
+
+            // Register listeners (ensures DB row on join; removes player from the fly wheel on leave)
             PluginManager pm = Bukkit.getPluginManager();
-            pm.registerEvents(new FlyListener(logger, flyDB, flyDuration, plugin), plugin);
+            pm.registerEvents(new FlyListener(logger, flyDBAsync, flyDuration, redemptions, plugin), plugin);
 
             // Reflectively register /fly command
             Field commandMapField = Bukkit.getServer().getClass().getDeclaredField("commandMap");
@@ -99,7 +194,8 @@ public class Fly implements IMCEngineEssentialAddOn {
             Command flyCmd = new Command("fly") {
 
                 /** Handles command execution for {@code /fly}. */
-                private final FlyCommand handler = new FlyCommand(logger, flyDB, flyDuration);
+                private final FlyCommand handler = new FlyCommand(logger, flyDBAsync, flyDuration, stats, redemptions,
+                        new File(plugin.getDataFolder(), folderPath), () -> openMigrationSource(plugin));
 
                 /** Handles tab-completion for {@code /fly}. */
                 private final FlyTabCompleter completer = new FlyTabCompleter();
@@ -116,7 +212,7 @@ public class Fly implements IMCEngineEssentialAddOn {
             };
 
             flyCmd.setDescription("Toggle flight mode (duration decreases every 30s when active; 0 = no time).");
-            flyCmd.setUsage("/fly [on|off] | /fly time add <player> <seconds>");
+            flyCmd.setUsage("/fly [on|off] | /fly time add <player|@online|@all|perm:<node>|file:<name>> <seconds> | /fly redeem all | /fly data | /fly stats");
 
             // Dynamically register the /fly command
             commandMap.register(plugin.getName().toLowerCase(), flyCmd);
@@ -128,12 +224,111 @@ public class Fly implements IMCEngineEssentialAddOn {
         }
     }
 
+    /**
+     * Choose the connection source for the SQL backends: a dedicated {@link FlyConnectionPool} when
+     * {@code pool.enabled} is set (it must point at the same database as {@code database.type}), otherwise the
+     * shared Essential connection. SQLite never gets a pool: a second connection to the same file would only wait on
+     * the Essential connection's locks (SQLITE_BUSY).
+     */
+    private FlyConnectionProvider openConnections(Plugin plugin, String type) {
+        int queryTimeout = ConfigUtil.readPoolQueryTimeoutSeconds(plugin, folderPath);
+        if (!ConfigUtil.readPoolEnabled(plugin, folderPath)) return FlyConnectionProvider.essential(queryTimeout);
+        if (!List.of("mysql", "postgresql", "postgres").contains(type)) {
+            logger.warning("pool.enabled is not supported with SQLite; using the shared Essential connection.");
+            return FlyConnectionProvider.essential(queryTimeout);
+        }
+        String[] connection = ConfigUtil.readPoolConnection(plugin, folderPath);
+        if (connection[0] == null || connection[0].isBlank()) {
+            logger.warning("pool.enabled is set but pool.jdbc-url is empty; using the shared Essential connection.");
+            return FlyConnectionProvider.essential(queryTimeout);
+        }
+        int size = ConfigUtil.readPoolSize(plugin, folderPath);
+        logger.info("Fly uses a dedicated connection pool (size " + size + ", query timeout "
+                + (queryTimeout == 0 ? "off" : queryTimeout + "s") + ").");
+        return new FlyConnectionPool(connection[0], connection[1], connection[2], size, queryTimeout,
+                ConfigUtil.readPoolValidationTimeoutSeconds(plugin, folderPath),
+                ConfigUtil.readPoolAcquireTimeoutMillis(plugin, folderPath));
+    }
+
+    /**
+     * Open the cache journal and replay whatever a previous run left unflushed.
+     *
+     * @param leaseOwner This server's lease id, or null when leases are off.
+     * @param unwritten  Receives the values the backend did not take, for {@link FlyDBCache#adopt(UUID, int)}.
+     * @return The journal, or {@code null} when disabled or unavailable (the cache then runs without it).
+     */
+    private FlyJournal openJournal(Plugin plugin, FlyDB backend, String leaseOwner, Map<UUID, Integer> unwritten) {
+        if (!ConfigUtil.readCacheJournal(plugin, folderPath)) return null;
+        try {
+            FlyJournal journal = new FlyJournal(new File(plugin.getDataFolder(), folderPath), logger);
+            FlyJournal.Replay replay = journal.replay(backend, leaseOwner);
+            if (replay.replayed() > 0) {
+                logger.info("Recovered " + replay.replayed() + " unflushed fly duration changes from the journal.");
+            }
+            if (replay.skipped() > 0) {
+                logger.warning("Skipped " + replay.skipped() + " journaled fly durations of players another server "
+                        + "has taken the lease of since.");
+            }
+            if (!replay.retained().isEmpty()) {
+                logger.warning("Could not write " + replay.retained().size() + " journaled fly durations yet; "
+                        + "they stay pending and are retried with each cache flush.");
+            }
+            unwritten.putAll(replay.retained());
+            return journal;
+        } catch (Exception e) {
+            logger.warning("Fly journal unavailable, continuing without it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Open the backend configured under {@code migration.source} for {@code /fly data migrate}, on its own connection.
+     * Its schema is left untouched; only {@code player_uuid} and {@code fly_duration} are read.
+     *
+     * @return The source, or {@code null} when none is configured.
+     * @throws IllegalArgumentException If the type is unknown or the JDBC URL is missing.
+     */
+    private FlyDB openMigrationSource(Plugin plugin) {
+        String type = ConfigUtil.readMigrationSourceType(plugin, folderPath);
+        if (type.isEmpty()) return null;
+        String[] connection = ConfigUtil.readMigrationSourceConnection(plugin, folderPath);
+        if (connection[0] == null || connection[0].isBlank()) {
+            throw new IllegalArgumentException("migration.source.jdbc-url is not set");
+        }
+        FlyConnectionProvider connections = FlyConnectionProvider.jdbc(connection[0], connection[1], connection[2]);
+        return switch (type) {
+            case "mysql" -> new FlyDBMySQL(logger, connections);
+            case "postgresql", "postgres" -> new FlyDBPostgreSQL(logger, connections);
+            case "sqlite" -> new FlyDBSQLite(logger, connections);
+            default -> throw new IllegalArgumentException("unknown migration.source.type '" + type + "'");
+        };
+    }
+
     @Override
     public void onDisload(Plugin plugin) {
-        // Stop all per-player tasks and disable flight
+        // Stop the fly wheel and disable flight
         if (flyDuration != null) {
             flyDuration.stopAll();
         }
+
+        // Take queued voucher clicks back; batches still at the database finish while the executor drains
+        if (redemptions != null) {
+            redemptions.shutdown();
+        }
+
+        // Let queued DB calls finish, then write any cached changes before shutting down
+        if (flyDBAsync != null) {
+            flyDBAsync.shutdown();
+        }
+        if (redemptions != null) {
+            redemptions.close();
+        }
+        if (flyDBCache != null) {
+            flyDBCache.stop();
+        }
+        if (flyDB != null) {
+            flyDB.close();
+        }
     }
 
     @Override
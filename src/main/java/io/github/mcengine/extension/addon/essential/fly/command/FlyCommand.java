@@ -2,14 +2,22 @@ package io.github.mcengine.extension.addon.essential.fly.command;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
 import io.github.mcengine.extension.addon.essential.fly.item.FlyItem;
 import io.github.mcengine.extension.addon.essential.fly.util.CommandUtil;
+import io.github.mcengine.extension.addon.essential.fly.util.DurationUtil;
 import io.github.mcengine.extension.addon.essential.fly.util.FlyDuration;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyRedemptionQueue;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyStats;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.File;
+import java.util.UUID;
+import java.util.function.Supplier;
+
 /**
  * Handles the {@code /fly} command.
  * <p>
@@ -18,15 +26,21 @@ import org.bukkit.inventory.ItemStack;
  *   <li><b>/fly</b> or <b>/fly on</b> — enable flight if {@code fly_duration > 0}; prevents duplicate activation when already flying.</li>
  *   <li><b>/fly off</b> — disable flight if active; if not active, informs the player.</li>
  *   <li><b>/fly time add &lt;player&gt; &lt;seconds&gt;</b> — admin add time (delegated to {@link CommandUtil}).</li>
+ *   <li><b>/fly time add &lt;@online|@all|perm:node|file:name&gt; &lt;seconds&gt;</b> — admin bulk add time (delegated to {@link CommandUtil}).</li>
  *   <li><b>/fly get time</b> — show your own remaining flight time in Y/H/M/S format.</li>
  *   <li><b>/fly get item &lt;seconds&gt;</b> — give yourself a paper voucher that adds time.</li>
  *   <li><b>/fly get item &lt;hdbId&gt; &lt;seconds&gt;</b> — give yourself a head voucher (HeadDatabase if present; else paper).</li>
+ *   <li><b>/fly redeem all</b> — redeem every voucher in your inventory as one increment (see {@link FlyRedemptionQueue}).</li>
+ *   <li><b>/fly data export &lt;csv|bin&gt; &lt;file&gt;</b>, <b>/fly data import &lt;file&gt;</b>, <b>/fly data migrate</b> — admin
+ *       transfer of the fly table (delegated to {@link CommandUtil}).</li>
+ *   <li><b>/fly stats [reset]</b> — admin view (or reset) of runtime counters and latencies (delegated to {@link CommandUtil}).</li>
  * </ul>
  * <p>
  * Notes:
  * <ul>
  *   <li>This implementation treats {@code 0} as <b>no remaining time</b> (not unlimited).</li>
  *   <li>Per-player timers are handled by {@link FlyDuration}.</li>
+ *   <li>Database reads run on the Fly I/O executor ({@link FlyDBAsync}); replies are sent back on the main thread.</li>
  *   <li>Only <b>bare</b> {@code /fly} or explicit {@code on}/{@code off} will toggle flight. Other subcommands (e.g., {@code get}) never toggle.</li>
  * </ul>
  */
@@ -35,16 +49,33 @@ public class FlyCommand {
     /** Logger for command feedback and diagnostics. */
     private final MCEngineExtensionLogger logger;
 
-    /** Database accessor for fly durations. */
-    private final FlyDB flyDB;
+    /** Asynchronous database accessor for fly durations. */
+    private final FlyDBAsync flyDBAsync;
 
     /** Per-player flight/timer manager. */
     private final FlyDuration flyDuration;
 
-    public FlyCommand(MCEngineExtensionLogger logger, FlyDB flyDB, FlyDuration flyDuration) {
+    /** Runtime counters shown by {@code /fly stats}. */
+    private final FlyStats stats;
+
+    /** Per-player voucher redemption queue used by {@code /fly redeem all}. */
+    private final FlyRedemptionQueue redemptions;
+
+    /** Fly folder; bulk grants read {@code file:} UUID lists from it, and exports are written to it. */
+    private final File folder;
+
+    /** Opens the configured migration source backend (null when none is configured). */
+    private final Supplier<FlyDB> migrationSource;
+
+    public FlyCommand(MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyDuration flyDuration, FlyStats stats,
+                      FlyRedemptionQueue redemptions, File folder, Supplier<FlyDB> migrationSource) {
         this.logger = logger;
-        this.flyDB = flyDB;
+        this.flyDBAsync = flyDBAsync;
         this.flyDuration = flyDuration;
+        this.stats = stats;
+        this.redemptions = redemptions;
+        this.folder = folder;
+        this.migrationSource = migrationSource;
     }
 
     /**
@@ -55,7 +86,13 @@ public class FlyCommand {
     public boolean onCommand(CommandSender sender, Command cmd, String label, String[] args) {
         // Admin subcommands are delegated to CommandUtil
         if (args.length >= 1 && args[0].equalsIgnoreCase("time")) {
-            return CommandUtil.handleTimeSubcommand(sender, args, flyDB);
+            return CommandUtil.handleTimeSubcommand(sender, args, flyDBAsync, flyDuration, folder);
+        }
+        if (args.length >= 1 && args[0].equalsIgnoreCase("data")) {
+            return CommandUtil.handleDataSubcommand(sender, args, flyDBAsync, folder, migrationSource);
+        }
+        if (args.length >= 1 && args[0].equalsIgnoreCase("stats")) {
+            return CommandUtil.handleStatsSubcommand(sender, args, stats, flyDuration, flyDBAsync);
         }
 
         // /fly get time
@@ -64,9 +101,20 @@ public class FlyCommand {
                 sender.sendMessage("Only players can query their own flight time.");
                 return true;
             }
-            flyDB.ensurePlayerRow(self.getUniqueId());
-            int seconds = Math.max(0, flyDB.getDuration(self.getUniqueId()));
-            self.sendMessage("§7Your remaining flight time: §e" + FlyDuration.formatDuration(seconds) + "§7.");
+            // While flying on a deadline, the stored balance lags behind; the live value is computed locally
+            int live = flyDuration.remainingSeconds(self.getUniqueId());
+            if (live >= 0) {
+                self.sendMessage(DurationUtil.message("§7Your remaining flight time: §e", live, "§7."));
+                return true;
+            }
+            flyDBAsync.thenForPlayer(flyDBAsync.ensureAndGetDuration(self.getUniqueId()), "get time", self, seconds -> {
+                if (!self.isOnline()) return;
+                if (seconds < 0) {
+                    self.sendMessage("§cCould not read your flight time: database error (see console).");
+                    return;
+                }
+                self.sendMessage(DurationUtil.message("§7Your remaining flight time: §e", seconds, "§7."));
+            });
             return true;
         }
 
@@ -85,7 +133,7 @@ public class FlyCommand {
                 }
                 ItemStack voucher = FlyItem.createPaperVoucher(secs);
                 self.getInventory().addItem(voucher);
-                self.sendMessage("§aYou received a Fly Time Voucher: §e" + FlyDuration.formatDuration(secs) + "§a.");
+                self.sendMessage(DurationUtil.message("§aYou received a Fly Time Voucher: §e", secs, "§a."));
                 return true;
             } else if (args.length == 4) {
                 // head variant (HDB when available, else paper)
@@ -97,7 +145,7 @@ public class FlyCommand {
                 }
                 ItemStack voucher = FlyItem.createHdbVoucher(hdbId, secs);
                 self.getInventory().addItem(voucher);
-                self.sendMessage("§aYou received a Fly Time Voucher: §e" + FlyDuration.formatDuration(secs) + "§a.");
+                self.sendMessage(DurationUtil.message("§aYou received a Fly Time Voucher: §e", secs, "§a."));
                 return true;
             } else {
                 sender.sendMessage("§7Usage: §f/fly get item <seconds> §7or §f/fly get item <hdbId> <seconds>");
@@ -111,14 +159,25 @@ public class FlyCommand {
             return true;
         }
 
+        // /fly redeem all
+        if (args.length >= 1 && args[0].equalsIgnoreCase("redeem")) {
+            if (!(sender instanceof Player self)) {
+                sender.sendMessage("Only players can redeem vouchers.");
+                return true;
+            }
+            if (args.length != 2 || !args[1].equalsIgnoreCase("all")) {
+                sender.sendMessage("§7Usage: §f/fly redeem all");
+                return true;
+            }
+            redemptions.enqueueAll(self);
+            return true;
+        }
+
         if (!(sender instanceof Player player)) {
             sender.sendMessage("Only players can use /fly.");
             return true;
         }
 
-        // Ensure the player has a row (no-op if exists)
-        flyDB.ensurePlayerRow(player.getUniqueId());
-
         final boolean hasNoArgs = args.length == 0; // Only bare /fly may toggle
         final boolean forceOn = args.length >= 1 && args[0].equalsIgnoreCase("on");
         final boolean forceOff = args.length >= 1 && args[0].equalsIgnoreCase("off");
@@ -132,14 +191,31 @@ public class FlyCommand {
 
         // Activate only for explicit 'on' OR bare '/fly' when not active
         if ((forceOn || (hasNoArgs && !isActive))) {
-            int duration = flyDB.getDuration(player.getUniqueId());
-            if (duration <= 0) {
-                player.sendMessage("§cYou have no flight time remaining.");
-                return true;
-            }
+            // Ensure the player has a row (no-op if exists), take their lease if enabled, and read the balance off the main thread
+            final UUID uuid = player.getUniqueId();
+            flyDBAsync.thenForPlayer(flyDuration.claim(uuid), "activate", player, duration -> {
+                if (!player.isOnline()) return;
+                if (duration == FlyDuration.LEASE_HELD) {
+                    player.sendMessage("§cYour flight time is still being handed over from another server. Try again in a moment.");
+                    return;
+                }
+                if (duration < 0) {
+                    player.sendMessage("§cCould not read your flight time: database error (see console).");
+                    return;
+                }
+                // Another /fly may have activated while the read was in flight
+                if (flyDuration.isActive(uuid)) {
+                    player.sendMessage("§7You are already flying.");
+                    return;
+                }
+                if (duration <= 0) {
+                    player.sendMessage("§cYou have no flight time remaining.");
+                    return;
+                }
 
-            flyDuration.activate(player);
-            player.sendMessage("§aFlight enabled. §7Remaining: §e" + FlyDuration.formatDuration(duration) + "§7.");
+                flyDuration.activate(player, duration);
+                player.sendMessage(DurationUtil.message("§aFlight enabled. §7Remaining: §e", duration, "§7."));
+            });
             return true;
         }
 
@@ -160,7 +236,7 @@ public class FlyCommand {
         }
 
         // Any other subcommand that reaches here does not toggle
-        player.sendMessage("§7Unknown subcommand. §7Try: §f/fly, /fly on, /fly off, /fly get time, /fly get item <seconds>, /fly get item <hdbId> <seconds>, /fly time add <player> <seconds>");
+        player.sendMessage("§7Unknown subcommand. §7Try: §f/fly, /fly on, /fly off, /fly get time, /fly get item <seconds>, /fly get item <hdbId> <seconds>, /fly time add <player> <seconds>, /fly redeem all, /fly data, /fly stats");
         return true;
     }
 
@@ -0,0 +1,166 @@
+package io.github.mcengine.extension.addon.essential.fly.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections owned by the Fly backends, so Fly traffic does not compete with other Essential
+ * addons for the shared connection.
+ * <p>
+ * At most {@code size} connections exist at once; {@link #acquire()} waits up to the acquire timeout for one to be
+ * handed back and then fails instead of blocking indefinitely. Connections are opened lazily, reused most recently
+ * returned first, and validated with {@link Connection#isValid(int)} when they have been idle for longer than
+ * {@link #VALIDATE_AFTER_IDLE_MILLIS}. Statements prepared through {@link FlyStatementCache} get the pool's query
+ * timeout.
+ */
+public final class FlyConnectionPool implements FlyConnectionProvider {
+
+    /** Connections handed back more recently than this are reused without a validation round trip. */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 500;
+
+    /** A pooled connection and when it was handed back. */
+    private record Idle(Connection connection, long returnedAt) {}
+
+    /** JDBC URL. */
+    private final String url;
+
+    /** User name, or null/blank for none. */
+    private final String user;
+
+    /** Password, or null for none. */
+    private final String password;
+
+    /** Seconds each cached statement may run before the driver cancels it; 0 = no limit. */
+    private final int queryTimeoutSeconds;
+
+    /** Seconds {@link Connection#isValid(int)} may take before a connection is discarded. */
+    private final int validationTimeoutSeconds;
+
+    /** How long {@link #acquire()} waits for a free connection. */
+    private final long acquireTimeoutMillis;
+
+    /** One permit per connection that may be checked out. */
+    private final Semaphore permits;
+
+    /** Open connections not currently checked out, most recently returned first. */
+    private final BlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+
+    /** Set by {@link #close()}; later acquires fail and returned connections are closed. */
+    private volatile boolean closed;
+
+    /**
+     * Creates an empty pool; connections are opened on demand.
+     *
+     * @param url                      JDBC URL.
+     * @param user                     User name, or null/blank for none.
+     * @param password                 Password, or null for none.
+     * @param size                     Maximum number of connections (minimum 1).
+     * @param queryTimeoutSeconds      Per-statement query timeout in seconds; 0 = no limit.
+     * @param validationTimeoutSeconds Timeout for validating an idle connection, in seconds (minimum 1).
+     * @param acquireTimeoutMillis     How long to wait for a free connection.
+     */
+    public FlyConnectionPool(String url, String user, String password, int size,
+                             int queryTimeoutSeconds, int validationTimeoutSeconds, long acquireTimeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.permits = new Semaphore(Math.max(1, size), true);
+        this.queryTimeoutSeconds = Math.max(0, queryTimeoutSeconds);
+        this.validationTimeoutSeconds = Math.max(1, validationTimeoutSeconds);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+    }
+
+    @Override
+    public Connection acquire() throws SQLException {
+        if (closed) throw new SQLException("Fly connection pool is closed.");
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No Fly database connection free after " + acquireTimeoutMillis + " ms.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a Fly database connection.", e);
+        }
+        try {
+            Idle candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                if (usable(candidate)) return candidate.connection();
+                closeQuietly(candidate.connection());
+            }
+            return open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(Connection connection) {
+        try {
+            if (closed || connection.isClosed()) {
+                closeQuietly(connection);
+            } else {
+                idle.offerFirst(new Idle(connection, System.currentTimeMillis()));
+                // Raced with close(): don't leave the connection behind in the drained pool
+                if (closed) close();
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public int queryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+
+    @Override
+    public boolean ownsConnections() {
+        return true;
+    }
+
+    /**
+     * Close every idle connection; connections still checked out are closed when handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Idle candidate;
+        while ((candidate = idle.poll()) != null) {
+            closeQuietly(candidate.connection());
+        }
+    }
+
+    /** Whether a pooled connection can be handed out again, validating it if it sat idle. */
+    private boolean usable(Idle candidate) {
+        try {
+            if (candidate.connection().isClosed()) return false;
+            if (System.currentTimeMillis() - candidate.returnedAt() < VALIDATE_AFTER_IDLE_MILLIS) return true;
+            return candidate.connection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Open a new connection to {@link #url}. */
+    private Connection open() throws SQLException {
+        return user == null || user.isBlank()
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, user, password);
+    }
+
+    /** Close a connection, ignoring errors. */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignore) {}
+    }
+}
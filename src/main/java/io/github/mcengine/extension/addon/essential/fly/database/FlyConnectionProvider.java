@@ -0,0 +1,123 @@
+package io.github.mcengine.extension.addon.essential.fly.database;
+
+import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Source of JDBC connections for the Fly {@link FlyDB} backends.
+ * <p>
+ * Every {@link #acquire()} is paired with a {@link #release(Connection)} once the caller is done.
+ */
+public interface FlyConnectionProvider {
+
+    /**
+     * Obtain a connection for one database operation.
+     *
+     * @return An open connection.
+     * @throws SQLException If no connection is available.
+     */
+    Connection acquire() throws SQLException;
+
+    /**
+     * Hand a connection back after use. Shared connections are left open.
+     *
+     * @param connection Connection previously returned by {@link #acquire()}.
+     */
+    default void release(Connection connection) {}
+
+    /**
+     * Seconds a statement prepared through {@link FlyStatementCache} may run before the driver cancels it.
+     *
+     * @return The timeout, or {@code 0} for no limit (the default).
+     */
+    default int queryTimeoutSeconds() {
+        return 0;
+    }
+
+    /**
+     * Whether the connections are used by Fly alone. Only then may Fly switch off auto-commit and run transactions on
+     * them: on the shared Essential connection, another addon's statements would end up inside Fly's transaction.
+     *
+     * @return {@code false} (the default) for a shared connection.
+     */
+    default boolean ownsConnections() {
+        return false;
+    }
+
+    /**
+     * Close connections owned by this provider. Shared connections are left open.
+     */
+    default void close() {}
+
+    /**
+     * Provider backed by the shared Essential database facade (the connection is never closed here), with no
+     * query timeout.
+     */
+    static FlyConnectionProvider essential() {
+        return essential(0);
+    }
+
+    /**
+     * Provider backed by the shared Essential database facade (the connection is never closed here).
+     *
+     * @param queryTimeoutSeconds Seconds a statement may run before it is cancelled ({@code 0} = no limit).
+     */
+    static FlyConnectionProvider essential(int queryTimeoutSeconds) {
+        return new FlyConnectionProvider() {
+            @Override
+            public Connection acquire() throws SQLException {
+                Connection c = MCEngineEssentialCommon.getApi().getDBConnection();
+                if (c == null) throw new SQLException("Essential database connection is not available.");
+                return c;
+            }
+
+            @Override
+            public int queryTimeoutSeconds() {
+                return queryTimeoutSeconds;
+            }
+        };
+    }
+
+    /**
+     * Provider owning one JDBC connection to {@code url}, opened on first use and reopened if it was closed
+     * (e.g., a second database used as a migration source).
+     *
+     * @param url      JDBC URL.
+     * @param user     User name, or null/blank for none.
+     * @param password Password, or null for none.
+     */
+    static FlyConnectionProvider jdbc(String url, String user, String password) {
+        return new FlyConnectionProvider() {
+
+            /** The owned connection; null until first use. */
+            private Connection connection;
+
+            @Override
+            public synchronized Connection acquire() throws SQLException {
+                if (connection == null || connection.isClosed()) {
+                    connection = user == null || user.isBlank()
+                            ? DriverManager.getConnection(url)
+                            : DriverManager.getConnection(url, user, password);
+                }
+                return connection;
+            }
+
+            @Override
+            public boolean ownsConnections() {
+                return true;
+            }
+
+            @Override
+            public synchronized void close() {
+                if (connection == null) return;
+                try {
+                    connection.close();
+                } catch (SQLException ignore) {}
+                connection = null;
+            }
+        };
+    }
+}
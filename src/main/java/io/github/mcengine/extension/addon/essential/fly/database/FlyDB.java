@@ -1,16 +1,76 @@
 package io.github.mcengine.extension.addon.essential.fly.database;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * Database interface for the Fly AddOn.
  * <p>
- * Convention: {@code fly_duration = 0} means unlimited flight time.
+ * Convention: {@code fly_duration} is the remaining flight time in seconds; {@code 0} means no time is left.
+ * <p>
+ * Flight session leases (for servers sharing one {@code fly} table behind a proxy): a server takes a player's lease
+ * with {@link #acquireLease}, fences its charges with the lease token ({@link #decrementLeased}), keeps it alive with
+ * {@link #renewLeases} and hands it off with {@link #releaseLease}. Each step is one conditional {@code UPDATE};
+ * nothing is locked across the network, and an unrenewed lease simply expires. Backends without shared storage keep
+ * the defaults, which grant every lease and charge unfenced.
+ * <p>
+ * Change feed (for servers caching durations from a shared table): writes other servers must see are recorded in a
+ * {@code fly_changes} table with a monotonically increasing version ({@link #recordChanges}), which each server polls
+ * ({@link #changesSince}) to refresh what it caches. Backends without shared storage keep the no-op defaults.
+ * <p>
+ * Bulk transfer (export, import, migration): {@link #scan} pages through every stored player in the backend's key
+ * order, and {@link #setDurations} writes a page back as batched upserts, so a full pass holds one page in memory.
+ * <p>
+ * Voucher ledger: each minted voucher carries a unique id, and redeeming it inserts that id into a
+ * {@code fly_vouchers} table unless already present, together with the grant ({@link #redeemVouchers}), so copies of
+ * one voucher grant once. On Fly's own connections both share one transaction, so a claimed voucher is never left
+ * without its time; on the shared Essential connection a failed claim is undone instead.
  */
 public interface FlyDB {
 
+    /**
+     * One change-feed row: {@code uuid}'s stored duration was changed by another server at {@code version}.
+     */
+    record Change(long version, UUID uuid) {}
+
+    /**
+     * One stored player, as paged by {@link #scan} and written by {@link #setDurations}.
+     */
+    record Row(UUID uuid, int seconds) {}
+
+    /**
+     * One voucher handed to {@link #redeemVouchers}.
+     *
+     * @param id      Voucher id to claim, or null for vouchers minted before ids existed (granted without a claim).
+     * @param seconds Seconds granted if the voucher is redeemed.
+     */
+    record VoucherClaim(UUID id, int seconds) {}
+
+    /**
+     * Committed result of {@link #redeemVouchers}.
+     *
+     * @param duplicates Ids that had already been redeemed (nothing granted for them).
+     * @param granted    Seconds added in total.
+     * @param remaining  Remaining seconds after the grant, or {@code -1} when nothing was granted.
+     */
+    record Redemption(Set<UUID> duplicates, int granted, int remaining) {}
+
+    /**
+     * Remaining-seconds result of a fenced charge whose lease is no longer held by the caller. Distinct from the
+     * {@code -1} error results and from {@code FlyDuration.LEASE_HELD}.
+     */
+    int LEASE_LOST = -2;
+
     /**
      * Ensure the {@code fly} table exists.
+     *
+     * @throws IllegalStateException If an existing table could not be converted to the current layout.
      */
     void ensureSchema();
 
@@ -20,19 +80,238 @@ public interface FlyDB {
     void ensurePlayerRow(UUID uuid);
 
     /**
-     * Get remaining duration (seconds) for a player. 0 = unlimited.
+     * Get remaining duration (seconds) for a player. 0 = no time left (also when the player has no row).
+     *
+     * @return remaining seconds, or {@code -1} on a database error.
      */
     int getDuration(UUID uuid);
 
     /**
      * Set remaining duration (seconds) for a player.
+     *
+     * @return {@code true} once stored, {@code false} on a database error (nothing was written).
      */
-    void setDuration(UUID uuid, int seconds);
+    boolean setDuration(UUID uuid, int seconds);
 
     /**
-     * Atomically decrement duration by {@code seconds}, respecting 0 = unlimited and floor at 0.
+     * Atomically add {@code seconds} to a player's duration, creating the row if missing.
+     * <p>
+     * Implemented as a single upsert-with-increment so concurrent grants and decrements never lose updates.
      *
-     * @return remaining seconds after decrement (0 if expired or unlimited).
+     * @return remaining seconds after the addition, or {@code -1} on a database error (nothing was added).
+     */
+    int addDuration(UUID uuid, int seconds);
+
+    /**
+     * Atomically decrement duration by {@code seconds}, flooring at 0.
+     *
+     * @return remaining seconds after decrement (0 once expired), or {@code -1} on a database error
+     *         (nothing was charged).
      */
     int decrementDuration(UUID uuid, int seconds);
+
+    /**
+     * Decrement every given player's duration by {@code seconds} in as few round trips as possible,
+     * flooring at 0 like {@link #decrementDuration(UUID, int)}.
+     * <p>
+     * The default implementation loops over {@link #decrementDuration(UUID, int)}; backends override
+     * it with a single statement or batch.
+     *
+     * @return remaining seconds after decrement per player. Players whose charge could not be
+     *         applied (database error) are absent from the map.
+     */
+    default Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>();
+        for (UUID uuid : uuids) {
+            int left = decrementDuration(uuid, seconds);
+            if (left >= 0) remaining.put(uuid, left);
+        }
+        return remaining;
+    }
+
+    /**
+     * Add {@code seconds} to several players at once, creating missing rows. Each distinct player is credited once.
+     * <p>
+     * The default implementation loops over {@link #addDuration(UUID, int)}; backends override
+     * it with a few set-based statements per chunk.
+     *
+     * @return remaining seconds after the addition per player. Players whose grant could not be
+     *         applied (database error) are absent from the map.
+     */
+    default Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = new HashMap<>();
+        for (UUID uuid : new LinkedHashSet<>(uuids)) {
+            int stored = addDuration(uuid, seconds);
+            if (stored >= 0) updated.put(uuid, stored);
+        }
+        return updated;
+    }
+
+    /**
+     * Add {@code seconds} to every stored player in one statement.
+     *
+     * @return number of players credited, or {@code -1} on a database error.
+     */
+    int addDurationAll(int seconds);
+
+    /**
+     * Read up to {@code limit} stored players following {@code after} in the backend's key order (keyset paging:
+     * pass the last UUID of one page to get the next). Read-only: a table left in an older layout is read as it is,
+     * without {@link #ensureSchema()} upgrading it.
+     *
+     * @param after Last UUID of the previous page, or {@code null} for the first page.
+     * @return the page; shorter than {@code limit} (possibly empty) once the end is reached.
+     */
+    List<Row> scan(UUID after, int limit);
+
+    /**
+     * Redeem vouchers for {@code uuid}: record each voucher id as redeemed unless it already is, then add the seconds
+     * of every voucher claimed (and of every voucher without an id) to the player's duration with one increment,
+     * creating the row if missing. Where the backend can run it as one transaction, either all of it commits or none
+     * of it does.
+     *
+     * @return the committed result, or {@code null} on a database error (in a transaction nothing was claimed or
+     *         granted; see the backend otherwise).
+     */
+    Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers);
+
+    /**
+     * Whether {@code voucherId} is recorded as redeemed ({@code false} on a database error; the claim decides).
+     */
+    boolean isVoucherRedeemed(UUID voucherId);
+
+    /**
+     * Store absolute durations for several players (creating missing rows) as one batch.
+     * <p>
+     * The default implementation loops over {@link #setDuration(UUID, int)}; backends override
+     * it with a batched upsert (in one transaction on connections Fly owns).
+     */
+    default void setDurations(List<Row> rows) {
+        for (Row row : rows) {
+            if (!setDuration(row.uuid(), row.seconds())) {
+                throw new IllegalStateException("Could not store the duration of " + row.uuid());
+            }
+        }
+    }
+
+    /**
+     * Ensure the player row exists and return its remaining duration.
+     * <p>
+     * Used to load a joining player's record ahead of time, off the main thread.
+     *
+     * @return remaining seconds, or {@code -1} on a database error.
+     */
+    default int loadPlayer(UUID uuid) {
+        ensurePlayerRow(uuid);
+        return getDuration(uuid);
+    }
+
+    /**
+     * Take a player's flight lease for {@code owner}, unless another server holds an unexpired one.
+     * The player row must exist.
+     *
+     * @param uuid      Player.
+     * @param owner     This server's id.
+     * @param token     Fresh, non-zero fencing token for this acquisition.
+     * @param ttlMillis Lease lifetime from now.
+     * @return true if the lease is now held with {@code token}.
+     */
+    default boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        return true;
+    }
+
+    /**
+     * Extend the given leases by {@code ttlMillis} from now. Leases that moved elsewhere are left alone.
+     */
+    default void renewLeases(Collection<Long> tokens, long ttlMillis) {}
+
+    /**
+     * Fenced {@link #decrementDurations(Collection, int)}: only players whose row still carries the given lease token
+     * are charged.
+     *
+     * @param tokens  Lease token per player.
+     * @param seconds Seconds to charge.
+     * @return remaining seconds per player, {@link #LEASE_LOST} for players whose lease is no longer held
+     *         (not charged). Players whose charge failed (database error) are absent.
+     */
+    default Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        return decrementDurations(tokens.keySet(), seconds);
+    }
+
+    /**
+     * Hand off a player's lease: clear it if it still carries {@code token}.
+     *
+     * @return true if the lease was held and is now released.
+     */
+    default boolean releaseLease(UUID uuid, long token) {
+        return true;
+    }
+
+    /**
+     * Whether the player's row names a lease holder other than {@code owner}, expired or not (another server has
+     * flown the player since {@code owner} last did). Used by crash recovery, which must not overwrite such a row.
+     *
+     * @return true if another server holds (or last held) the lease; false when unleased, held by {@code owner},
+     *         the row is missing, or leases are unsupported.
+     * @throws IllegalStateException On a database error.
+     */
+    default boolean leasedElsewhere(UUID uuid, String owner) {
+        return false;
+    }
+
+    /**
+     * Append a change-feed row per player, tagged with the writing server's id.
+     */
+    default void recordChanges(Collection<UUID> uuids, String origin) {}
+
+    /**
+     * Highest change-feed version, or {@code 0} when the feed is empty or unsupported.
+     */
+    default long latestChangeVersion() {
+        return 0L;
+    }
+
+    /**
+     * Change-feed rows above {@code version} written by servers other than {@code excludeOrigin}, oldest first.
+     *
+     * @param version       Exclusive lower bound.
+     * @param excludeOrigin This server's id.
+     * @param limit         Maximum rows returned.
+     */
+    default List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Delete change-feed rows written before {@code beforeMillis} (epoch millis).
+     */
+    default void pruneChanges(long beforeMillis) {}
+
+    /**
+     * Seed a caching implementation with a value loaded by {@link #loadPlayer(UUID)} for a joining player.
+     * <p>
+     * Direct backends have nothing to do; caching implementations keep any entry they already hold.
+     */
+    default void prime(UUID uuid, int seconds) {}
+
+    /**
+     * Hint that a player left this server.
+     * <p>
+     * Caching implementations write any pending change for the player and drop it from memory;
+     * direct backends have nothing to do.
+     */
+    default void evict(UUID uuid) {}
+
+    /**
+     * Number of database errors the implementation logged and recovered from (e.g., a failed statement
+     * answered with a fallback value). Decorators report their delegate's count.
+     */
+    default long errorCount() {
+        return 0;
+    }
+
+    /**
+     * Release resources held by the implementation (e.g., cached statements).
+     */
+    default void close() {}
 }
@@ -0,0 +1,242 @@
+package io.github.mcengine.extension.addon.essential.fly.database;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Asynchronous counterpart to {@link FlyDB}.
+ * <p>
+ * Every call is queued on a dedicated single-threaded I/O executor and returns a
+ * {@link CompletableFuture}, so command and listener code never waits on a database round trip.
+ * Results that touch a player should be applied with {@link #thenForPlayer}, which runs on the thread owning
+ * that player (the main thread on Spigot/Paper, the player's region thread on Folia).
+ * <p>
+ * The executor is single-threaded on purpose: calls for the same player (e.g., the partial decrement
+ * on quit followed by {@link FlyDB#evict(UUID)}) are applied in submission order.
+ */
+public class FlyDBAsync {
+
+    /** Logger for diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Synchronous database accessor the work runs against. */
+    private final FlyDB flyDB;
+
+    /** Scheduler used to hop back to the server threads. */
+    private final FlyScheduler scheduler;
+
+    /** Dedicated I/O executor for Fly database work. */
+    private final ExecutorService executor;
+
+    /** Executor that runs continuations on the server main (global) thread. */
+    private final Executor mainThread;
+
+    /**
+     * Create the async accessor with the scheduler matching the running server.
+     *
+     * @param logger Logger for diagnostics.
+     * @param flyDB  Synchronous database accessor.
+     * @param plugin Owning plugin for scheduling.
+     */
+    public FlyDBAsync(MCEngineExtensionLogger logger, FlyDB flyDB, Plugin plugin) {
+        this(logger, flyDB, FlyScheduler.create(plugin));
+    }
+
+    /**
+     * Create the async accessor and start its I/O thread.
+     *
+     * @param logger    Logger for diagnostics.
+     * @param flyDB     Synchronous database accessor.
+     * @param scheduler Scheduler for continuations.
+     */
+    public FlyDBAsync(MCEngineExtensionLogger logger, FlyDB flyDB, FlyScheduler scheduler) {
+        this.logger = logger;
+        this.flyDB = flyDB;
+        this.scheduler = scheduler;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MCEngineFly-DB");
+            t.setDaemon(true);
+            return t;
+        });
+        this.mainThread = scheduler::runGlobal;
+    }
+
+    /**
+     * Executor that runs continuations on the server main thread (the global region thread on Folia).
+     * <p>
+     * Continuations are dropped once the owning plugin is disabled.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Scheduler continuations are dispatched with.
+     */
+    public FlyScheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * The synchronous accessor, for callers that already run off the main thread
+     * (e.g., {@code AsyncPlayerPreLoginEvent} handlers) or only touch memory.
+     */
+    public FlyDB blocking() {
+        return flyDB;
+    }
+
+    /**
+     * Run arbitrary work against the synchronous {@link FlyDB} on the I/O executor.
+     *
+     * @param work Function to run with the database accessor.
+     * @return Future completed with the function's result.
+     */
+    public <T> CompletableFuture<T> submit(Function<FlyDB, T> work) {
+        return CompletableFuture.supplyAsync(() -> work.apply(flyDB), executor);
+    }
+
+    /**
+     * Ensure a player row exists; create with duration 0 if missing.
+     */
+    public CompletableFuture<Void> ensurePlayerRow(UUID uuid) {
+        return CompletableFuture.runAsync(() -> flyDB.ensurePlayerRow(uuid), executor);
+    }
+
+    /**
+     * Get remaining duration (seconds) for a player.
+     */
+    public CompletableFuture<Integer> getDuration(UUID uuid) {
+        return submit(db -> db.getDuration(uuid));
+    }
+
+    /**
+     * Ensure the player row exists, then read its remaining duration ({@code -1} on a database error).
+     */
+    public CompletableFuture<Integer> ensureAndGetDuration(UUID uuid) {
+        return submit(db -> db.loadPlayer(uuid));
+    }
+
+    /**
+     * Set remaining duration (seconds) for a player.
+     */
+    public CompletableFuture<Void> setDuration(UUID uuid, int seconds) {
+        return CompletableFuture.runAsync(() -> flyDB.setDuration(uuid, seconds), executor);
+    }
+
+    /**
+     * Atomically add {@code seconds} to a player's duration (creating the row if missing).
+     *
+     * @return Future completed with the remaining seconds after the addition.
+     */
+    public CompletableFuture<Integer> addDuration(UUID uuid, int seconds) {
+        return submit(db -> db.addDuration(uuid, seconds));
+    }
+
+    /**
+     * Decrement duration by {@code seconds}, floored at 0.
+     *
+     * @return Future completed with the remaining seconds after decrement.
+     */
+    public CompletableFuture<Integer> decrementDuration(UUID uuid, int seconds) {
+        return submit(db -> db.decrementDuration(uuid, seconds));
+    }
+
+    /**
+     * Decrement several players at once (see {@link FlyDB#decrementDurations(Collection, int)}).
+     *
+     * @return Future completed with remaining seconds per charged player.
+     */
+    public CompletableFuture<Map<UUID, Integer>> decrementDurations(Collection<UUID> uuids, int seconds) {
+        return submit(db -> db.decrementDurations(uuids, seconds));
+    }
+
+    /**
+     * Add {@code seconds} to several players at once (see {@link FlyDB#addDurations(Collection, int)}).
+     *
+     * @return Future completed with remaining seconds per credited player.
+     */
+    public CompletableFuture<Map<UUID, Integer>> addDurations(Collection<UUID> uuids, int seconds) {
+        return submit(db -> db.addDurations(uuids, seconds));
+    }
+
+    /**
+     * Add {@code seconds} to every stored player (see {@link FlyDB#addDurationAll(int)}).
+     *
+     * @return Future completed with the number of players credited.
+     */
+    public CompletableFuture<Integer> addDurationAll(int seconds) {
+        return submit(db -> db.addDurationAll(seconds));
+    }
+
+    /**
+     * Hint that a player left this server (see {@link FlyDB#evict(UUID)}).
+     */
+    public CompletableFuture<Void> evict(UUID uuid) {
+        return CompletableFuture.runAsync(() -> flyDB.evict(uuid), executor);
+    }
+
+    /**
+     * Apply a result on the main thread, logging (instead of dropping) any database failure.
+     *
+     * @param future  Pending database result.
+     * @param what    Short description used in the warning.
+     * @param onMain  Consumer run on the main thread with the result.
+     */
+    public <T> void thenOnMain(CompletableFuture<T> future, String what, Consumer<T> onMain) {
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                logger.warning("Fly async " + what + " failed: " + error.getMessage());
+                return;
+            }
+            mainThread.execute(() -> onMain.accept(value));
+        });
+    }
+
+    /**
+     * Apply a result on the thread owning {@code player}, logging (instead of dropping) any database failure.
+     * Use this whenever the continuation touches the player's flight, inventory or chat.
+     *
+     * @param future    Pending database result.
+     * @param what      Short description used in the warning.
+     * @param player    Player the continuation acts on.
+     * @param onPlayer  Consumer run on the player's thread with the result.
+     */
+    public <T> void thenForPlayer(CompletableFuture<T> future, String what, Player player, Consumer<T> onPlayer) {
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                logger.warning("Fly async " + what + " failed: " + error.getMessage());
+                return;
+            }
+            scheduler.runForPlayer(player, () -> onPlayer.accept(value));
+        });
+    }
+
+    /**
+     * Stop accepting work and wait briefly for queued calls to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Fly DB executor did not finish within 10s; pending calls were dropped.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package io.github.mcengine.extension.addon.essential.fly.database;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-connection cache of parameterized {@link PreparedStatement}s for the Fly backends.
+ * <p>
+ * Each distinct SQL string is prepared once per connection and reused, so the server parses
+ * and plans it once instead of on every call. Use of a connection (and its statements) is
+ * serialized on the connection's monitor because JDBC statements are not thread-safe.
+ * When a call fails, the connection's statements are closed and dropped so the next call re-prepares.
+ */
+public class FlyStatementCache {
+
+    /**
+     * Number of UUIDs bound per bulk statement. Shorter chunks are padded by repeating the last UUID,
+     * so every bulk statement has exactly this many placeholders and is prepared only once.
+     */
+    public static final int BULK_CHUNK = 100;
+
+    /** Next rows of a {@code fly} table still keyed by text UUIDs, in lower-cased text order. */
+    private static final String SQL_SCAN_TEXT_KEYS = "SELECT player_uuid, fly_duration FROM fly " +
+        "WHERE LOWER(player_uuid) > ? ORDER BY LOWER(player_uuid) LIMIT ?";
+
+    /** Source of connections. */
+    private final FlyConnectionProvider connections;
+
+    /** Prepared statements by connection, then by SQL text. Guarded by itself. */
+    private final Map<Connection, Map<String, PreparedStatement>> cache = new WeakHashMap<>();
+
+    /** Calls that failed with an {@link SQLException} (including failures to obtain a connection). */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Create a statement cache over the given connection source.
+     *
+     * @param connections Source of connections.
+     */
+    public FlyStatementCache(FlyConnectionProvider connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Work to run with a prepared statement.
+     */
+    @FunctionalInterface
+    public interface StatementCallback<T> {
+        T apply(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * Work to run with a raw connection (e.g., several statements in one transaction).
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T apply(Connection c) throws SQLException;
+    }
+
+    /**
+     * Run {@code callback} with the cached statement for {@code sql}, preparing it on first use.
+     *
+     * @param sql      Parameterized SQL.
+     * @param callback Work that binds parameters and executes the statement.
+     * @return The callback's result.
+     * @throws SQLException On any database error.
+     */
+    public <T> T with(String sql, StatementCallback<T> callback) throws SQLException {
+        return withConnection(c -> callback.apply(prepare(c, sql)));
+    }
+
+    /**
+     * Run {@code callback} with a connection held exclusively for the duration of the call.
+     * Statements for the same connection may be obtained with {@link #prepare(Connection, String)}.
+     *
+     * @param callback Work to run.
+     * @return The callback's result.
+     * @throws SQLException On any database error.
+     */
+    public <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+        Connection c;
+        try {
+            c = connections.acquire();
+        } catch (SQLException e) {
+            failures.increment();
+            throw e;
+        }
+        try {
+            synchronized (c) {
+                try {
+                    return callback.apply(c);
+                } catch (SQLException e) {
+                    failures.increment();
+                    invalidate(c);
+                    throw e;
+                }
+            }
+        } finally {
+            connections.release(c);
+        }
+    }
+
+    /**
+     * Whether the connections are used by Fly alone, so {@link #inTransaction(ConnectionCallback)} may be used.
+     */
+    public boolean ownsConnections() {
+        return connections.ownsConnections();
+    }
+
+    /**
+     * Run {@code callback} like {@link #withConnection(ConnectionCallback)}, inside one transaction: committed when
+     * it returns, rolled back when it throws. Auto-commit is restored afterwards.
+     *
+     * @param callback Work to run.
+     * @return The callback's result.
+     * @throws SQLException On any database error.
+     * @throws IllegalStateException If the connection is shared (see {@link #ownsConnections()}).
+     */
+    public <T> T inTransaction(ConnectionCallback<T> callback) throws SQLException {
+        if (!ownsConnections()) {
+            throw new IllegalStateException("Fly does not run transactions on the shared Essential connection.");
+        }
+        return withConnection(c -> {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                T result = callback.apply(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    c.rollback();
+                } catch (SQLException ignore) {}
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Run {@code callback} in one transaction when the connections are Fly's own, otherwise like
+     * {@link #withConnection(ConnectionCallback)} with each statement committed on its own. Only for work whose
+     * statements are each safe to keep (and to repeat) when a later one fails.
+     *
+     * @param callback Work to run.
+     * @return The callback's result.
+     * @throws SQLException On any database error.
+     */
+    public <T> T inTransactionIfOwned(ConnectionCallback<T> callback) throws SQLException {
+        return ownsConnections() ? inTransaction(callback) : withConnection(callback);
+    }
+
+    /**
+     * Execute a one-off data-changing statement without caching it.
+     *
+     * @param sql SQL to execute.
+     * @return Rows affected.
+     * @throws SQLException On any database error.
+     */
+    public int update(String sql) throws SQLException {
+        return withConnection(c -> {
+            try (Statement st = c.createStatement()) {
+                return st.executeUpdate(sql);
+            }
+        });
+    }
+
+    /**
+     * Number of calls that failed with an {@link SQLException} since creation.
+     */
+    public long failureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Execute a one-off statement (e.g., DDL) without caching it.
+     *
+     * @param sql SQL to execute.
+     * @throws SQLException On any database error.
+     */
+    public void execute(String sql) throws SQLException {
+        withConnection(c -> {
+            try (Statement st = c.createStatement()) {
+                st.execute(sql);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Whether {@code table} has a column named {@code column} (case-insensitive), for additive schema migrations.
+     * Reads the column list of an empty result, so no rows are touched.
+     *
+     * @param table  Table name (trusted, not user input).
+     * @param column Column name.
+     * @throws SQLException On any database error.
+     */
+    public boolean hasColumn(String table, String column) throws SQLException {
+        return withConnection(c -> {
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+                ResultSetMetaData meta = rs.getMetaData();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    if (column.equalsIgnoreCase(meta.getColumnName(i))) return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * {@link FlyDB#scan} for a {@code fly} table still in its pre-migration layout (surrogate {@code fly_id} plus a
+     * text {@code player_uuid}), read as it is so a migration source is never rewritten. Keys that are not canonical
+     * UUIDs are skipped, as the schema migrations drop them; pages follow the lower-cased text, which
+     * {@code after.toString()} continues from.
+     *
+     * @param after Last UUID of the previous page, or {@code null} for the first page.
+     * @return the page; shorter than {@code limit} only once the end is reached.
+     * @throws SQLException On any database error.
+     */
+    public List<FlyDB.Row> scanTextKeys(UUID after, int limit) throws SQLException {
+        List<FlyDB.Row> rows = new ArrayList<>(Math.max(0, limit));
+        // Last key read, valid or not: skipped keys must not be read again
+        String[] cursor = {after == null ? "" : after.toString()};
+        while (rows.size() < limit) {
+            int want = limit - rows.size();
+            int read = with(SQL_SCAN_TEXT_KEYS, ps -> {
+                ps.setString(1, cursor[0]);
+                ps.setInt(2, want);
+                int n = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        n++;
+                        String key = rs.getString(1).toLowerCase(Locale.ROOT);
+                        cursor[0] = key;
+                        try {
+                            UUID uuid = UUID.fromString(key);
+                            if (uuid.toString().equals(key)) rows.add(new FlyDB.Row(uuid, rs.getInt(2)));
+                        } catch (IllegalArgumentException ignore) {}
+                    }
+                }
+                return n;
+            });
+            if (read < want) break;
+        }
+        return rows;
+    }
+
+    /**
+     * Return the cached statement for {@code sql} on {@code c}, preparing it when missing or closed.
+     * New statements get the connection source's {@link FlyConnectionProvider#queryTimeoutSeconds() query timeout};
+     * one-off schema statements do not, since migrations may legitimately run long. Callers must hold the
+     * connection's monitor (see {@link #withConnection(ConnectionCallback)}).
+     *
+     * @param c   Connection the statement belongs to.
+     * @param sql Parameterized SQL.
+     * @return A ready-to-bind statement (parameters cleared).
+     * @throws SQLException If preparing fails.
+     */
+    public PreparedStatement prepare(Connection c, String sql) throws SQLException {
+        Map<String, PreparedStatement> bySql;
+        synchronized (cache) {
+            bySql = cache.computeIfAbsent(c, k -> new HashMap<>());
+        }
+        PreparedStatement ps = bySql.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = c.prepareStatement(sql);
+            int timeout = connections.queryTimeoutSeconds();
+            if (timeout > 0) ps.setQueryTimeout(timeout);
+            bySql.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    /**
+     * Close and forget every statement cached for {@code c}.
+     */
+    public void invalidate(Connection c) {
+        Map<String, PreparedStatement> bySql;
+        synchronized (cache) {
+            bySql = cache.remove(c);
+        }
+        closeAll(bySql);
+    }
+
+    /**
+     * Close and forget every cached statement, then close the connection source.
+     */
+    public void close() {
+        synchronized (cache) {
+            for (Map<String, PreparedStatement> bySql : cache.values()) {
+                closeAll(bySql);
+            }
+            cache.clear();
+        }
+        connections.close();
+    }
+
+    /**
+     * Build a comma-separated list of {@code count} placeholders, e.g. {@code ?, ?, ?}.
+     */
+    public static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Build a comma-separated list of {@code count} copies of a {@code VALUES} row, e.g. {@code (?, 0), (?, 0)}.
+     */
+    public static String rows(int count, String row) {
+        StringBuilder sb = new StringBuilder(count * (row.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(row);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The 16 bytes of a UUID (most significant half first), as stored in binary key columns.
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Read a UUID back from {@link #toBytes(UUID)} form.
+     *
+     * @throws IllegalArgumentException If {@code bytes} is not exactly 16 bytes (e.g. a text key from an older schema).
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("expected a 16-byte UUID, got " + (bytes == null ? "null" : bytes.length + " bytes"));
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
+    /** Close statements quietly. */
+    private static void closeAll(Map<String, PreparedStatement> bySql) {
+        if (bySql == null) return;
+        for (PreparedStatement ps : bySql.values()) {
+            try {
+                ps.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+}
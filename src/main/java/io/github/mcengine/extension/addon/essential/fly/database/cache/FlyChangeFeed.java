@@ -0,0 +1,297 @@
+package io.github.mcengine.extension.addon.essential.fly.database.cache;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Cross-server cache invalidation through the backend's {@code fly_changes} table.
+ * <p>
+ * Sits between {@link FlyDBCache} and the backend:
+ * <ul>
+ *   <li><b>Publish</b>: every grant or absolute set that reaches the backend (directly, or as a cache flush)
+ *       appends a change-feed row tagged with this server's id; a grant to every player appends a single {@link #ALL}
+ *       row. Charges are not published: a player is only charged by the server they are on, which is the one caching
+ *       them.</li>
+ *   <li><b>Consume</b>: a timer polls {@code version > cursor} for rows from other servers and
+ *       {@link FlyDBCache#refresh(UUID) refreshes} just those players if they are cached here.</li>
+ * </ul>
+ * Feed versions come from an auto-increment column, and on MySQL/PostgreSQL a lower version can commit after a higher
+ * one. Each poll therefore re-reads a window of {@link #GAP_WINDOW} versions below the cursor and skips versions it has
+ * already applied, so a late commit inside the window is still seen.
+ */
+public class FlyChangeFeed implements FlyDB {
+
+    /** Feed row meaning "every player changed" ({@link #addDurationAll(int)}). */
+    public static final UUID ALL = new UUID(0L, 0L);
+
+    /** Versions below the cursor re-read on each poll to catch late commits. */
+    private static final long GAP_WINDOW = 1_000L;
+
+    /** Maximum rows read per poll. */
+    private static final int POLL_LIMIT = 5_000;
+
+    /** How long feed rows are kept before pruning (millis). */
+    private static final long RETENTION_MILLIS = 10L * 60L * 1000L;
+
+    /** Polls between prunes. */
+    private static final int PRUNE_EVERY = 100;
+
+    /** Logger for diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Backend that stores durations and the feed. */
+    private final FlyDB delegate;
+
+    /** This server's id; rows with this origin are ours and never applied. */
+    private final String origin;
+
+    /** Versions applied within the gap window (guarded by {@code this}). */
+    private final TreeSet<Long> applied = new TreeSet<>();
+
+    /** Highest version applied (guarded by {@code this}). */
+    private long cursor;
+
+    /** Polls since the last prune (guarded by {@code this}). */
+    private int pollsSincePrune;
+
+    /** Cache refreshed by polling; null until {@link #start}. */
+    private FlyDBCache cache;
+
+    /** Periodic poll task; null until {@link #start}. */
+    private FlyScheduler.Task pollTask;
+
+    /**
+     * Wrap a backend so writes are published to the change feed.
+     *
+     * @param logger   Logger for diagnostics.
+     * @param delegate Backend storing durations and the feed.
+     * @param origin   This server's id.
+     */
+    public FlyChangeFeed(MCEngineExtensionLogger logger, FlyDB delegate, String origin) {
+        this.logger = logger;
+        this.delegate = delegate;
+        this.origin = origin;
+    }
+
+    /**
+     * Start polling from the feed's current head (older rows cannot concern a cache that was just created).
+     *
+     * @param scheduler       Scheduler for the poll timer.
+     * @param cache           Cache to refresh.
+     * @param intervalSeconds Seconds between polls (minimum 1).
+     */
+    public void start(FlyScheduler scheduler, FlyDBCache cache, long intervalSeconds) {
+        this.cache = cache;
+        synchronized (this) {
+            cursor = delegate.latestChangeVersion();
+        }
+        long ticks = Math.max(1L, intervalSeconds) * 20L;
+        pollTask = scheduler.runAsyncTimer(this::poll, ticks, ticks);
+    }
+
+    /**
+     * Apply other servers' changes since the last poll.
+     *
+     * @return Number of cached players refreshed.
+     */
+    public synchronized int poll() {
+        if (cache == null) return 0;
+        long from = Math.max(0L, cursor - GAP_WINDOW);
+        List<Change> changes = delegate.changesSince(from, origin, POLL_LIMIT);
+
+        Set<UUID> touched = new LinkedHashSet<>();
+        for (Change c : changes) {
+            if (!applied.add(c.version())) continue;
+            touched.add(c.uuid());
+            if (c.version() > cursor) cursor = c.version();
+        }
+        // Forget versions that fell out of the window
+        applied.headSet(cursor - GAP_WINDOW, true).clear();
+        if (touched.remove(ALL)) {
+            // Everyone changed: refresh every cached player instead
+            touched.clear();
+            touched.addAll(cache.cachedPlayers());
+        }
+
+        int refreshed = 0;
+        for (UUID uuid : touched) {
+            if (cache.refresh(uuid)) refreshed++;
+        }
+
+        if (++pollsSincePrune >= PRUNE_EVERY) {
+            pollsSincePrune = 0;
+            delegate.pruneChanges(System.currentTimeMillis() - RETENTION_MILLIS);
+        }
+        return refreshed;
+    }
+
+    /** Publish a change to one player's stored duration. */
+    private void publish(UUID uuid) {
+        publish(Collections.singletonList(uuid));
+    }
+
+    /** Publish a change to several players' stored durations. */
+    private void publish(Collection<UUID> uuids) {
+        try {
+            delegate.recordChanges(uuids, origin);
+        } catch (RuntimeException e) {
+            logger.warning("Fly change feed publish error for " + uuids.size() + " player(s): " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void ensureSchema() {
+        delegate.ensureSchema();
+    }
+
+    @Override
+    public void ensurePlayerRow(UUID uuid) {
+        delegate.ensurePlayerRow(uuid);
+    }
+
+    @Override
+    public int getDuration(UUID uuid) {
+        return delegate.getDuration(uuid);
+    }
+
+    @Override
+    public boolean setDuration(UUID uuid, int seconds) {
+        boolean stored = delegate.setDuration(uuid, seconds);
+        if (stored) publish(uuid);
+        return stored;
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        int updated = delegate.addDuration(uuid, seconds);
+        if (updated >= 0) publish(uuid);
+        return updated;
+    }
+
+    @Override
+    public int decrementDuration(UUID uuid, int seconds) {
+        return delegate.decrementDuration(uuid, seconds);
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        return delegate.decrementDurations(uuids, seconds);
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = delegate.addDurations(uuids, seconds);
+        if (!updated.isEmpty()) publish(updated.keySet());
+        return updated;
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        int credited = delegate.addDurationAll(seconds);
+        if (credited > 0) publish(ALL);
+        return credited;
+    }
+
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        return delegate.scan(after, limit);
+    }
+
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        Redemption result = delegate.redeemVouchers(uuid, vouchers);
+        if (result != null && result.granted() > 0) publish(uuid);
+        return result;
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        return delegate.isVoucherRedeemed(voucherId);
+    }
+
+    @Override
+    public void setDurations(List<Row> rows) {
+        delegate.setDurations(rows);
+        if (rows.isEmpty()) return;
+        List<UUID> uuids = new ArrayList<>(rows.size());
+        for (Row row : rows) uuids.add(row.uuid());
+        publish(uuids);
+    }
+
+    @Override
+    public int loadPlayer(UUID uuid) {
+        return delegate.loadPlayer(uuid);
+    }
+
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        return delegate.acquireLease(uuid, owner, token, ttlMillis);
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        delegate.renewLeases(tokens, ttlMillis);
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        return delegate.decrementLeased(tokens, seconds);
+    }
+
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        return delegate.releaseLease(uuid, token);
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        return delegate.leasedElsewhere(uuid, owner);
+    }
+
+    @Override
+    public void recordChanges(Collection<UUID> uuids, String origin) {
+        delegate.recordChanges(uuids, origin);
+    }
+
+    @Override
+    public long latestChangeVersion() {
+        return delegate.latestChangeVersion();
+    }
+
+    @Override
+    public List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        return delegate.changesSince(version, excludeOrigin, limit);
+    }
+
+    @Override
+    public void pruneChanges(long beforeMillis) {
+        delegate.pruneChanges(beforeMillis);
+    }
+
+    @Override
+    public long errorCount() {
+        return delegate.errorCount();
+    }
+
+    @Override
+    public void close() {
+        if (pollTask != null) {
+            try {
+                pollTask.cancel();
+            } catch (Throwable ignore) {}
+            pollTask = null;
+        }
+        delegate.close();
+    }
+}
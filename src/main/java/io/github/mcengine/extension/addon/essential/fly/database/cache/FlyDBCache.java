@@ -0,0 +1,660 @@
+package io.github.mcengine.extension.addon.essential.fly.database.cache;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind caching decorator for {@link FlyDB}.
+ * <p>
+ * Holds the remaining seconds of loaded (online) players in memory:
+ * <ul>
+ *   <li>Reads are served from memory after the first load.</li>
+ *   <li>Decrements, additions and sets are applied locally and marked dirty.</li>
+ *   <li>Dirty entries are flushed to the backing {@link FlyDB} in periodic asynchronous batches,
+ *       when a player is evicted (quit), and on {@link #stop()}.</li>
+ * </ul>
+ * <p>
+ * Each entry tracks the last value known to be in the database ({@code base}) and the local change
+ * not yet written ({@code pending}), so a flush only pushes the delta made on this server.
+ * Calls for players that are not cached go straight to the backend.
+ * When another server changes a cached player's stored value, {@link #refresh(UUID)} re-reads the base
+ * (driven by {@link FlyChangeFeed}).
+ * <p>
+ * With a {@link FlyJournal}, every local change (and every confirmed flush) is also recorded in the journal as the
+ * value the player should have, so unflushed changes survive a crash; a dirty entry whose base moves is journaled
+ * again, so its record never restores a superseded value. The journal is compacted after each {@link #flushAll()}.
+ */
+public class FlyDBCache implements FlyDB {
+
+    /** Logger for cache diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Backing database implementation. */
+    private final FlyDB delegate;
+
+    /** Cached entries by player UUID. */
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Crash journal for unflushed changes; null when journaling is off. */
+    private final FlyJournal journal;
+
+    /** Players cached only by {@link #adopt(UUID, int)}; dropped again once their value is written. */
+    private final Set<UUID> adopted = ConcurrentHashMap.newKeySet();
+
+    /** Serializes journal compaction between the flush timer and {@link #stop()}. */
+    private final Object checkpointLock = new Object();
+
+    /**
+     * Flushes hold the read lock; {@link #addDurationAll(int)} and {@link #redeemVouchers} take the write lock so no
+     * flush is in flight.
+     */
+    private final ReadWriteLock bulkLock = new ReentrantReadWriteLock();
+
+    /** Periodic asynchronous flush task; null until {@link #start(FlyScheduler, long)}. */
+    private FlyScheduler.Task flushTask;
+
+    /**
+     * Wrap a backend with a write-behind cache.
+     *
+     * @param logger   Logger for diagnostics.
+     * @param delegate Backing database implementation.
+     */
+    public FlyDBCache(MCEngineExtensionLogger logger, FlyDB delegate) {
+        this(logger, delegate, null);
+    }
+
+    /**
+     * Wrap a backend with a write-behind cache whose unflushed changes are journaled.
+     *
+     * @param logger   Logger for diagnostics.
+     * @param delegate Backing database implementation.
+     * @param journal  Crash journal, already replayed (see {@link FlyJournal#replay(FlyDB, String)}); null disables journaling.
+     */
+    public FlyDBCache(MCEngineExtensionLogger logger, FlyDB delegate, FlyJournal journal) {
+        this.logger = logger;
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    /**
+     * Start the periodic asynchronous flush.
+     *
+     * @param scheduler       Scheduler for the flush timer.
+     * @param intervalSeconds Seconds between flushes (minimum 1).
+     */
+    public void start(FlyScheduler scheduler, long intervalSeconds) {
+        long ticks = Math.max(1L, intervalSeconds) * 20L;
+        flushTask = scheduler.runAsyncTimer(this::flushAll, ticks, ticks);
+    }
+
+    /**
+     * Stop the periodic flush and synchronously write every dirty entry.
+     */
+    public void stop() {
+        if (flushTask != null) {
+            try {
+                flushTask.cancel();
+            } catch (Throwable ignore) {}
+            flushTask = null;
+        }
+        flushAll();
+    }
+
+    @Override
+    public void ensureSchema() {
+        delegate.ensureSchema();
+    }
+
+    @Override
+    public void ensurePlayerRow(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e != null) {
+            e.touch();
+            return;
+        }
+        delegate.ensurePlayerRow(uuid);
+        load(uuid);
+    }
+
+    @Override
+    public int loadPlayer(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e != null) {
+            e.touch();
+            synchronized (e) {
+                return e.value();
+            }
+        }
+        // Not cached: read through without caching; the joining player is seeded via prime()
+        return delegate.loadPlayer(uuid);
+    }
+
+    @Override
+    public void prime(UUID uuid, int seconds) {
+        if (seconds < 0) return;
+        entries.putIfAbsent(uuid, new Entry(seconds));
+    }
+
+    @Override
+    public int getDuration(UUID uuid) {
+        Entry e = load(uuid);
+        if (e == null) return -1;
+        synchronized (e) {
+            e.touched++;
+            return e.value();
+        }
+    }
+
+    @Override
+    public boolean setDuration(UUID uuid, int seconds) {
+        Entry e = entries.get(uuid);
+        if (e == null) {
+            return delegate.setDuration(uuid, seconds);
+        }
+        synchronized (e) {
+            e.pending = seconds - e.base;
+            e.absolute = true;
+            e.touched++;
+            journal(uuid, e);
+            return true;
+        }
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        Entry e = entries.get(uuid);
+        if (e == null) {
+            return delegate.addDuration(uuid, seconds);
+        }
+        synchronized (e) {
+            e.pending += seconds;
+            e.touched++;
+            journal(uuid, e);
+            return e.value();
+        }
+    }
+
+    @Override
+    public int decrementDuration(UUID uuid, int seconds) {
+        Entry e = entries.get(uuid);
+        if (e == null) {
+            return delegate.decrementDuration(uuid, seconds);
+        }
+        synchronized (e) {
+            int current = e.value();
+            // 0 stays 0; never take more than what is left so the flushed delta matches local state
+            int taken = Math.min(Math.max(0, seconds), current);
+            e.pending -= taken;
+            e.touched++;
+            if (taken > 0) journal(uuid, e);
+            return current - taken;
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(uuids.size() * 2);
+        List<UUID> uncached = null;
+        for (UUID uuid : uuids) {
+            if (entries.containsKey(uuid)) {
+                remaining.put(uuid, decrementDuration(uuid, seconds));
+            } else {
+                if (uncached == null) uncached = new ArrayList<>();
+                uncached.add(uuid);
+            }
+        }
+        if (uncached != null) {
+            remaining.putAll(delegate.decrementDurations(uncached, seconds));
+        }
+        return remaining;
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = new HashMap<>(uuids.size() * 2);
+        List<UUID> uncached = null;
+        for (UUID uuid : uuids) {
+            if (updated.containsKey(uuid)) continue;
+            if (entries.containsKey(uuid)) {
+                updated.put(uuid, addDuration(uuid, seconds));
+            } else {
+                if (uncached == null) uncached = new ArrayList<>();
+                uncached.add(uuid);
+            }
+        }
+        if (uncached != null) {
+            updated.putAll(delegate.addDurations(uncached, seconds));
+        }
+        return updated;
+    }
+
+    /**
+     * Pages come from the backend, with cached players' values (including unflushed changes) in place of stored ones.
+     */
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        List<Row> rows = delegate.scan(after, limit);
+        for (int i = 0; i < rows.size(); i++) {
+            Entry e = entries.get(rows.get(i).uuid());
+            if (e == null) continue;
+            synchronized (e) {
+                rows.set(i, new Row(rows.get(i).uuid(), e.value()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Cached players take the value locally (written behind like {@link #setDuration}); the rest go to the backend
+     * as one batch.
+     */
+    @Override
+    public void setDurations(List<Row> rows) {
+        List<Row> uncached = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (entries.containsKey(row.uuid())) {
+                setDuration(row.uuid(), row.seconds());
+            } else {
+                uncached.add(row);
+            }
+        }
+        if (!uncached.isEmpty()) delegate.setDurations(uncached);
+    }
+
+    /**
+     * Credit every stored player at the backend, then move the cached values by the same amount.
+     * <p>
+     * Flushes are held off meanwhile, so no cached base can be replaced by a value read before (or after)
+     * the bulk update. A pending absolute value is raised too: it overwrites the stored one when flushed.
+     */
+    @Override
+    public int addDurationAll(int seconds) {
+        bulkLock.writeLock().lock();
+        try {
+            int credited = delegate.addDurationAll(seconds);
+            if (credited <= 0) return credited;
+            for (Map.Entry<UUID, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                synchronized (e) {
+                    if (e.absolute) {
+                        e.pending += seconds;
+                        journal(me.getKey(), e);
+                    } else {
+                        e.base += seconds;
+                        if (e.isDirty()) journal(me.getKey(), e);
+                    }
+                    e.touched++;
+                }
+            }
+            return credited;
+        } finally {
+            bulkLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Redeem at the backend directly: the claims and the grant must commit together, so neither is written behind.
+     * The committed grant then moves the cached value like {@link #addDurationAll(int)} does, with flushes held off
+     * so no cached base is replaced by a value read before the redemption.
+     */
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        bulkLock.writeLock().lock();
+        try {
+            Redemption result = delegate.redeemVouchers(uuid, vouchers);
+            if (result == null || result.granted() <= 0) return result;
+            Entry e = entries.get(uuid);
+            if (e == null) return result;
+            synchronized (e) {
+                if (e.absolute) {
+                    // The pending absolute value overwrites the stored one when flushed; keep the grant in it
+                    e.pending += result.granted();
+                    journal(uuid, e);
+                } else {
+                    e.base = Math.max(0, result.remaining());
+                    if (e.isDirty()) journal(uuid, e);
+                }
+                e.touched++;
+                return new Redemption(result.duplicates(), result.granted(), e.value());
+            }
+        } finally {
+            bulkLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        return delegate.isVoucherRedeemed(voucherId);
+    }
+
+    /**
+     * Take the lease at the backend, then refresh the cached base from it: the value cached before the lease was
+     * taken (e.g., primed at login) may predate the previous server's final charge.
+     */
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        if (!delegate.acquireLease(uuid, owner, token, ttlMillis)) return false;
+        Entry e = entries.get(uuid);
+        if (e != null) {
+            int fresh = delegate.getDuration(uuid);
+            // On a read error the cached base stays; the lease is held either way
+            if (fresh < 0) return true;
+            synchronized (e) {
+                if (!e.absolute && !e.absoluteInFlight) {
+                    e.base = fresh;
+                    if (e.isDirty()) journal(uuid, e);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        delegate.renewLeases(tokens, ttlMillis);
+    }
+
+    /**
+     * Fenced charges bypass write-behind: they go straight to the backend, and the returned value becomes the
+     * cached base. Local changes still pending (grants) are kept on top of it.
+     */
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        Map<UUID, Integer> remaining = delegate.decrementLeased(tokens, seconds);
+        for (Map.Entry<UUID, Integer> me : remaining.entrySet()) {
+            if (me.getValue() == LEASE_LOST) continue;
+            Entry e = entries.get(me.getKey());
+            if (e == null) continue;
+            synchronized (e) {
+                if (e.absolute || e.absoluteInFlight) continue;
+                e.base = Math.max(0, me.getValue());
+                e.touched++;
+                if (e.isDirty()) journal(me.getKey(), e);
+                me.setValue(e.value());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Write the player's pending changes before handing the lease off, so the next server reads them.
+     */
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        Entry e = entries.get(uuid);
+        if (e != null) flush(uuid, e);
+        return delegate.releaseLease(uuid, token);
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        return delegate.leasedElsewhere(uuid, owner);
+    }
+
+    /**
+     * Take over a value the journal replay could not write (see {@link FlyJournal.Replay#retained()}): it is cached
+     * as a pending absolute change, so every flush retries it and the journal keeps it until it is written.
+     *
+     * @param uuid    Player.
+     * @param seconds Duration the player should have.
+     */
+    public void adopt(UUID uuid, int seconds) {
+        Entry e = entries.computeIfAbsent(uuid, k -> new Entry(0));
+        synchronized (e) {
+            e.pending = seconds - e.base;
+            e.absolute = true;
+            e.touched++;
+            journal(uuid, e);
+        }
+        adopted.add(uuid);
+    }
+
+    /**
+     * Re-read a cached player's stored duration after another server changed it (see {@link FlyChangeFeed}).
+     * The local pending change is kept on top of the fresh value. Uncached players, entries about to overwrite the
+     * stored value outright, and entries flushed while the value was being read are left alone (a flush already
+     * sets the base from the backend).
+     *
+     * @param uuid Player.
+     * @return true if a cached entry was refreshed.
+     */
+    public boolean refresh(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e == null) return false;
+        long flushes;
+        synchronized (e) {
+            if (e.flushing) return false;
+            flushes = e.flushes;
+        }
+        int fresh = delegate.getDuration(uuid);
+        if (fresh < 0) return false;
+        synchronized (e) {
+            if (e.absolute || e.absoluteInFlight || e.flushing || e.flushes != flushes) return false;
+            e.base = fresh;
+            e.touched++;
+            if (e.isDirty()) journal(uuid, e);
+        }
+        return true;
+    }
+
+    /**
+     * Players currently cached.
+     */
+    public List<UUID> cachedPlayers() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    @Override
+    public void evict(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e == null) return;
+        long touched;
+        synchronized (e) {
+            touched = e.touched;
+        }
+        flush(uuid, e);
+        // Only drop the entry if nothing used it while we were writing (e.g., a quick rejoin)
+        synchronized (e) {
+            if (e.touched == touched && !e.isDirty()) {
+                entries.remove(uuid, e);
+            }
+        }
+    }
+
+    @Override
+    public long errorCount() {
+        return delegate.errorCount();
+    }
+
+    @Override
+    public void close() {
+        if (journal != null) journal.close();
+        delegate.close();
+    }
+
+    /**
+     * Write every dirty entry to the backend, then compact the journal.
+     */
+    public void flushAll() {
+        for (Map.Entry<UUID, Entry> me : entries.entrySet()) {
+            flush(me.getKey(), me.getValue());
+        }
+        for (UUID uuid : adopted) {
+            // Recovered values of players who are not here: nothing to keep once written
+            evict(uuid);
+            if (!entries.containsKey(uuid)) adopted.remove(uuid);
+        }
+        if (journal != null) checkpoint();
+    }
+
+    /**
+     * Replace the journal's contents with the current state of every cached entry.
+     * <p>
+     * Clean entries are written too (as "nothing pending"), so they supersede any stale record in the
+     * segment being retired if the server crashes before {@link FlyJournal#retire()}.
+     */
+    private void checkpoint() {
+        synchronized (checkpointLock) {
+            journal.rotate();
+            for (Map.Entry<UUID, Entry> me : entries.entrySet()) {
+                Entry e = me.getValue();
+                synchronized (e) {
+                    journal(me.getKey(), e);
+                }
+            }
+            journal.retire();
+        }
+    }
+
+    /**
+     * Record the value an entry should have in the journal, and whether the backend may not have it yet. Caller
+     * holds the entry's monitor, so records for one player reach the journal in the same order as the changes they
+     * describe.
+     */
+    private void journal(UUID uuid, Entry e) {
+        if (journal == null) return;
+        journal.append(uuid, e.isDirty() || e.absoluteInFlight, e.value());
+    }
+
+    /**
+     * Return the cached entry, loading it from the backend on a miss ({@code null} if that read failed; nothing is
+     * cached then, so the next call retries).
+     */
+    private Entry load(UUID uuid) {
+        Entry e = entries.get(uuid);
+        if (e != null) return e;
+        int base = delegate.getDuration(uuid);
+        if (base < 0) return null;
+        Entry loaded = new Entry(base);
+        Entry raced = entries.putIfAbsent(uuid, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    /**
+     * Write one entry's pending change to the backend.
+     * <p>
+     * Changes made while the write is in flight stay pending for the next flush.
+     */
+    private void flush(UUID uuid, Entry e) {
+        bulkLock.readLock().lock();
+        try {
+            flushLocked(uuid, e);
+        } finally {
+            bulkLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@link #flush(UUID, Entry)} body; caller holds the read side of {@link #bulkLock}.
+     */
+    private void flushLocked(UUID uuid, Entry e) {
+        int delta;
+        int target;
+        boolean absolute;
+        synchronized (e) {
+            if (!e.isDirty()) return;
+            delta = e.pending;
+            absolute = e.absolute;
+            target = e.value();
+            e.absolute = false;
+            e.absoluteInFlight = absolute;
+            e.flushing = true;
+        }
+
+        int newBase;
+        String error = null;
+        try {
+            if (absolute) {
+                newBase = delegate.setDuration(uuid, target) ? target : -1;
+            } else if (delta > 0) {
+                // Net grant: increment atomically so concurrent writers on other servers are kept
+                newBase = delegate.addDuration(uuid, delta);
+            } else {
+                newBase = delegate.decrementDuration(uuid, -delta);
+            }
+            if (newBase < 0) error = "database write failed";
+        } catch (Exception ex) {
+            newBase = -1;
+            error = ex.getMessage();
+        }
+        if (error != null) {
+            // Nothing was stored: keep the change pending (and journaled dirty) so the next flush retries it
+            synchronized (e) {
+                if (absolute) e.absolute = true;
+                e.absoluteInFlight = false;
+                e.flushing = false;
+                e.flushes++;
+            }
+            logger.warning("Fly cache flush error for " + uuid + ": " + error);
+            return;
+        }
+
+        synchronized (e) {
+            e.base = newBase;
+            e.pending -= delta;
+            e.absoluteInFlight = false;
+            e.flushing = false;
+            e.flushes++;
+            // Confirmed: what is left pending supersedes the journaled pre-flush state
+            journal(uuid, e);
+        }
+    }
+
+    /**
+     * Cached duration state for one player. Guarded by its own monitor.
+     */
+    private static final class Entry {
+
+        /** Last value known to be stored in the backend. */
+        private int base;
+
+        /** Local change not yet written to the backend. */
+        private int pending;
+
+        /** True when the local value was set outright and must overwrite the backend. */
+        private boolean absolute;
+
+        /** True while an absolute write is in flight; journaled changes stay absolute until it is confirmed. */
+        private boolean absoluteInFlight;
+
+        /** True while any write of this entry is in flight. */
+        private boolean flushing;
+
+        /** Completed (or failed) writes; lets {@link #refresh(UUID)} detect a flush racing its read. */
+        private long flushes;
+
+        /** Incremented on each local change; lets eviction detect concurrent use. */
+        private long touched;
+
+        private Entry(int base) {
+            this.base = base;
+        }
+
+        /** Record a use without changing the value. */
+        private synchronized void touch() {
+            touched++;
+        }
+
+        /** Current remaining seconds (never negative). */
+        private int value() {
+            return Math.max(0, base + pending);
+        }
+
+        /** Whether this entry has changes the backend has not seen. */
+        private boolean isDirty() {
+            return pending != 0 || absolute;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.github.mcengine.extension.addon.essential.fly.database.cache;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Crash journal for the unflushed changes held by {@link FlyDBCache}.
+ * <p>
+ * Format:
+ * <ul>
+ *   <li>Two memory-mapped segment files ({@code fly-journal-0.dat}, {@code fly-journal-1.dat}), each starting with a
+ *       header (magic, version, sequence number) followed by fixed-size records.</li>
+ *   <li>A record holds the duration a player should have and whether the backend may not have it yet, never an
+ *       increment: replay keeps only the last record per player and sets that value, so replaying a record twice
+ *       (a crash during replay, or after a flush that committed before its confirming record) is harmless.</li>
+ *   <li>Each record carries a checksum mixed with its segment's sequence number; the first record that does not
+ *       verify (torn write, zeroed space, or leftovers from an older generation) ends the segment.</li>
+ * </ul>
+ * <p>
+ * Appending is a write into the mapping, so a change survives a process crash without a database round trip
+ * (the OS still holds the dirty pages). {@link #force()} additionally pushes them to disk.
+ * <p>
+ * Replay writes values outright. With leases, it skips players whose lease another server has taken since; without
+ * them, a change another server made to a player with a pending record here, after this server last journaled it,
+ * is overwritten by the crash recovery. Values the backend does not confirm are journaled again and handed to the
+ * cache, so a database outage at startup loses nothing.
+ * <p>
+ * Compaction ("truncate after flush") is {@link #rotate()}, re-appending every cached player's current state,
+ * then {@link #retire()}: until the old segment is retired, replay reads old then new, so a crash mid-compaction
+ * still sees every change.
+ */
+public class FlyJournal {
+
+    /** Segment header magic ("FLYJ"). */
+    private static final int MAGIC = 0x464C594A;
+
+    /** Segment format version; segments with any other version are ignored. */
+    private static final int VERSION = 2;
+
+    /** Header bytes: magic (4), version (4), sequence (8). */
+    private static final int HEADER = 16;
+
+    /** Record bytes: msb (8), lsb (8), value (4), flags (4), check (8). */
+    private static final int RECORD = 32;
+
+    /** Initial mapped size per segment; doubled when full. */
+    private static final int INITIAL_SIZE = 256 * 1024;
+
+    /** Record flag: the backend may not hold {@code value} yet; replay writes it. Unset = nothing pending. */
+    private static final int FLAG_DIRTY = 1;
+
+    /**
+     * Outcome of {@link #replay(FlyDB, String)}.
+     *
+     * @param replayed Players whose value was written to the backend.
+     * @param skipped  Players left alone because another server has taken their lease since.
+     * @param retained Values the backend did not confirm, by player; journaled again, for
+     *                 {@link FlyDBCache#adopt(UUID, int)} to keep retrying.
+     */
+    public record Replay(int replayed, int skipped, Map<UUID, Integer> retained) {}
+
+    /** Logger for diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Segment files. */
+    private final RandomAccessFile[] files = new RandomAccessFile[2];
+
+    /** Current mapping of each segment. */
+    private final MappedByteBuffer[] maps = new MappedByteBuffer[2];
+
+    /** Segment receiving appends. */
+    private int active;
+
+    /** Sequence number of the active segment. */
+    private long sequence;
+
+    /** Next write offset in the active segment. */
+    private int position = HEADER;
+
+    /** Set after an I/O failure; further appends are dropped (the cache still flushes normally). */
+    private boolean broken;
+
+    /**
+     * Open (or create) the journal segments in {@code dir}.
+     *
+     * @param dir    Folder holding the segment files.
+     * @param logger Logger for diagnostics.
+     * @throws IOException If the files cannot be created or mapped.
+     */
+    public FlyJournal(File dir, MCEngineExtensionLogger logger) throws IOException {
+        this.logger = logger;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create journal directory: " + dir.getAbsolutePath());
+        }
+        for (int i = 0; i < 2; i++) {
+            files[i] = new RandomAccessFile(new File(dir, "fly-journal-" + i + ".dat"), "rw");
+            maps[i] = map(i, Math.max(INITIAL_SIZE, (int) Math.min(Integer.MAX_VALUE, files[i].length())));
+        }
+    }
+
+    /**
+     * Apply the changes left by a previous run to {@code target}, then start a fresh journal holding only the
+     * values that could not be written. Must run before the cache serves any player.
+     *
+     * @param target     Backend to write the recovered changes to.
+     * @param leaseOwner This server's lease id, or null when leases are off.
+     * @return What was written, skipped and retained.
+     */
+    public synchronized Replay replay(FlyDB target, String leaseOwner) {
+        long[] seqs = {header(0), header(1)};
+        Map<UUID, int[]> latest = new LinkedHashMap<>();
+        // Older segment first so the newer one's records win
+        int first = seqs[0] <= seqs[1] ? 0 : 1;
+        for (int i : new int[]{first, 1 - first}) {
+            if (seqs[i] < 0) continue;
+            MappedByteBuffer m = maps[i];
+            for (int pos = HEADER; pos + RECORD <= m.capacity(); pos += RECORD) {
+                long msb = m.getLong(pos);
+                long lsb = m.getLong(pos + 8);
+                int value = m.getInt(pos + 16);
+                int flags = m.getInt(pos + 20);
+                if (m.getLong(pos + 24) != check(seqs[i], msb, lsb, value, flags)) break;
+                latest.put(new UUID(msb, lsb), new int[]{flags, value});
+            }
+        }
+
+        int replayed = 0;
+        int skipped = 0;
+        Map<UUID, Integer> retained = new LinkedHashMap<>();
+        for (Map.Entry<UUID, int[]> e : latest.entrySet()) {
+            if ((e.getValue()[0] & FLAG_DIRTY) == 0) continue;
+            UUID uuid = e.getKey();
+            int value = Math.max(0, e.getValue()[1]);
+            try {
+                if (leaseOwner != null && target.leasedElsewhere(uuid, leaseOwner)) {
+                    skipped++;
+                    continue;
+                }
+                if (target.setDuration(uuid, value)) {
+                    replayed++;
+                    continue;
+                }
+            } catch (RuntimeException ex) {
+                logger.warning("Fly journal replay error for " + uuid + ": " + ex.getMessage());
+            }
+            retained.put(uuid, value);
+        }
+
+        // Restart on segment 0 with a sequence above both old ones, carrying over what the backend did not confirm
+        sequence = Math.max(0, Math.max(seqs[0], seqs[1])) + 1;
+        active = 0;
+        position = HEADER;
+        writeHeader(0, sequence);
+        for (Map.Entry<UUID, Integer> e : retained.entrySet()) {
+            append(e.getKey(), true, e.getValue());
+        }
+        invalidate(1);
+        force();
+        return new Replay(replayed, skipped, retained);
+    }
+
+    /**
+     * Record a player's current state.
+     *
+     * @param uuid  Player.
+     * @param dirty {@code true} if the backend may not hold {@code value} yet; {@code false} if nothing is pending.
+     * @param value Duration the player should have.
+     */
+    public synchronized void append(UUID uuid, boolean dirty, int value) {
+        if (broken) return;
+        if (position + RECORD > maps[active].capacity()) {
+            try {
+                maps[active] = map(active, maps[active].capacity() * 2);
+            } catch (IOException e) {
+                broken = true;
+                logger.warning("Fly journal could not grow, journaling disabled: " + e.getMessage());
+                return;
+            }
+        }
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int flags = dirty ? FLAG_DIRTY : 0;
+        MappedByteBuffer m = maps[active];
+        m.putLong(position, msb);
+        m.putLong(position + 8, lsb);
+        m.putInt(position + 16, value);
+        m.putInt(position + 20, flags);
+        // Check last, so a record torn before this point never verifies
+        m.putLong(position + 24, check(sequence, msb, lsb, value, flags));
+        position += RECORD;
+    }
+
+    /**
+     * Start appending to the other segment under a new sequence number; the current one stays valid
+     * until {@link #retire()}.
+     */
+    public synchronized void rotate() {
+        if (broken) return;
+        active = 1 - active;
+        sequence++;
+        position = HEADER;
+        writeHeader(active, sequence);
+    }
+
+    /**
+     * Invalidate the segment left behind by {@link #rotate()} and push everything to disk.
+     */
+    public synchronized void retire() {
+        if (broken) return;
+        invalidate(1 - active);
+        force();
+    }
+
+    /**
+     * Flush the mapped pages to the storage device.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer m : maps) {
+            if (m != null) m.force();
+        }
+    }
+
+    /**
+     * Force and close the segment files.
+     */
+    public synchronized void close() {
+        force();
+        for (RandomAccessFile f : files) {
+            try {
+                if (f != null) f.close();
+            } catch (IOException ignore) {}
+        }
+        broken = true;
+    }
+
+    /** Sequence number of a segment, or {@code -1} if its header is not valid. */
+    private long header(int segment) {
+        MappedByteBuffer m = maps[segment];
+        if (m.getInt(0) != MAGIC || m.getInt(4) != VERSION) return -1;
+        return m.getLong(8);
+    }
+
+    /** Write a valid header. */
+    private void writeHeader(int segment, long seq) {
+        MappedByteBuffer m = maps[segment];
+        m.putLong(8, seq);
+        m.putInt(4, VERSION);
+        m.putInt(0, MAGIC);
+    }
+
+    /** Mark a segment as holding nothing. */
+    private void invalidate(int segment) {
+        maps[segment].putInt(0, 0);
+    }
+
+    /** Map {@code size} bytes of a segment read-write (extending the file if needed). */
+    private MappedByteBuffer map(int segment, int size) throws IOException {
+        return files[segment].getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /** Record checksum; mixing in the sequence rejects records from older generations of the segment. */
+    private static long check(long seq, long msb, long lsb, int value, int flags) {
+        long h = (seq + 0x632BE59BD9B4E019L) * 0x9E3779B97F4A7C15L;
+        h = (h ^ msb) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ lsb) * 0x94D049BB133111EBL;
+        h = (h ^ (((long) value << 32) | (flags & 0xFFFFFFFFL))) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+}
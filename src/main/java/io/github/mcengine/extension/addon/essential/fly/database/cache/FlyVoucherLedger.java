@@ -0,0 +1,137 @@
+package io.github.mcengine.extension.addon.essential.fly.database.cache;
+
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory front for the redeemed-voucher ledger ({@link FlyDB#redeemVouchers}).
+ * <p>
+ * A Bloom filter remembers the voucher ids this server has seen redeemed, and a small LRU holds the most recent of
+ * them exactly. A fresh voucher (the overwhelmingly common case) misses the filter and goes straight to the
+ * transactional claim-and-grant, with no ledger read first; an id the filter may have seen is checked with a read,
+ * so a copy of a redeemed voucher is turned away without a write. The LRU lets the main thread reject repeated
+ * clicks with a known copy without any database call.
+ * <p>
+ * The ledger table stays the authority: the filter never rejects on its own (a false positive only costs a read),
+ * and ids redeemed on other servers are caught by the claim itself.
+ */
+public final class FlyVoucherLedger {
+
+    /** Bloom filter size in bits (128 KiB). */
+    private static final int BLOOM_BITS = 1 << 20;
+
+    /** Bit positions set per id. */
+    private static final int BLOOM_HASHES = 7;
+
+    /** Ids added before the filter is cleared (about 1% false positives at this fill). */
+    private static final int BLOOM_CAPACITY = 100_000;
+
+    /** Recently redeemed ids kept exactly. */
+    private static final int RECENT_SIZE = 1024;
+
+    /** Bloom filter bits. Guarded by {@code this}. */
+    private final long[] bloom = new long[BLOOM_BITS / 64];
+
+    /** Ids added since the filter was last cleared. Guarded by {@code this}. */
+    private int bloomCount;
+
+    /** Most recently redeemed ids, eldest evicted first. Guarded by itself. */
+    private final Map<UUID, Boolean> recent = new LinkedHashMap<>(RECENT_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > RECENT_SIZE;
+        }
+    };
+
+    /**
+     * Whether {@code voucherId} is known, exactly, to have been redeemed recently. Safe on any thread; never touches
+     * the database, so a {@code false} answer proves nothing.
+     */
+    public boolean knownRedeemed(UUID voucherId) {
+        synchronized (recent) {
+            return recent.containsKey(voucherId);
+        }
+    }
+
+    /**
+     * Redeem vouchers for {@code uuid} with one {@link FlyDB#redeemVouchers} transaction, after turning away ids
+     * known (or read) to be redeemed already. Runs on the Fly I/O executor.
+     *
+     * @param db       Database holding the ledger and the durations.
+     * @param uuid     Redeeming player.
+     * @param vouchers Vouchers to redeem.
+     * @return The committed result (its duplicates include the ids turned away here), or {@code null} when the
+     *         database failed and nothing was claimed or granted.
+     */
+    public FlyDB.Redemption redeem(FlyDB db, UUID uuid, List<FlyDB.VoucherClaim> vouchers) {
+        Set<UUID> turnedAway = new HashSet<>();
+        List<FlyDB.VoucherClaim> fresh = new ArrayList<>(vouchers.size());
+        for (FlyDB.VoucherClaim v : vouchers) {
+            // Only ids the filter may have seen pay for a read; fresh ones go straight to the transaction
+            if (v.id() != null && (knownRedeemed(v.id()) || mightContain(v.id()) && db.isVoucherRedeemed(v.id()))) {
+                remember(v.id());
+                turnedAway.add(v.id());
+            } else {
+                fresh.add(v);
+            }
+        }
+
+        FlyDB.Redemption result = fresh.isEmpty()
+                ? new FlyDB.Redemption(new HashSet<>(), 0, -1)
+                : db.redeemVouchers(uuid, fresh);
+        if (result == null) return null;
+        for (FlyDB.VoucherClaim v : fresh) {
+            if (v.id() != null) remember(v.id());
+        }
+        if (turnedAway.isEmpty()) return result;
+        turnedAway.addAll(result.duplicates());
+        return new FlyDB.Redemption(turnedAway, result.granted(), result.remaining());
+    }
+
+    /** Record a redeemed id in the filter and the LRU. */
+    private void remember(UUID voucherId) {
+        synchronized (recent) {
+            recent.put(voucherId, Boolean.TRUE);
+        }
+        synchronized (this) {
+            if (bloomCount >= BLOOM_CAPACITY) {
+                // Saturated: start over rather than let false positives climb (the claim stays authoritative)
+                Arrays.fill(bloom, 0L);
+                bloomCount = 0;
+            }
+            long h1 = mix(voucherId.getMostSignificantBits());
+            long h2 = mix(voucherId.getLeastSignificantBits()) | 1L;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (int) ((h1 + i * h2) & (BLOOM_BITS - 1));
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+            bloomCount++;
+        }
+    }
+
+    /** Whether the filter may contain {@code voucherId} ({@code false} means it certainly does not). */
+    private synchronized boolean mightContain(UUID voucherId) {
+        long h1 = mix(voucherId.getMostSignificantBits());
+        long h2 = mix(voucherId.getLeastSignificantBits()) | 1L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) ((h1 + i * h2) & (BLOOM_BITS - 1));
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** 64-bit finalizer (SplitMix64), spreading ids that differ in few bits. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
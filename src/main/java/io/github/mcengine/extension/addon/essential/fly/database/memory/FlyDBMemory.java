@@ -0,0 +1,445 @@
+package io.github.mcengine.extension.addon.essential.fly.database.memory;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of {@link FlyDB} ({@code database.type: memory}).
+ * <p>
+ * Durations live in {@link #STRIPES} lock-striped open-addressing tables keyed by the UUID's two longs,
+ * so no call boxes or touches I/O. Semantics match the SQL backends: a missing row reads as {@code 0},
+ * {@code 0} stays {@code 0} on decrement, and decrements floor at {@code 0}.
+ * <p>
+ * Optionally, the whole table is written to a snapshot file periodically and on {@link #close()}, and read
+ * back by {@link #ensureSchema()}, together with the redeemed voucher ids. Without a snapshot file every duration
+ * (and the voucher ledger) is lost on restart, which suits lobby/minigame servers, tests and benchmarks.
+ */
+public class FlyDBMemory implements FlyDB {
+
+    /** Number of independently locked stripes (power of two). */
+    private static final int STRIPES = 16;
+
+    /** Snapshot file header ("FLYM"). */
+    private static final int SNAPSHOT_MAGIC = 0x464C594D;
+
+    /** Snapshot format version; files with any other version are ignored. */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /** Key order used by {@link #scan}: both UUID halves compared unsigned, the byte order the SQL keys sort in. */
+    private static final Comparator<Row> KEY_ORDER = (a, b) -> compareKeys(
+            a.uuid().getMostSignificantBits(), a.uuid().getLeastSignificantBits(),
+            b.uuid().getMostSignificantBits(), b.uuid().getLeastSignificantBits());
+
+    /** Logger for diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Snapshot file, or null when snapshots are disabled. */
+    private final File snapshotFile;
+
+    /** Stripes; a key always maps to the same stripe. */
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /** Redeemed voucher ids. */
+    private final Set<UUID> vouchers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Held by {@link #redeemVouchers} and while {@link #snapshot()} copies, so a snapshot never holds a claimed voucher
+     * without its grant (or the reverse).
+     */
+    private final Object redeemLock = new Object();
+
+    /** Periodic asynchronous snapshot task; null until {@link #start(FlyScheduler, long)}. */
+    private FlyScheduler.Task snapshotTask;
+
+    /**
+     * Create a memory backend without snapshots.
+     *
+     * @param logger Logger for diagnostics.
+     */
+    public FlyDBMemory(MCEngineExtensionLogger logger) {
+        this(logger, null);
+    }
+
+    /**
+     * Create a memory backend.
+     *
+     * @param logger       Logger for diagnostics.
+     * @param snapshotFile File to load from and snapshot to; {@code null} disables snapshots.
+     */
+    public FlyDBMemory(MCEngineExtensionLogger logger, File snapshotFile) {
+        this.logger = logger;
+        this.snapshotFile = snapshotFile;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /**
+     * Start periodic asynchronous snapshots (no-op when snapshots are disabled).
+     *
+     * @param scheduler       Scheduler for the snapshot timer.
+     * @param intervalSeconds Seconds between snapshots; {@code 0} or less writes only on {@link #close()}.
+     */
+    public void start(FlyScheduler scheduler, long intervalSeconds) {
+        if (snapshotFile == null || intervalSeconds <= 0) return;
+        long ticks = intervalSeconds * 20L;
+        snapshotTask = scheduler.runAsyncTimer(this::snapshot, ticks, ticks);
+    }
+
+    @Override
+    public void ensureSchema() {
+        if (snapshotFile == null || !snapshotFile.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile.toPath())))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                logger.warning("Memory snapshot has an unknown format, ignoring: " + snapshotFile.getAbsolutePath());
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long msb = in.readLong();
+                long lsb = in.readLong();
+                int seconds = in.readInt();
+                Stripe s = stripe(msb, lsb);
+                synchronized (s) {
+                    s.put(msb, lsb, seconds);
+                }
+            }
+            int redeemed = in.readInt();
+            for (int i = 0; i < redeemed; i++) {
+                vouchers.add(new UUID(in.readLong(), in.readLong()));
+            }
+            logger.info("Loaded " + count + " fly durations from memory snapshot.");
+        } catch (IOException e) {
+            logger.warning("Memory snapshot load error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void ensurePlayerRow(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Stripe s = stripe(msb, lsb);
+        synchronized (s) {
+            if (s.find(msb, lsb) < 0) s.put(msb, lsb, 0);
+        }
+    }
+
+    @Override
+    public int getDuration(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Stripe s = stripe(msb, lsb);
+        synchronized (s) {
+            int i = s.find(msb, lsb);
+            return i < 0 ? 0 : s.values[i];
+        }
+    }
+
+    @Override
+    public boolean setDuration(UUID uuid, int seconds) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Stripe s = stripe(msb, lsb);
+        synchronized (s) {
+            s.put(msb, lsb, seconds);
+        }
+        return true;
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Stripe s = stripe(msb, lsb);
+        synchronized (s) {
+            int i = s.find(msb, lsb);
+            int updated = i < 0 ? seconds : s.values[i] + seconds;
+            s.put(msb, lsb, updated);
+            return updated;
+        }
+    }
+
+    @Override
+    public int decrementDuration(UUID uuid, int seconds) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        Stripe s = stripe(msb, lsb);
+        synchronized (s) {
+            int i = s.find(msb, lsb);
+            // No row ⇒ 0, like the SQL backends (the UPDATE matches nothing)
+            if (i < 0) return 0;
+            int current = s.values[i];
+            if (current == 0) return 0;
+            int updated = Math.max(current - seconds, 0);
+            s.values[i] = updated;
+            return updated;
+        }
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        int credited = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int slot = 0; slot < s.used.length; slot++) {
+                    if (!s.used[slot]) continue;
+                    s.values[slot] += seconds;
+                    credited++;
+                }
+            }
+        }
+        return credited;
+    }
+
+    /**
+     * Keeps the {@code limit} smallest keys after {@code after} in a bounded heap, so each page is one pass over the
+     * table with {@code O(limit)} extra memory.
+     */
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        long afterMsb = after == null ? 0L : after.getMostSignificantBits();
+        long afterLsb = after == null ? 0L : after.getLeastSignificantBits();
+        // Largest kept key on top, so it is the one replaced by a smaller candidate
+        PriorityQueue<Row> page = new PriorityQueue<>(limit + 1, KEY_ORDER.reversed());
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (int slot = 0; slot < s.used.length; slot++) {
+                    if (!s.used[slot]) continue;
+                    long m = s.msb[slot];
+                    long l = s.lsb[slot];
+                    if (after != null && compareKeys(m, l, afterMsb, afterLsb) <= 0) continue;
+                    if (page.size() == limit) {
+                        UUID top = page.peek().uuid();
+                        if (compareKeys(m, l, top.getMostSignificantBits(), top.getLeastSignificantBits()) >= 0) continue;
+                        page.poll();
+                    }
+                    page.add(new Row(new UUID(m, l), s.values[slot]));
+                }
+            }
+        }
+        List<Row> rows = new ArrayList<>(page);
+        rows.sort(KEY_ORDER);
+        return rows;
+    }
+
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> claims) {
+        synchronized (redeemLock) {
+            Set<UUID> duplicates = new HashSet<>();
+            long granted = 0;
+            for (VoucherClaim v : claims) {
+                if (v.id() != null && !vouchers.add(v.id())) {
+                    duplicates.add(v.id());
+                    continue;
+                }
+                granted += v.seconds();
+            }
+            int seconds = (int) Math.min(Integer.MAX_VALUE, granted);
+            return new Redemption(duplicates, seconds, seconds > 0 ? addDuration(uuid, seconds) : -1);
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        return vouchers.contains(voucherId);
+    }
+
+    /**
+     * Number of stored players.
+     */
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                n += s.size;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Write every stored duration to the snapshot file (no-op when snapshots are disabled).
+     * <p>
+     * Each stripe is copied under its lock, then the file is written to a temporary sibling and moved into place,
+     * so a crash mid-write never leaves a truncated snapshot.
+     */
+    public synchronized void snapshot() {
+        if (snapshotFile == null) return;
+
+        long[][] keys = new long[STRIPES][];
+        int[][] values = new int[STRIPES][];
+        int total = 0;
+        UUID[] redeemed;
+        synchronized (redeemLock) {
+            for (int i = 0; i < STRIPES; i++) {
+                Stripe s = stripes[i];
+                synchronized (s) {
+                    keys[i] = new long[s.size * 2];
+                    values[i] = new int[s.size];
+                    int n = 0;
+                    for (int slot = 0; slot < s.used.length; slot++) {
+                        if (!s.used[slot]) continue;
+                        keys[i][n * 2] = s.msb[slot];
+                        keys[i][n * 2 + 1] = s.lsb[slot];
+                        values[i][n++] = s.values[slot];
+                    }
+                    total += n;
+                }
+            }
+            redeemed = vouchers.toArray(new UUID[0]);
+        }
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            File dir = snapshotFile.getAbsoluteFile().getParentFile();
+            if (dir != null) Files.createDirectories(dir.toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(total);
+                for (int i = 0; i < STRIPES; i++) {
+                    for (int n = 0; n < values[i].length; n++) {
+                        out.writeLong(keys[i][n * 2]);
+                        out.writeLong(keys[i][n * 2 + 1]);
+                        out.writeInt(values[i][n]);
+                    }
+                }
+                out.writeInt(redeemed.length);
+                for (UUID id : redeemed) {
+                    out.writeLong(id.getMostSignificantBits());
+                    out.writeLong(id.getLeastSignificantBits());
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warning("Memory snapshot write error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshotTask != null) {
+            try {
+                snapshotTask.cancel();
+            } catch (Throwable ignore) {}
+            snapshotTask = null;
+        }
+        snapshot();
+    }
+
+    /** Compare two keys with both halves unsigned. */
+    private static int compareKeys(long m1, long l1, long m2, long l2) {
+        int c = Long.compareUnsigned(m1, m2);
+        return c != 0 ? c : Long.compareUnsigned(l1, l2);
+    }
+
+    /** Stripe owning a key (uses different hash bits than the in-stripe probe). */
+    private Stripe stripe(long msb, long lsb) {
+        return stripes[(int) ((msb ^ lsb) >>> 60) & (STRIPES - 1)];
+    }
+
+    /**
+     * One open-addressing table (linear probing, no deletion). Guarded by its own monitor.
+     */
+    private static final class Stripe {
+
+        /** Initial slot count (power of two). */
+        private static final int INITIAL_CAPACITY = 64;
+
+        /** Key high bits per slot. */
+        long[] msb = new long[INITIAL_CAPACITY];
+
+        /** Key low bits per slot. */
+        long[] lsb = new long[INITIAL_CAPACITY];
+
+        /** Remaining seconds per slot. */
+        int[] values = new int[INITIAL_CAPACITY];
+
+        /** Whether a slot holds a key. */
+        boolean[] used = new boolean[INITIAL_CAPACITY];
+
+        /** Stored keys. */
+        int size;
+
+        /** Slot holding the key, or {@code -1}. */
+        int find(long m, long l) {
+            int mask = used.length - 1;
+            for (int i = home(m, l, mask); ; i = (i + 1) & mask) {
+                if (!used[i]) return -1;
+                if (msb[i] == m && lsb[i] == l) return i;
+            }
+        }
+
+        /** Insert or overwrite. */
+        void put(long m, long l, int value) {
+            if ((size + 1) * 2 > used.length) grow();
+            int mask = used.length - 1;
+            int i = home(m, l, mask);
+            while (used[i]) {
+                if (msb[i] == m && lsb[i] == l) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            msb[i] = m;
+            lsb[i] = l;
+            values[i] = value;
+            size++;
+        }
+
+        /** Double the slot count and reinsert every key. */
+        private void grow() {
+            long[] oldMsb = msb;
+            long[] oldLsb = lsb;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            int capacity = oldUsed.length * 2;
+            msb = new long[capacity];
+            lsb = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldUsed.length; j++) {
+                if (!oldUsed[j]) continue;
+                int i = home(oldMsb[j], oldLsb[j], mask);
+                while (used[i]) i = (i + 1) & mask;
+                used[i] = true;
+                msb[i] = oldMsb[j];
+                lsb[i] = oldLsb[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        /** Ideal slot for a key. */
+        private static int home(long m, long l, int mask) {
+            long h = m ^ l;
+            h ^= (h >>> 32);
+            h *= 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
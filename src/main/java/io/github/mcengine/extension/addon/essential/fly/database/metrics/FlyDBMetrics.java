@@ -0,0 +1,308 @@
+package io.github.mcengine.extension.addon.essential.fly.database.metrics;
+
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyStats;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyStats.Op;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Instrumenting decorator for {@link FlyDB}.
+ * <p>
+ * Records the latency of every data operation into a {@link FlyStats.DbStats} and counts calls that throw.
+ * Errors the wrapped implementation logs and recovers from itself are reported through {@link #errorCount()}.
+ * Schema, prime, evict, change-feed and close calls are passed through unmeasured.
+ */
+public class FlyDBMetrics implements FlyDB {
+
+    /** Wrapped implementation. */
+    private final FlyDB delegate;
+
+    /** Where samples are recorded. */
+    private final FlyStats.DbStats stats;
+
+    /**
+     * Wrap an implementation with latency recording.
+     *
+     * @param delegate Implementation to measure.
+     * @param stats    Where samples are recorded.
+     */
+    public FlyDBMetrics(FlyDB delegate, FlyStats.DbStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+    }
+
+    @Override
+    public void ensureSchema() {
+        delegate.ensureSchema();
+    }
+
+    @Override
+    public void ensurePlayerRow(UUID uuid) {
+        long start = System.nanoTime();
+        try {
+            delegate.ensurePlayerRow(uuid);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.ENSURE_PLAYER_ROW, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int getDuration(UUID uuid) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getDuration(uuid);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.GET_DURATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean setDuration(UUID uuid, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.setDuration(uuid, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.SET_DURATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addDuration(uuid, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.ADD_DURATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int decrementDuration(UUID uuid, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.decrementDuration(uuid, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.DECREMENT_DURATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.decrementDurations(uuids, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.DECREMENT_DURATIONS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addDurations(uuids, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.ADD_DURATIONS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.addDurationAll(seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.ADD_DURATION_ALL, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.scan(after, limit);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.SCAN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        long start = System.nanoTime();
+        try {
+            return delegate.redeemVouchers(uuid, vouchers);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.REDEEM_VOUCHERS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.isVoucherRedeemed(voucherId);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.VOUCHER_REDEEMED, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setDurations(List<Row> rows) {
+        long start = System.nanoTime();
+        try {
+            delegate.setDurations(rows);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.SET_DURATIONS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int loadPlayer(UUID uuid) {
+        long start = System.nanoTime();
+        try {
+            return delegate.loadPlayer(uuid);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.LOAD_PLAYER, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        long start = System.nanoTime();
+        try {
+            return delegate.acquireLease(uuid, owner, token, ttlMillis);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.ACQUIRE_LEASE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        long start = System.nanoTime();
+        try {
+            delegate.renewLeases(tokens, ttlMillis);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.RENEW_LEASES, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.decrementLeased(tokens, seconds);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.DECREMENT_LEASED, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        long start = System.nanoTime();
+        try {
+            return delegate.releaseLease(uuid, token);
+        } catch (RuntimeException e) {
+            stats.error();
+            throw e;
+        } finally {
+            stats.record(Op.RELEASE_LEASE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        return delegate.leasedElsewhere(uuid, owner);
+    }
+
+    @Override
+    public void recordChanges(Collection<UUID> uuids, String origin) {
+        delegate.recordChanges(uuids, origin);
+    }
+
+    @Override
+    public long latestChangeVersion() {
+        return delegate.latestChangeVersion();
+    }
+
+    @Override
+    public List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        return delegate.changesSince(version, excludeOrigin, limit);
+    }
+
+    @Override
+    public void pruneChanges(long beforeMillis) {
+        delegate.pruneChanges(beforeMillis);
+    }
+
+    @Override
+    public void prime(UUID uuid, int seconds) {
+        delegate.prime(uuid, seconds);
+    }
+
+    @Override
+    public void evict(UUID uuid) {
+        delegate.evict(uuid);
+    }
+
+    @Override
+    public long errorCount() {
+        return delegate.errorCount();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -1,62 +1,261 @@
 package io.github.mcengine.extension.addon.essential.fly.database.mysql;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
-import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyConnectionProvider;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyStatementCache;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * MySQL implementation of {@link FlyDB}.
+ * <p>
+ * All per-player statements are parameterized and prepared once per connection through
+ * {@link FlyStatementCache}, so the server can reuse their parsed plans.
  */
 public class FlyDBMySQL implements FlyDB {
 
+    /** Insert a default row unless one exists. */
+    private static final String SQL_ENSURE_ROW = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, 0) " +
+        "ON DUPLICATE KEY UPDATE player_uuid = player_uuid";
+
+    /** Read the remaining duration. */
+    private static final String SQL_GET_DURATION = "SELECT fly_duration FROM fly WHERE player_uuid = ?";
+
+    /** Upsert an absolute duration. */
+    private static final String SQL_SET_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON DUPLICATE KEY UPDATE fly_duration = VALUES(fly_duration)";
+
+    /**
+     * Upsert-with-increment; on update the new value is stashed in {@code LAST_INSERT_ID()} so it can be
+     * read back without touching the table again.
+     */
+    private static final String SQL_ADD_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON DUPLICATE KEY UPDATE fly_duration = LAST_INSERT_ID(fly_duration + VALUES(fly_duration))";
+
+    /** Read the value stashed by {@link #SQL_ADD_DURATION} or {@link #SQL_DECREMENT} on this connection. */
+    private static final String SQL_LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
+
+    /**
+     * Decrement, keeping 0 at 0 and flooring at 0. The new value is stashed in {@code LAST_INSERT_ID()}
+     * on this connection, so reading it back never sees another writer's change.
+     */
+    private static final String SQL_DECREMENT = "UPDATE fly " +
+        "SET fly_duration = LAST_INSERT_ID(IF(fly_duration = 0, 0, GREATEST(fly_duration - ?, 0))) " +
+        "WHERE player_uuid = ?";
+
+    /** Decrement a padded chunk of players at once. */
+    private static final String SQL_BULK_DECREMENT = "UPDATE fly SET fly_duration = IF(fly_duration = 0, 0, GREATEST(fly_duration - ?, 0)) " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Create missing rows for a padded chunk of players (the repeated padding row is a no-op). */
+    private static final String SQL_BULK_ENSURE_ROWS = "INSERT INTO fly (player_uuid, fly_duration) VALUES " +
+        FlyStatementCache.rows(FlyStatementCache.BULK_CHUNK, "(?, 0)") + " ON DUPLICATE KEY UPDATE player_uuid = player_uuid";
+
+    /** Credit a padded chunk of players (each matched row once, however often the padding repeats it). */
+    private static final String SQL_BULK_ADD = "UPDATE fly SET fly_duration = fly_duration + ? " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Credit every stored player. */
+    private static final String SQL_ADD_ALL = "UPDATE fly SET fly_duration = fly_duration + ?";
+
+    /** Read back a padded chunk of players. */
+    private static final String SQL_BULK_GET_DURATION = "SELECT player_uuid, fly_duration FROM fly " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** First page of stored players in key order. */
+    private static final String SQL_SCAN_FIRST = "SELECT player_uuid, fly_duration FROM fly ORDER BY player_uuid LIMIT ?";
+
+    /** Next page of stored players after a key. */
+    private static final String SQL_SCAN_AFTER = "SELECT player_uuid, fly_duration FROM fly " +
+        "WHERE player_uuid > ? ORDER BY player_uuid LIMIT ?";
+
+    /** First page of a table whose key conversion stopped before the binary column was renamed. */
+    private static final String SQL_SCAN_UUID_BIN_FIRST = "SELECT uuid_bin, fly_duration FROM fly ORDER BY uuid_bin LIMIT ?";
+
+    /** Next page of a table whose key conversion stopped before the binary column was renamed. */
+    private static final String SQL_SCAN_UUID_BIN_AFTER = "SELECT uuid_bin, fly_duration FROM fly " +
+        "WHERE uuid_bin > ? ORDER BY uuid_bin LIMIT ?";
+
+    /** Take a player's lease unless another server holds an unexpired one. */
+    private static final String SQL_ACQUIRE_LEASE = "UPDATE fly SET lease_owner = ?, lease_token = ?, lease_expires = ? " +
+        "WHERE player_uuid = ? AND (lease_owner IS NULL OR lease_owner = ? OR lease_expires < ?)";
+
+    /** Extend a padded chunk of leases. */
+    private static final String SQL_RENEW_LEASES = "UPDATE fly SET lease_expires = ? " +
+        "WHERE lease_token IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Decrement a padded chunk of players, fenced by their lease tokens. */
+    private static final String SQL_LEASED_DECREMENT = "UPDATE fly SET fly_duration = IF(fly_duration = 0, 0, GREATEST(fly_duration - ?, 0)) " +
+        "WHERE lease_token IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Read back a padded chunk of players with their current lease token. */
+    private static final String SQL_BULK_GET_LEASED = "SELECT player_uuid, fly_duration, lease_token FROM fly " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Clear a lease if it still carries the caller's token. */
+    private static final String SQL_RELEASE_LEASE = "UPDATE fly SET lease_owner = NULL, lease_token = 0, lease_expires = 0 " +
+        "WHERE player_uuid = ? AND lease_token = ?";
+
+    /** Current lease holder of one player. */
+    private static final String SQL_LEASE_OWNER = "SELECT lease_owner FROM fly WHERE player_uuid = ?";
+
+    /** Append a change-feed row. */
+    private static final String SQL_RECORD_CHANGE = "INSERT INTO fly_changes (player_uuid, origin, changed_at) VALUES (?, ?, ?)";
+
+    /** Highest change-feed version. */
+    private static final String SQL_LATEST_CHANGE = "SELECT MAX(version) FROM fly_changes";
+
+    /** Change-feed rows above a version from other servers, oldest first. */
+    private static final String SQL_CHANGES_SINCE = "SELECT version, player_uuid FROM fly_changes " +
+        "WHERE version > ? AND origin <> ? ORDER BY version LIMIT ?";
+
+    /** Drop old change-feed rows. */
+    private static final String SQL_PRUNE_CHANGES = "DELETE FROM fly_changes WHERE changed_at < ?";
+
+    /** Record a voucher redemption unless present; 0 rows affected means already redeemed. */
+    private static final String SQL_CLAIM_VOUCHER = "INSERT IGNORE INTO fly_vouchers (voucher_id, player_uuid, redeemed_at) VALUES (?, ?, ?)";
+
+    /** Undo a claim made by the given redemption. */
+    private static final String SQL_RELEASE_VOUCHER = "DELETE FROM fly_vouchers " +
+        "WHERE voucher_id = ? AND player_uuid = ? AND redeemed_at = ?";
+
+    /** Whether a voucher has been redeemed. */
+    private static final String SQL_VOUCHER_REDEEMED = "SELECT 1 FROM fly_vouchers WHERE voucher_id = ?";
+
     /** Logger for DB diagnostics. */
     private final MCEngineExtensionLogger logger;
 
+    /** Prepared statements cached per connection. */
+    private final FlyStatementCache statements;
+
     /**
-     * Constructs the DB helper.
+     * Constructs the DB helper on the shared Essential database connection.
      *
      * @param logger Logger instance for diagnostics.
      */
     public FlyDBMySQL(MCEngineExtensionLogger logger) {
+        this(logger, FlyConnectionProvider.essential());
+    }
+
+    /**
+     * Constructs the DB helper on a specific connection source.
+     *
+     * @param logger      Logger instance for diagnostics.
+     * @param connections Source of JDBC connections.
+     */
+    public FlyDBMySQL(MCEngineExtensionLogger logger, FlyConnectionProvider connections) {
         this.logger = logger;
+        this.statements = new FlyStatementCache(connections);
     }
 
-    /** Convenience: resolve Essential DB facade. */
-    private static MCEngineEssentialCommon db() {
-        return MCEngineEssentialCommon.getApi();
+    /** Bind a player UUID parameter as its 16 raw bytes. */
+    private static void bindUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        ps.setBytes(index, FlyStatementCache.toBytes(uuid));
     }
 
-    /** Quote/escape a value for inline SQL (used for simple statements). */
-    private static String q(String s) {
-        if (s == null) return "NULL";
-        return "'" + s.replace("'", "''") + "'";
+    /** Read a player UUID column stored as 16 raw bytes. */
+    private static UUID readUuid(ResultSet rs, int column) throws SQLException {
+        return FlyStatementCache.fromBytes(rs.getBytes(column));
     }
 
     @Override
     public void ensureSchema() {
         String sql = """
             CREATE TABLE IF NOT EXISTS fly (
-              fly_id INT AUTO_INCREMENT PRIMARY KEY,
-              player_uuid VARCHAR(36) NOT NULL UNIQUE,
-              fly_duration INT NOT NULL DEFAULT 0
+              player_uuid BINARY(16) NOT NULL PRIMARY KEY,
+              fly_duration INT NOT NULL DEFAULT 0,
+              lease_owner VARCHAR(64) NULL,
+              lease_token BIGINT NOT NULL DEFAULT 0,
+              lease_expires BIGINT NOT NULL DEFAULT 0,
+              INDEX idx_fly_lease_token (lease_token)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
             """;
         try {
-            db().executeQuery(sql);
-        } catch (Exception e) {
+            statements.execute(sql);
+            if (!statements.hasColumn("fly", "lease_token")) {
+                // Added for flight session leases; existing rows start unleased
+                statements.execute("""
+                    ALTER TABLE fly
+                      ADD COLUMN lease_owner VARCHAR(64) NULL,
+                      ADD COLUMN lease_token BIGINT NOT NULL DEFAULT 0,
+                      ADD COLUMN lease_expires BIGINT NOT NULL DEFAULT 0,
+                      ADD INDEX idx_fly_lease_token (lease_token)
+                    """);
+            }
+            if (statements.hasColumn("fly", "fly_id") || statements.hasColumn("fly", "uuid_bin")) {
+                // Nothing else here reads the old layout, so a failed conversion stops Fly from starting
+                try {
+                    migrateToBinaryKeys();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("MySQL fly table key migration failed: " + e.getMessage(), e);
+                }
+            }
+            // Change feed polled by other servers to refresh their caches
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_changes (
+                  version BIGINT AUTO_INCREMENT PRIMARY KEY,
+                  player_uuid BINARY(16) NOT NULL,
+                  origin VARCHAR(64) NOT NULL,
+                  changed_at BIGINT NOT NULL,
+                  INDEX idx_fly_changes_changed_at (changed_at)
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+                """);
+            // Redeemed voucher ids; copies of a redeemed voucher grant nothing
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_vouchers (
+                  voucher_id BINARY(16) NOT NULL PRIMARY KEY,
+                  player_uuid BINARY(16) NOT NULL,
+                  redeemed_at BIGINT NOT NULL
+                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+                """);
+        } catch (SQLException e) {
             logger.warning("MySQL ensureSchema error: " + e.getMessage());
         }
     }
 
+    /**
+     * Convert a pre-binary table (surrogate {@code fly_id} plus a 36-character {@code player_uuid}) to one keyed
+     * by the 16-byte UUID. MySQL commits each DDL statement on its own, so every step is safe to repeat and an
+     * interrupted conversion resumes on the next start.
+     */
+    private void migrateToBinaryKeys() throws SQLException {
+        if (statements.hasColumn("fly", "fly_id")) {
+            // Old feed rows carry text keys; servers re-read the feed from its new head
+            statements.execute("DROP TABLE IF EXISTS fly_changes");
+            if (!statements.hasColumn("fly", "uuid_bin")) {
+                statements.execute("ALTER TABLE fly ADD COLUMN uuid_bin BINARY(16) NULL");
+            }
+            statements.execute("UPDATE fly SET uuid_bin = UNHEX(REPLACE(player_uuid, '-', '')) " +
+                "WHERE uuid_bin IS NULL AND player_uuid REGEXP '^[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}$'");
+            int dropped = statements.update("DELETE FROM fly WHERE uuid_bin IS NULL");
+            if (dropped > 0) logger.warning("MySQL migration dropped " + dropped + " fly rows without a valid UUID");
+            statements.execute("ALTER TABLE fly DROP COLUMN fly_id, DROP COLUMN player_uuid");
+        }
+        statements.execute("ALTER TABLE fly CHANGE COLUMN uuid_bin player_uuid BINARY(16) NOT NULL, ADD PRIMARY KEY (player_uuid)");
+        logger.info("MySQL fly table migrated to binary UUID keys");
+    }
+
     @Override
     public void ensurePlayerRow(UUID uuid) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", 0) " +
-            "ON DUPLICATE KEY UPDATE player_uuid = player_uuid";
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_ENSURE_ROW, ps -> {
+                bindUuid(ps, 1, uuid);
+                return ps.executeUpdate();
+            });
         } catch (Exception e) {
             logger.warning("MySQL ensurePlayerRow error: " + e.getMessage());
         }
@@ -64,38 +263,500 @@ public class FlyDBMySQL implements FlyDB {
 
     @Override
     public int getDuration(UUID uuid) {
-        String sql = "SELECT fly_duration FROM fly WHERE player_uuid = " + q(uuid.toString());
         try {
-            Integer v = db().getValue(sql, Integer.class);
-            return v != null ? v : 0;
+            return statements.with(SQL_GET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (Exception e) {
             logger.warning("MySQL getDuration error: " + e.getMessage());
-            return 0;
+            return -1;
         }
     }
 
     @Override
-    public void setDuration(UUID uuid, int seconds) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", " + seconds + ") " +
-            "ON DUPLICATE KEY UPDATE fly_duration = VALUES(fly_duration)";
+    public boolean setDuration(UUID uuid, int seconds) {
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_SET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setInt(2, seconds);
+                return ps.executeUpdate();
+            });
+            return true;
         } catch (Exception e) {
             logger.warning("MySQL setDuration error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        try {
+            return statements.withConnection(c -> addDuration(c, uuid, seconds));
+        } catch (Exception e) {
+            logger.warning("MySQL addDuration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** {@link #addDuration(UUID, int)} on a connection the caller holds, throwing on failure. */
+    private int addDuration(Connection c, UUID uuid, int seconds) throws SQLException {
+        PreparedStatement upsert = statements.prepare(c, SQL_ADD_DURATION);
+        bindUuid(upsert, 1, uuid);
+        upsert.setInt(2, seconds);
+        // 1 = inserted (new value is exactly the amount added), 2 = existing row incremented
+        if (upsert.executeUpdate() == 1) return seconds;
+
+        try (ResultSet rs = statements.prepare(c, SQL_LAST_INSERT_ID).executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
     @Override
     public int decrementDuration(UUID uuid, int seconds) {
-        String update = "UPDATE fly " +
-            "SET fly_duration = IF(fly_duration = 0, 0, GREATEST(fly_duration - " + seconds + ", 0)) " +
-            "WHERE player_uuid = " + q(uuid.toString());
         try {
-            db().executeQuery(update);
+            return statements.withConnection(c -> {
+                PreparedStatement update = statements.prepare(c, SQL_DECREMENT);
+                update.setInt(1, seconds);
+                bindUuid(update, 2, uuid);
+                // No matching row ⇒ 0, like getDuration
+                if (update.executeUpdate() == 0) return 0;
+
+                try (ResultSet rs = statements.prepare(c, SQL_LAST_INSERT_ID).executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (Exception e) {
-            logger.warning("MySQL decrementDuration update error: " + e.getMessage());
+            logger.warning("MySQL decrementDuration error: " + e.getMessage());
+            return -1;
         }
-        return getDuration(uuid);
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(uuids.size() * 2);
+        List<UUID> all = new ArrayList<>(uuids);
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                statements.withConnection(c -> {
+                    PreparedStatement update = statements.prepare(c, SQL_BULK_DECREMENT);
+                    update.setInt(1, seconds);
+                    bindUuidChunk(update, 2, chunk);
+                    update.executeUpdate();
+
+                    PreparedStatement select = statements.prepare(c, SQL_BULK_GET_DURATION);
+                    bindUuidChunk(select, 1, chunk);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            remaining.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                    return null;
+                });
+                // Missing rows read as 0, like getDuration
+                for (UUID uuid : chunk) remaining.putIfAbsent(uuid, 0);
+            } catch (Exception e) {
+                logger.warning("MySQL decrementDurations error: " + e.getMessage());
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = new HashMap<>(uuids.size() * 2);
+        // Distinct players only: a duplicate in another chunk would be credited twice
+        List<UUID> all = new ArrayList<>(new LinkedHashSet<>(uuids));
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                // One transaction per chunk on Fly's own connections, so the values read back are exactly the credited
+                // ones; on the shared connection they may also include another server's change made in between
+                updated.putAll(statements.inTransactionIfOwned(c -> {
+                    PreparedStatement ensure = statements.prepare(c, SQL_BULK_ENSURE_ROWS);
+                    bindUuidChunk(ensure, 1, chunk);
+                    ensure.executeUpdate();
+
+                    PreparedStatement update = statements.prepare(c, SQL_BULK_ADD);
+                    update.setInt(1, seconds);
+                    bindUuidChunk(update, 2, chunk);
+                    update.executeUpdate();
+
+                    Map<UUID, Integer> credited = new HashMap<>(chunk.size() * 2);
+                    PreparedStatement select = statements.prepare(c, SQL_BULK_GET_DURATION);
+                    bindUuidChunk(select, 1, chunk);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            credited.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                    return credited;
+                }));
+            } catch (Exception e) {
+                logger.warning("MySQL addDurations error: " + e.getMessage());
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        try {
+            return statements.with(SQL_ADD_ALL, ps -> {
+                ps.setInt(1, seconds);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL addDurationAll error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Throws instead of returning a partial page: a silently short page would end an export early. A table not yet
+     * migrated to binary keys (e.g. a migration source left by an older version) is read in its own layout, never
+     * converted.
+     */
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        try {
+            if (statements.hasColumn("fly", "fly_id")) return statements.scanTextKeys(after, limit);
+            boolean interrupted = statements.hasColumn("fly", "uuid_bin");
+            String sql = interrupted
+                ? after == null ? SQL_SCAN_UUID_BIN_FIRST : SQL_SCAN_UUID_BIN_AFTER
+                : after == null ? SQL_SCAN_FIRST : SQL_SCAN_AFTER;
+            return statements.with(sql, ps -> {
+                int i = 1;
+                if (after != null) bindUuid(ps, i++, after);
+                ps.setInt(i, limit);
+                List<Row> rows = new ArrayList<>(Math.max(0, limit));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Row(readUuid(rs, 1), rs.getInt(2)));
+                    }
+                }
+                return rows;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL scan error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Upserts the whole batch in one transaction on Fly's own connections (row by row on the shared one, where rows
+     * before a failure stay stored; importing them again is harmless); throws so an import never skips rows silently.
+     */
+    @Override
+    public void setDurations(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        try {
+            statements.inTransactionIfOwned(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_SET_DURATION);
+                for (Row row : rows) {
+                    bindUuid(ps, 1, row.uuid());
+                    ps.setInt(2, row.seconds());
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL setDurations error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            return statements.with(SQL_ACQUIRE_LEASE, ps -> {
+                ps.setString(1, owner);
+                ps.setLong(2, token);
+                ps.setLong(3, now + ttlMillis);
+                bindUuid(ps, 4, uuid);
+                ps.setString(5, owner);
+                ps.setLong(6, now);
+                // The token is fresh, so a matched row always counts as changed
+                return ps.executeUpdate() == 1;
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL acquireLease error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        List<Long> all = new ArrayList<>(tokens);
+        long expires = System.currentTimeMillis() + ttlMillis;
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                statements.with(SQL_RENEW_LEASES, ps -> {
+                    ps.setLong(1, expires);
+                    bindLongChunk(ps, 2, chunk);
+                    return ps.executeUpdate();
+                });
+            } catch (Exception e) {
+                logger.warning("MySQL renewLeases error: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(tokens.size() * 2);
+        List<UUID> all = new ArrayList<>(tokens.keySet());
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            List<Long> chunkTokens = new ArrayList<>(chunk.size());
+            for (UUID uuid : chunk) chunkTokens.add(tokens.get(uuid));
+            try {
+                statements.withConnection(c -> {
+                    PreparedStatement update = statements.prepare(c, SQL_LEASED_DECREMENT);
+                    update.setInt(1, seconds);
+                    bindLongChunk(update, 2, chunkTokens);
+                    update.executeUpdate();
+
+                    PreparedStatement select = statements.prepare(c, SQL_BULK_GET_LEASED);
+                    bindUuidChunk(select, 1, chunk);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uuid = readUuid(rs, 1);
+                            boolean held = tokens.get(uuid) == rs.getLong(3);
+                            remaining.put(uuid, held ? rs.getInt(2) : LEASE_LOST);
+                        }
+                    }
+                    return null;
+                });
+                // No row means no lease either
+                for (UUID uuid : chunk) remaining.putIfAbsent(uuid, LEASE_LOST);
+            } catch (Exception e) {
+                logger.warning("MySQL decrementLeased error: " + e.getMessage());
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        try {
+            return statements.with(SQL_RELEASE_LEASE, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setLong(2, token);
+                return ps.executeUpdate() == 1;
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL releaseLease error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        try {
+            return statements.with(SQL_LEASE_OWNER, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return false;
+                    String holder = rs.getString(1);
+                    return holder != null && !holder.equals(owner);
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("MySQL leasedElsewhere error: " + e.getMessage(), e);
+        }
+    }
+
+    /** Bind a chunk of longs into {@link FlyStatementCache#BULK_CHUNK} placeholders, padding with the last value. */
+    private static void bindLongChunk(PreparedStatement ps, int start, List<Long> chunk) throws SQLException {
+        for (int i = 0; i < FlyStatementCache.BULK_CHUNK; i++) {
+            ps.setLong(start + i, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+
+    /** Bind a chunk of UUIDs into {@link FlyStatementCache#BULK_CHUNK} placeholders, padding with the last UUID. */
+    private static void bindUuidChunk(PreparedStatement ps, int start, List<UUID> chunk) throws SQLException {
+        for (int i = 0; i < FlyStatementCache.BULK_CHUNK; i++) {
+            bindUuid(ps, start + i, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+
+    @Override
+    public void recordChanges(Collection<UUID> uuids, String origin) {
+        if (uuids.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        try {
+            statements.with(SQL_RECORD_CHANGE, ps -> {
+                for (UUID uuid : uuids) {
+                    bindUuid(ps, 1, uuid);
+                    ps.setString(2, origin);
+                    ps.setLong(3, now);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL recordChanges error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long latestChangeVersion() {
+        try {
+            return statements.with(SQL_LATEST_CHANGE, ps -> {
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL latestChangeVersion error: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    @Override
+    public List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        try {
+            return statements.with(SQL_CHANGES_SINCE, ps -> {
+                ps.setLong(1, version);
+                ps.setString(2, excludeOrigin);
+                ps.setInt(3, limit);
+                List<Change> changes = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(new Change(rs.getLong(1), readUuid(rs, 2)));
+                    }
+                }
+                return changes;
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL changesSince error: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void pruneChanges(long beforeMillis) {
+        try {
+            statements.with(SQL_PRUNE_CHANGES, ps -> {
+                ps.setLong(1, beforeMillis);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL pruneChanges error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claims and grant run in one transaction on Fly's own connections. The shared connection gets no transaction:
+     * the claims are committed first and released again if claiming fails; once the grant has been sent they are
+     * kept even if it reports an error, since it may have been written (granting twice would be worse).
+     */
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        long now = System.currentTimeMillis();
+        Set<UUID> duplicates = new HashSet<>();
+        if (statements.ownsConnections()) {
+            try {
+                return statements.inTransaction(c -> {
+                    int seconds = claimVouchers(c, uuid, vouchers, now, duplicates, new ArrayList<>());
+                    return new Redemption(duplicates, seconds, seconds > 0 ? addDuration(c, uuid, seconds) : -1);
+                });
+            } catch (Exception e) {
+                logger.warning("MySQL redeemVouchers error: " + e.getMessage());
+                return null;
+            }
+        }
+
+        List<UUID> claimed = new ArrayList<>();
+        int seconds;
+        try {
+            seconds = statements.withConnection(c -> claimVouchers(c, uuid, vouchers, now, duplicates, claimed));
+        } catch (Exception e) {
+            logger.warning("MySQL redeemVouchers error: " + e.getMessage());
+            releaseVouchers(uuid, claimed, now);
+            return null;
+        }
+        try {
+            return new Redemption(duplicates, seconds,
+                    seconds > 0 ? statements.withConnection(c -> addDuration(c, uuid, seconds)) : -1);
+        } catch (Exception e) {
+            logger.warning("MySQL redeemVouchers grant error (vouchers " + claimed + " stay redeemed): "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Claim every voucher with an id, adding the ones already redeemed to {@code duplicates} and the ones claimed now
+     * to {@code claimed}.
+     *
+     * @return Seconds to grant (capped at {@link Integer#MAX_VALUE}).
+     */
+    private int claimVouchers(Connection c, UUID uuid, List<VoucherClaim> vouchers, long now, Set<UUID> duplicates,
+                              List<UUID> claimed) throws SQLException {
+        long granted = 0;
+        for (VoucherClaim v : vouchers) {
+            if (v.id() != null) {
+                PreparedStatement claim = statements.prepare(c, SQL_CLAIM_VOUCHER);
+                bindUuid(claim, 1, v.id());
+                bindUuid(claim, 2, uuid);
+                claim.setLong(3, now);
+                if (claim.executeUpdate() == 0) {
+                    duplicates.add(v.id());
+                    continue;
+                }
+                claimed.add(v.id());
+            }
+            granted += v.seconds();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, granted);
+    }
+
+    /**
+     * Undo claims made by a redemption that failed before its grant, so the vouchers handed back can be used again.
+     */
+    private void releaseVouchers(UUID uuid, List<UUID> claimed, long now) {
+        for (UUID id : claimed) {
+            try {
+                statements.with(SQL_RELEASE_VOUCHER, ps -> {
+                    bindUuid(ps, 1, id);
+                    bindUuid(ps, 2, uuid);
+                    ps.setLong(3, now);
+                    return ps.executeUpdate();
+                });
+            } catch (Exception e) {
+                logger.warning("MySQL could not release voucher " + id + " (redeemed, nothing granted): "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        try {
+            return statements.with(SQL_VOUCHER_REDEEMED, ps -> {
+                bindUuid(ps, 1, voucherId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("MySQL isVoucherRedeemed error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public long errorCount() {
+        return statements.failureCount();
+    }
+
+    @Override
+    public void close() {
+        statements.close();
     }
 }
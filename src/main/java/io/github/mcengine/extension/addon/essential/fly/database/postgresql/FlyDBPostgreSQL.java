@@ -1,61 +1,240 @@
 package io.github.mcengine.extension.addon.essential.fly.database.postgresql;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
-import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyConnectionProvider;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyStatementCache;
 
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * PostgreSQL implementation of {@link FlyDB}.
+ * <p>
+ * All per-player statements are parameterized and prepared once per connection through
+ * {@link FlyStatementCache}, so the server can reuse their parsed plans.
  */
 public class FlyDBPostgreSQL implements FlyDB {
 
+    /** Insert a default row unless one exists. */
+    private static final String SQL_ENSURE_ROW = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, 0) ON CONFLICT (player_uuid) DO NOTHING";
+
+    /** Read the remaining duration. */
+    private static final String SQL_GET_DURATION = "SELECT fly_duration FROM fly WHERE player_uuid = ?";
+
+    /** Upsert an absolute duration. */
+    private static final String SQL_SET_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON CONFLICT (player_uuid) DO UPDATE SET fly_duration = EXCLUDED.fly_duration";
+
+    /** Upsert-with-increment returning the new value. */
+    private static final String SQL_ADD_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON CONFLICT (player_uuid) DO UPDATE SET fly_duration = fly.fly_duration + EXCLUDED.fly_duration " +
+        "RETURNING fly_duration";
+
+    /** Decrement, keeping 0 at 0 and flooring at 0; returns the new value from the same statement. */
+    private static final String SQL_DECREMENT = "UPDATE fly SET fly_duration = CASE " +
+        "WHEN fly_duration = 0 THEN 0 " +
+        "ELSE GREATEST(fly_duration - ?, 0) END " +
+        "WHERE player_uuid = ? " +
+        "RETURNING fly_duration";
+
+    /** Decrement an array of players in one statement and return their new values. */
+    private static final String SQL_BULK_DECREMENT = "UPDATE fly SET fly_duration = CASE " +
+        "WHEN fly_duration = 0 THEN 0 " +
+        "ELSE GREATEST(fly_duration - ?, 0) END " +
+        "WHERE player_uuid = ANY(?) " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Create missing rows for an array of players. */
+    private static final String SQL_BULK_ENSURE_ROWS = "INSERT INTO fly (player_uuid, fly_duration) " +
+        "SELECT u, 0 FROM unnest(?) AS t(u) ON CONFLICT (player_uuid) DO NOTHING";
+
+    /** Credit an array of players and return their new values. */
+    private static final String SQL_BULK_ADD = "UPDATE fly SET fly_duration = fly_duration + ? " +
+        "WHERE player_uuid = ANY(?) " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Credit every stored player. */
+    private static final String SQL_ADD_ALL = "UPDATE fly SET fly_duration = fly_duration + ?";
+
+    /** First page of stored players in key order. */
+    private static final String SQL_SCAN_FIRST = "SELECT player_uuid, fly_duration FROM fly ORDER BY player_uuid LIMIT ?";
+
+    /** Next page of stored players after a key. */
+    private static final String SQL_SCAN_AFTER = "SELECT player_uuid, fly_duration FROM fly " +
+        "WHERE player_uuid > ? ORDER BY player_uuid LIMIT ?";
+
+    /** Take a player's lease unless another server holds an unexpired one. */
+    private static final String SQL_ACQUIRE_LEASE = "UPDATE fly SET lease_owner = ?, lease_token = ?, lease_expires = ? " +
+        "WHERE player_uuid = ? AND (lease_owner IS NULL OR lease_owner = ? OR lease_expires < ?)";
+
+    /** Extend an array of leases. */
+    private static final String SQL_RENEW_LEASES = "UPDATE fly SET lease_expires = ? WHERE lease_token = ANY(?)";
+
+    /** Decrement an array of players, fenced by their lease tokens, and return their new values. */
+    private static final String SQL_LEASED_DECREMENT = "UPDATE fly SET fly_duration = CASE " +
+        "WHEN fly_duration = 0 THEN 0 " +
+        "ELSE GREATEST(fly_duration - ?, 0) END " +
+        "WHERE lease_token = ANY(?) " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Clear a lease if it still carries the caller's token. */
+    private static final String SQL_RELEASE_LEASE = "UPDATE fly SET lease_owner = NULL, lease_token = 0, lease_expires = 0 " +
+        "WHERE player_uuid = ? AND lease_token = ?";
+
+    /** Current lease holder of one player. */
+    private static final String SQL_LEASE_OWNER = "SELECT lease_owner FROM fly WHERE player_uuid = ?";
+
+    /** Append a change-feed row. */
+    private static final String SQL_RECORD_CHANGE = "INSERT INTO fly_changes (player_uuid, origin, changed_at) VALUES (?, ?, ?)";
+
+    /** Highest change-feed version. */
+    private static final String SQL_LATEST_CHANGE = "SELECT MAX(version) FROM fly_changes";
+
+    /** Change-feed rows above a version from other servers, oldest first. */
+    private static final String SQL_CHANGES_SINCE = "SELECT version, player_uuid FROM fly_changes " +
+        "WHERE version > ? AND origin <> ? ORDER BY version LIMIT ?";
+
+    /** Drop old change-feed rows. */
+    private static final String SQL_PRUNE_CHANGES = "DELETE FROM fly_changes WHERE changed_at < ?";
+
+    /** Record a voucher redemption unless present; 0 rows affected means already redeemed. */
+    private static final String SQL_CLAIM_VOUCHER = "INSERT INTO fly_vouchers (voucher_id, player_uuid, redeemed_at) VALUES (?, ?, ?) " +
+        "ON CONFLICT (voucher_id) DO NOTHING";
+
+    /** Undo a claim made by the given redemption. */
+    private static final String SQL_RELEASE_VOUCHER = "DELETE FROM fly_vouchers " +
+        "WHERE voucher_id = ? AND player_uuid = ? AND redeemed_at = ?";
+
+    /** Whether a voucher has been redeemed. */
+    private static final String SQL_VOUCHER_REDEEMED = "SELECT 1 FROM fly_vouchers WHERE voucher_id = ?";
+
     /** Logger for DB diagnostics. */
     private final MCEngineExtensionLogger logger;
 
+    /** Prepared statements cached per connection. */
+    private final FlyStatementCache statements;
+
     /**
-     * Constructs the DB helper.
+     * Constructs the DB helper on the shared Essential database connection.
      *
      * @param logger Logger instance for diagnostics.
      */
     public FlyDBPostgreSQL(MCEngineExtensionLogger logger) {
+        this(logger, FlyConnectionProvider.essential());
+    }
+
+    /**
+     * Constructs the DB helper on a specific connection source.
+     *
+     * @param logger      Logger instance for diagnostics.
+     * @param connections Source of JDBC connections.
+     */
+    public FlyDBPostgreSQL(MCEngineExtensionLogger logger, FlyConnectionProvider connections) {
         this.logger = logger;
+        this.statements = new FlyStatementCache(connections);
     }
 
-    /** Convenience: resolve Essential DB facade. */
-    private static MCEngineEssentialCommon db() {
-        return MCEngineEssentialCommon.getApi();
+    /** Bind a player UUID parameter. */
+    private static void bindUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        ps.setObject(index, uuid);
     }
 
-    /** Quote/escape a value for inline SQL (used for simple statements). */
-    private static String q(String s) {
-        if (s == null) return "NULL";
-        return "'" + s.replace("'", "''") + "'";
+    /** Read a native {@code uuid} column. */
+    private static UUID readUuid(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column, UUID.class);
     }
 
     @Override
     public void ensureSchema() {
         String sql = """
             CREATE TABLE IF NOT EXISTS fly (
-              fly_id SERIAL PRIMARY KEY,
-              player_uuid VARCHAR(36) NOT NULL UNIQUE,
-              fly_duration INT NOT NULL DEFAULT 0
+              player_uuid UUID PRIMARY KEY,
+              fly_duration INT NOT NULL DEFAULT 0,
+              lease_owner VARCHAR(64) NULL,
+              lease_token BIGINT NOT NULL DEFAULT 0,
+              lease_expires BIGINT NOT NULL DEFAULT 0
             );
             """;
         try {
-            db().executeQuery(sql);
-        } catch (Exception e) {
+            statements.execute(sql);
+            // Added for flight session leases; existing rows start unleased
+            statements.execute("""
+                ALTER TABLE fly
+                  ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(64) NULL,
+                  ADD COLUMN IF NOT EXISTS lease_token BIGINT NOT NULL DEFAULT 0,
+                  ADD COLUMN IF NOT EXISTS lease_expires BIGINT NOT NULL DEFAULT 0
+                """);
+            statements.execute("CREATE INDEX IF NOT EXISTS idx_fly_lease_token ON fly (lease_token)");
+            if (statements.hasColumn("fly", "fly_id")) {
+                // Nothing else here reads the old layout, so a failed conversion stops Fly from starting
+                try {
+                    migrateToUuidKeys();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("PostgreSQL fly table key migration failed: " + e.getMessage(), e);
+                }
+            }
+            // Change feed polled by other servers to refresh their caches
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_changes (
+                  version BIGSERIAL PRIMARY KEY,
+                  player_uuid UUID NOT NULL,
+                  origin VARCHAR(64) NOT NULL,
+                  changed_at BIGINT NOT NULL
+                );
+                """);
+            statements.execute("CREATE INDEX IF NOT EXISTS idx_fly_changes_changed_at ON fly_changes (changed_at)");
+            // Redeemed voucher ids; copies of a redeemed voucher grant nothing
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_vouchers (
+                  voucher_id UUID PRIMARY KEY,
+                  player_uuid UUID NOT NULL,
+                  redeemed_at BIGINT NOT NULL
+                );
+                """);
+        } catch (SQLException e) {
             logger.warning("PostgreSQL ensureSchema error: " + e.getMessage());
         }
     }
 
+    /**
+     * Convert a pre-{@code uuid} table (surrogate {@code fly_id} plus a 36-character {@code player_uuid}) to one
+     * keyed by the native UUID. No transaction is needed (or allowed on the shared connection): every statement
+     * commits on its own and is safe to repeat, and the last one, which drops {@code fly_id}, converts the key in
+     * one step, so an interrupted conversion resumes on the next start.
+     */
+    private void migrateToUuidKeys() throws SQLException {
+        // Old feed rows carry text keys; servers re-read the feed from its new head
+        statements.execute("DROP TABLE IF EXISTS fly_changes");
+        int dropped = statements.update("DELETE FROM fly " +
+            "WHERE player_uuid::text !~ '^[0-9a-fA-F]{8}(-[0-9a-fA-F]{4}){3}-[0-9a-fA-F]{12}$'");
+        statements.execute("ALTER TABLE fly DROP CONSTRAINT IF EXISTS fly_player_uuid_key, " +
+            "ALTER COLUMN player_uuid TYPE UUID USING player_uuid::uuid, DROP COLUMN fly_id, " +
+            "ADD PRIMARY KEY (player_uuid)");
+        if (dropped > 0) logger.warning("PostgreSQL migration dropped " + dropped + " fly rows without a valid UUID");
+        logger.info("PostgreSQL fly table migrated to uuid keys");
+    }
+
     @Override
     public void ensurePlayerRow(UUID uuid) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", 0) ON CONFLICT (player_uuid) DO NOTHING";
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_ENSURE_ROW, ps -> {
+                bindUuid(ps, 1, uuid);
+                return ps.executeUpdate();
+            });
         } catch (Exception e) {
             logger.warning("PostgreSQL ensurePlayerRow error: " + e.getMessage());
         }
@@ -63,39 +242,473 @@ public class FlyDBPostgreSQL implements FlyDB {
 
     @Override
     public int getDuration(UUID uuid) {
-        String sql = "SELECT fly_duration FROM fly WHERE player_uuid = " + q(uuid.toString());
         try {
-            Integer v = db().getValue(sql, Integer.class);
-            return v != null ? v : 0;
+            return statements.with(SQL_GET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (Exception e) {
             logger.warning("PostgreSQL getDuration error: " + e.getMessage());
-            return 0;
+            return -1;
         }
     }
 
     @Override
-    public void setDuration(UUID uuid, int seconds) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", " + seconds + ") " +
-            "ON CONFLICT (player_uuid) DO UPDATE SET fly_duration = EXCLUDED.fly_duration";
+    public boolean setDuration(UUID uuid, int seconds) {
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_SET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setInt(2, seconds);
+                return ps.executeUpdate();
+            });
+            return true;
         } catch (Exception e) {
             logger.warning("PostgreSQL setDuration error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        try {
+            return statements.withConnection(c -> addDuration(c, uuid, seconds));
+        } catch (Exception e) {
+            logger.warning("PostgreSQL addDuration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** {@link #addDuration(UUID, int)} on a connection the caller holds, throwing on failure. */
+    private int addDuration(Connection c, UUID uuid, int seconds) throws SQLException {
+        PreparedStatement ps = statements.prepare(c, SQL_ADD_DURATION);
+        bindUuid(ps, 1, uuid);
+        ps.setInt(2, seconds);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
     @Override
     public int decrementDuration(UUID uuid, int seconds) {
-        String update = "UPDATE fly SET fly_duration = CASE " +
-            "WHEN fly_duration = 0 THEN 0 " +
-            "ELSE GREATEST(fly_duration - " + seconds + ", 0) END " +
-            "WHERE player_uuid = " + q(uuid.toString());
         try {
-            db().executeQuery(update);
+            return statements.with(SQL_DECREMENT, ps -> {
+                ps.setInt(1, seconds);
+                bindUuid(ps, 2, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // No row ⇒ 0, like getDuration
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL decrementDuration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(uuids.size() * 2);
+        if (uuids.isEmpty()) return remaining;
+        UUID[] keys = uuids.toArray(new UUID[0]);
+        try {
+            statements.withConnection(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_BULK_DECREMENT);
+                ps.setInt(1, seconds);
+                Array array = c.createArrayOf("uuid", keys);
+                try {
+                    ps.setArray(2, array);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            remaining.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                } finally {
+                    array.free();
+                }
+                return null;
+            });
+            // Missing rows read as 0, like getDuration
+            for (UUID uuid : uuids) remaining.putIfAbsent(uuid, 0);
+        } catch (Exception e) {
+            logger.warning("PostgreSQL decrementDurations error: " + e.getMessage());
+            remaining.clear();
+        }
+        return remaining;
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = new HashMap<>(uuids.size() * 2);
+        if (uuids.isEmpty()) return updated;
+        // Distinct players only: ON CONFLICT cannot touch one row twice in a statement
+        Collection<UUID> distinct = new LinkedHashSet<>(uuids);
+        UUID[] keys = distinct.toArray(new UUID[0]);
+        try {
+            statements.withConnection(c -> {
+                Array array = c.createArrayOf("uuid", keys);
+                try {
+                    PreparedStatement ensure = statements.prepare(c, SQL_BULK_ENSURE_ROWS);
+                    ensure.setArray(1, array);
+                    ensure.executeUpdate();
+
+                    PreparedStatement update = statements.prepare(c, SQL_BULK_ADD);
+                    update.setInt(1, seconds);
+                    update.setArray(2, array);
+                    try (ResultSet rs = update.executeQuery()) {
+                        while (rs.next()) {
+                            updated.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                } finally {
+                    array.free();
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL addDurations error: " + e.getMessage());
+            updated.clear();
+        }
+        return updated;
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        try {
+            return statements.with(SQL_ADD_ALL, ps -> {
+                ps.setInt(1, seconds);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL addDurationAll error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Throws instead of returning a partial page: a silently short page would end an export early. A table not yet
+     * migrated from text keys (e.g. a migration source left by an older version) is read in its own layout, never
+     * converted.
+     */
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        try {
+            if (statements.hasColumn("fly", "fly_id")) return statements.scanTextKeys(after, limit);
+            return statements.with(after == null ? SQL_SCAN_FIRST : SQL_SCAN_AFTER, ps -> {
+                int i = 1;
+                if (after != null) bindUuid(ps, i++, after);
+                ps.setInt(i, limit);
+                List<Row> rows = new ArrayList<>(Math.max(0, limit));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Row(readUuid(rs, 1), rs.getInt(2)));
+                    }
+                }
+                return rows;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("PostgreSQL scan error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Upserts the whole batch in one transaction on Fly's own connections (row by row on the shared one, where rows
+     * before a failure stay stored; importing them again is harmless); throws so an import never skips rows silently.
+     */
+    @Override
+    public void setDurations(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        try {
+            statements.inTransactionIfOwned(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_SET_DURATION);
+                for (Row row : rows) {
+                    bindUuid(ps, 1, row.uuid());
+                    ps.setInt(2, row.seconds());
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("PostgreSQL setDurations error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            return statements.with(SQL_ACQUIRE_LEASE, ps -> {
+                ps.setString(1, owner);
+                ps.setLong(2, token);
+                ps.setLong(3, now + ttlMillis);
+                bindUuid(ps, 4, uuid);
+                ps.setString(5, owner);
+                ps.setLong(6, now);
+                return ps.executeUpdate() == 1;
+            });
         } catch (Exception e) {
-            logger.warning("PostgreSQL decrementDuration update error: " + e.getMessage());
+            logger.warning("PostgreSQL acquireLease error: " + e.getMessage());
+            return false;
         }
-        return getDuration(uuid);
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        if (tokens.isEmpty()) return;
+        Long[] keys = tokens.toArray(new Long[0]);
+        long expires = System.currentTimeMillis() + ttlMillis;
+        try {
+            statements.withConnection(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_RENEW_LEASES);
+                ps.setLong(1, expires);
+                Array array = c.createArrayOf("bigint", keys);
+                try {
+                    ps.setArray(2, array);
+                    return ps.executeUpdate();
+                } finally {
+                    array.free();
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL renewLeases error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(tokens.size() * 2);
+        if (tokens.isEmpty()) return remaining;
+        Long[] keys = tokens.values().toArray(new Long[0]);
+        try {
+            statements.withConnection(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_LEASED_DECREMENT);
+                ps.setInt(1, seconds);
+                Array array = c.createArrayOf("bigint", keys);
+                try {
+                    ps.setArray(2, array);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            remaining.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                } finally {
+                    array.free();
+                }
+                return null;
+            });
+            // Rows not matched by their token were not charged: the lease moved
+            for (UUID uuid : tokens.keySet()) remaining.putIfAbsent(uuid, LEASE_LOST);
+        } catch (Exception e) {
+            logger.warning("PostgreSQL decrementLeased error: " + e.getMessage());
+            remaining.clear();
+        }
+        return remaining;
+    }
+
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        try {
+            return statements.with(SQL_RELEASE_LEASE, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setLong(2, token);
+                return ps.executeUpdate() == 1;
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL releaseLease error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        try {
+            return statements.with(SQL_LEASE_OWNER, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return false;
+                    String holder = rs.getString(1);
+                    return holder != null && !holder.equals(owner);
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("PostgreSQL leasedElsewhere error: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void recordChanges(Collection<UUID> uuids, String origin) {
+        if (uuids.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        try {
+            statements.with(SQL_RECORD_CHANGE, ps -> {
+                for (UUID uuid : uuids) {
+                    bindUuid(ps, 1, uuid);
+                    ps.setString(2, origin);
+                    ps.setLong(3, now);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL recordChanges error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long latestChangeVersion() {
+        try {
+            return statements.with(SQL_LATEST_CHANGE, ps -> {
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL latestChangeVersion error: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    @Override
+    public List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        try {
+            return statements.with(SQL_CHANGES_SINCE, ps -> {
+                ps.setLong(1, version);
+                ps.setString(2, excludeOrigin);
+                ps.setInt(3, limit);
+                List<Change> changes = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(new Change(rs.getLong(1), readUuid(rs, 2)));
+                    }
+                }
+                return changes;
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL changesSince error: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void pruneChanges(long beforeMillis) {
+        try {
+            statements.with(SQL_PRUNE_CHANGES, ps -> {
+                ps.setLong(1, beforeMillis);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL pruneChanges error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claims and grant run in one transaction on Fly's own connections. The shared connection gets no transaction:
+     * the claims are committed first and released again if claiming fails; once the grant has been sent they are
+     * kept even if it reports an error, since it may have been written (granting twice would be worse).
+     */
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        long now = System.currentTimeMillis();
+        Set<UUID> duplicates = new HashSet<>();
+        if (statements.ownsConnections()) {
+            try {
+                return statements.inTransaction(c -> {
+                    int seconds = claimVouchers(c, uuid, vouchers, now, duplicates, new ArrayList<>());
+                    return new Redemption(duplicates, seconds, seconds > 0 ? addDuration(c, uuid, seconds) : -1);
+                });
+            } catch (Exception e) {
+                logger.warning("PostgreSQL redeemVouchers error: " + e.getMessage());
+                return null;
+            }
+        }
+
+        List<UUID> claimed = new ArrayList<>();
+        int seconds;
+        try {
+            seconds = statements.withConnection(c -> claimVouchers(c, uuid, vouchers, now, duplicates, claimed));
+        } catch (Exception e) {
+            logger.warning("PostgreSQL redeemVouchers error: " + e.getMessage());
+            releaseVouchers(uuid, claimed, now);
+            return null;
+        }
+        try {
+            return new Redemption(duplicates, seconds,
+                    seconds > 0 ? statements.withConnection(c -> addDuration(c, uuid, seconds)) : -1);
+        } catch (Exception e) {
+            logger.warning("PostgreSQL redeemVouchers grant error (vouchers " + claimed + " stay redeemed): "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Claim every voucher with an id, adding the ones already redeemed to {@code duplicates} and the ones claimed now
+     * to {@code claimed}.
+     *
+     * @return Seconds to grant (capped at {@link Integer#MAX_VALUE}).
+     */
+    private int claimVouchers(Connection c, UUID uuid, List<VoucherClaim> vouchers, long now, Set<UUID> duplicates,
+                              List<UUID> claimed) throws SQLException {
+        long granted = 0;
+        for (VoucherClaim v : vouchers) {
+            if (v.id() != null) {
+                PreparedStatement claim = statements.prepare(c, SQL_CLAIM_VOUCHER);
+                bindUuid(claim, 1, v.id());
+                bindUuid(claim, 2, uuid);
+                claim.setLong(3, now);
+                if (claim.executeUpdate() == 0) {
+                    duplicates.add(v.id());
+                    continue;
+                }
+                claimed.add(v.id());
+            }
+            granted += v.seconds();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, granted);
+    }
+
+    /**
+     * Undo claims made by a redemption that failed before its grant, so the vouchers handed back can be used again.
+     */
+    private void releaseVouchers(UUID uuid, List<UUID> claimed, long now) {
+        for (UUID id : claimed) {
+            try {
+                statements.with(SQL_RELEASE_VOUCHER, ps -> {
+                    bindUuid(ps, 1, id);
+                    bindUuid(ps, 2, uuid);
+                    ps.setLong(3, now);
+                    return ps.executeUpdate();
+                });
+            } catch (Exception e) {
+                logger.warning("PostgreSQL could not release voucher " + id + " (redeemed, nothing granted): "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        try {
+            return statements.with(SQL_VOUCHER_REDEEMED, ps -> {
+                bindUuid(ps, 1, voucherId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("PostgreSQL isVoucherRedeemed error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public long errorCount() {
+        return statements.failureCount();
+    }
+
+    @Override
+    public void close() {
+        statements.close();
     }
 }
@@ -1,61 +1,311 @@
 package io.github.mcengine.extension.addon.essential.fly.database.sqlite;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
-import io.github.mcengine.common.essential.MCEngineEssentialCommon;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyConnectionProvider;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyStatementCache;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * SQLite implementation of {@link FlyDB}.
+ * <p>
+ * All per-player statements are parameterized and prepared once per connection through
+ * {@link FlyStatementCache}, so the server can reuse their parsed plans.
  */
 public class FlyDBSQLite implements FlyDB {
 
+    /** Insert a default row unless one exists. */
+    private static final String SQL_ENSURE_ROW = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, 0) ON CONFLICT(player_uuid) DO NOTHING";
+
+    /** Read the remaining duration. */
+    private static final String SQL_GET_DURATION = "SELECT fly_duration FROM fly WHERE player_uuid = ?";
+
+    /** Upsert an absolute duration. */
+    private static final String SQL_SET_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON CONFLICT(player_uuid) DO UPDATE SET fly_duration = excluded.fly_duration";
+
+    /** Upsert-with-increment returning the new value. */
+    private static final String SQL_ADD_DURATION = "INSERT INTO fly (player_uuid, fly_duration) VALUES (?, ?) " +
+        "ON CONFLICT(player_uuid) DO UPDATE SET fly_duration = fly.fly_duration + excluded.fly_duration " +
+        "RETURNING fly_duration";
+
+    /** Decrement, keeping 0 at 0 and flooring at 0; returns the new value from the same statement (SQLite 3.35+). */
+    private static final String SQL_DECREMENT = "UPDATE fly SET fly_duration = CASE " +
+        "WHEN fly_duration = 0 THEN 0 " +
+        "ELSE MAX(fly_duration - ?, 0) END " +
+        "WHERE player_uuid = ? " +
+        "RETURNING fly_duration";
+
+    /** Decrement a padded chunk of players at once, returning their new values. */
+    private static final String SQL_BULK_DECREMENT = "UPDATE fly SET fly_duration = CASE WHEN fly_duration = 0 THEN 0 ELSE MAX(fly_duration - ?, 0) END " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ") " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Create missing rows for a padded chunk of players (the repeated padding row is a no-op). */
+    private static final String SQL_BULK_ENSURE_ROWS = "INSERT INTO fly (player_uuid, fly_duration) VALUES " +
+        FlyStatementCache.rows(FlyStatementCache.BULK_CHUNK, "(?, 0)") + " ON CONFLICT(player_uuid) DO NOTHING";
+
+    /** Credit a padded chunk of players (each matched row once), returning their new values. */
+    private static final String SQL_BULK_ADD = "UPDATE fly SET fly_duration = fly_duration + ? " +
+        "WHERE player_uuid IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ") " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Credit every stored player. */
+    private static final String SQL_ADD_ALL = "UPDATE fly SET fly_duration = fly_duration + ?";
+
+    /** First page of stored players in key order. */
+    private static final String SQL_SCAN_FIRST = "SELECT player_uuid, fly_duration FROM fly ORDER BY player_uuid LIMIT ?";
+
+    /** Next page of stored players after a key. */
+    private static final String SQL_SCAN_AFTER = "SELECT player_uuid, fly_duration FROM fly " +
+        "WHERE player_uuid > ? ORDER BY player_uuid LIMIT ?";
+
+    /** Take a player's lease unless another server holds an unexpired one. */
+    private static final String SQL_ACQUIRE_LEASE = "UPDATE fly SET lease_owner = ?, lease_token = ?, lease_expires = ? " +
+        "WHERE player_uuid = ? AND (lease_owner IS NULL OR lease_owner = ? OR lease_expires < ?)";
+
+    /** Extend a padded chunk of leases. */
+    private static final String SQL_RENEW_LEASES = "UPDATE fly SET lease_expires = ? " +
+        "WHERE lease_token IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ")";
+
+    /** Decrement a padded chunk of players, fenced by their lease tokens, returning their new values. */
+    private static final String SQL_LEASED_DECREMENT = "UPDATE fly SET fly_duration = CASE WHEN fly_duration = 0 THEN 0 ELSE MAX(fly_duration - ?, 0) END " +
+        "WHERE lease_token IN (" + FlyStatementCache.placeholders(FlyStatementCache.BULK_CHUNK) + ") " +
+        "RETURNING player_uuid, fly_duration";
+
+    /** Clear a lease if it still carries the caller's token. */
+    private static final String SQL_RELEASE_LEASE = "UPDATE fly SET lease_owner = NULL, lease_token = 0, lease_expires = 0 " +
+        "WHERE player_uuid = ? AND lease_token = ?";
+
+    /** Current lease holder of one player. */
+    private static final String SQL_LEASE_OWNER = "SELECT lease_owner FROM fly WHERE player_uuid = ?";
+
+    /** Append a change-feed row. */
+    private static final String SQL_RECORD_CHANGE = "INSERT INTO fly_changes (player_uuid, origin, changed_at) VALUES (?, ?, ?)";
+
+    /** Highest change-feed version. */
+    private static final String SQL_LATEST_CHANGE = "SELECT MAX(version) FROM fly_changes";
+
+    /** Change-feed rows above a version from other servers, oldest first. */
+    private static final String SQL_CHANGES_SINCE = "SELECT version, player_uuid FROM fly_changes " +
+        "WHERE version > ? AND origin <> ? ORDER BY version LIMIT ?";
+
+    /** Drop old change-feed rows. */
+    private static final String SQL_PRUNE_CHANGES = "DELETE FROM fly_changes WHERE changed_at < ?";
+
+    /** Record a voucher redemption unless present; 0 rows affected means already redeemed. */
+    private static final String SQL_CLAIM_VOUCHER = "INSERT INTO fly_vouchers (voucher_id, player_uuid, redeemed_at) VALUES (?, ?, ?) " +
+        "ON CONFLICT(voucher_id) DO NOTHING";
+
+    /** Undo a claim made by the given redemption. */
+    private static final String SQL_RELEASE_VOUCHER = "DELETE FROM fly_vouchers " +
+        "WHERE voucher_id = ? AND player_uuid = ? AND redeemed_at = ?";
+
+    /** Whether a voucher has been redeemed. */
+    private static final String SQL_VOUCHER_REDEEMED = "SELECT 1 FROM fly_vouchers WHERE voucher_id = ?";
+
+    /** Current {@code fly} table layout; {@code %s} is the table name so the migration can build it alongside. */
+    private static final String FLY_TABLE = """
+        CREATE TABLE IF NOT EXISTS %s (
+          player_uuid BLOB NOT NULL PRIMARY KEY,
+          fly_duration INTEGER NOT NULL DEFAULT 0,
+          lease_owner TEXT NULL,
+          lease_token INTEGER NOT NULL DEFAULT 0,
+          lease_expires INTEGER NOT NULL DEFAULT 0
+        ) WITHOUT ROWID;
+        """;
+
+    /** Whether a table exists. */
+    private static final String SQL_HAS_TABLE = "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?";
+
+    /** Next page of a pre-blob table, in rowid order, for the key migration. */
+    private static final String SQL_MIGRATION_PAGE = "SELECT rowid, player_uuid, fly_duration, lease_owner, " +
+        "lease_token, lease_expires FROM fly WHERE rowid > ? ORDER BY rowid LIMIT ?";
+
+    /** Rows copied per statement when rebuilding a pre-blob table; 5 parameters each stays within SQLite's 999. */
+    private static final int MIGRATION_BATCH = 100;
+
+    /** A row of a pre-blob table, keyed by its text UUID. */
+    private record OldRow(long rowid, String key, int seconds, String leaseOwner, long leaseToken, long leaseExpires) {}
+
     /** Logger for DB diagnostics. */
     private final MCEngineExtensionLogger logger;
 
+    /** Prepared statements cached per connection. */
+    private final FlyStatementCache statements;
+
     /**
-     * Constructs the DB helper.
+     * Constructs the DB helper on the shared Essential database connection.
      *
      * @param logger Logger instance for diagnostics.
      */
     public FlyDBSQLite(MCEngineExtensionLogger logger) {
+        this(logger, FlyConnectionProvider.essential());
+    }
+
+    /**
+     * Constructs the DB helper on a specific connection source.
+     *
+     * @param logger      Logger instance for diagnostics.
+     * @param connections Source of JDBC connections.
+     */
+    public FlyDBSQLite(MCEngineExtensionLogger logger, FlyConnectionProvider connections) {
         this.logger = logger;
+        this.statements = new FlyStatementCache(connections);
     }
 
-    /** Convenience: resolve Essential DB facade. */
-    private static MCEngineEssentialCommon db() {
-        return MCEngineEssentialCommon.getApi();
+    /** Bind a player UUID parameter. */
+    private static void bindUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        ps.setBytes(index, FlyStatementCache.toBytes(uuid));
     }
 
-    /** Quote/escape a value for inline SQL (used for simple statements). */
-    private static String q(String s) {
-        if (s == null) return "NULL";
-        return "'" + s.replace("'", "''") + "'";
+    /** Read a player UUID column stored as a 16-byte blob. */
+    private static UUID readUuid(ResultSet rs, int column) throws SQLException {
+        return FlyStatementCache.fromBytes(rs.getBytes(column));
     }
 
     @Override
     public void ensureSchema() {
-        String sql = """
-            CREATE TABLE IF NOT EXISTS fly (
-              fly_id INTEGER PRIMARY KEY AUTOINCREMENT,
-              player_uuid TEXT NOT NULL UNIQUE,
-              fly_duration INTEGER NOT NULL DEFAULT 0
-            );
-            """;
         try {
-            db().executeQuery(sql);
-        } catch (Exception e) {
+            if (!hasTable("fly") && hasTable("fly_v2")) {
+                // A key migration stopped after dropping the old table: its copy is complete
+                statements.execute("ALTER TABLE fly_v2 RENAME TO fly");
+            }
+            statements.execute(FLY_TABLE.formatted("fly"));
+            if (!statements.hasColumn("fly", "lease_token")) {
+                // Added for flight session leases; existing rows start unleased (SQLite adds one column per statement)
+                statements.execute("ALTER TABLE fly ADD COLUMN lease_owner TEXT NULL");
+                statements.execute("ALTER TABLE fly ADD COLUMN lease_token INTEGER NOT NULL DEFAULT 0");
+                statements.execute("ALTER TABLE fly ADD COLUMN lease_expires INTEGER NOT NULL DEFAULT 0");
+            }
+            if (statements.hasColumn("fly", "fly_id")) {
+                // Nothing else here reads the old layout, so a failed conversion stops Fly from starting
+                try {
+                    migrateToBlobKeys();
+                } catch (SQLException e) {
+                    throw new IllegalStateException("SQLite fly table key migration failed: " + e.getMessage(), e);
+                }
+            }
+            statements.execute("CREATE INDEX IF NOT EXISTS idx_fly_lease_token ON fly (lease_token)");
+            // Change feed polled by other servers to refresh their caches
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_changes (
+                  version INTEGER PRIMARY KEY AUTOINCREMENT,
+                  player_uuid BLOB NOT NULL,
+                  origin TEXT NOT NULL,
+                  changed_at INTEGER NOT NULL
+                );
+                """);
+            statements.execute("CREATE INDEX IF NOT EXISTS idx_fly_changes_changed_at ON fly_changes (changed_at)");
+            // Redeemed voucher ids; copies of a redeemed voucher grant nothing
+            statements.execute("""
+                CREATE TABLE IF NOT EXISTS fly_vouchers (
+                  voucher_id BLOB NOT NULL PRIMARY KEY,
+                  player_uuid BLOB NOT NULL,
+                  redeemed_at INTEGER NOT NULL
+                ) WITHOUT ROWID;
+                """);
+        } catch (SQLException e) {
             logger.warning("SQLite ensureSchema error: " + e.getMessage());
         }
     }
 
+    /** Whether a table named {@code table} exists. */
+    private boolean hasTable(String table) throws SQLException {
+        return statements.with(SQL_HAS_TABLE, ps -> {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        });
+    }
+
+    /**
+     * Rebuild a pre-blob table (surrogate {@code fly_id} plus a text {@code player_uuid}) as a {@code WITHOUT ROWID}
+     * table keyed by the 16-byte UUID. SQLite cannot change a primary key in place, so rows are copied into a new
+     * table, page by page with each page committed on its own (no transaction on the shared connection). An
+     * interrupted copy leaves the old table intact and starts over; a complete copy replaces it only at the end, and
+     * one whose old table was already dropped is renamed on the next start (see {@link #ensureSchema()}).
+     */
+    private void migrateToBlobKeys() throws SQLException {
+        // Old feed rows carry text keys; servers re-read the feed from its new head
+        statements.execute("DROP TABLE IF EXISTS fly_changes");
+        statements.execute("DROP TABLE IF EXISTS fly_v2");
+        statements.execute(FLY_TABLE.formatted("fly_v2"));
+        int dropped = 0;
+        long after = Long.MIN_VALUE;
+        while (true) {
+            long cursor = after;
+            List<OldRow> page = statements.with(SQL_MIGRATION_PAGE, ps -> {
+                ps.setLong(1, cursor);
+                ps.setInt(2, MIGRATION_BATCH);
+                List<OldRow> rows = new ArrayList<>(MIGRATION_BATCH);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new OldRow(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getString(4),
+                            rs.getLong(5), rs.getLong(6)));
+                    }
+                }
+                return rows;
+            });
+            if (page.isEmpty()) break;
+            after = page.get(page.size() - 1).rowid();
+
+            Map<UUID, OldRow> valid = new LinkedHashMap<>(page.size() * 2);
+            for (OldRow row : page) {
+                try {
+                    valid.putIfAbsent(UUID.fromString(row.key()), row);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    dropped++;
+                }
+            }
+            if (valid.isEmpty()) continue;
+            // One multi-row statement per page: a single commit instead of one per row
+            statements.withConnection(c -> {
+                try (PreparedStatement insert = c.prepareStatement("INSERT OR IGNORE INTO fly_v2 " +
+                         "(player_uuid, fly_duration, lease_owner, lease_token, lease_expires) VALUES " +
+                         FlyStatementCache.rows(valid.size(), "(?, ?, ?, ?, ?)"))) {
+                    int i = 1;
+                    for (Map.Entry<UUID, OldRow> me : valid.entrySet()) {
+                        OldRow row = me.getValue();
+                        bindUuid(insert, i++, me.getKey());
+                        insert.setInt(i++, row.seconds());
+                        insert.setString(i++, row.leaseOwner());
+                        insert.setLong(i++, row.leaseToken());
+                        insert.setLong(i++, row.leaseExpires());
+                    }
+                    return insert.executeUpdate();
+                }
+            });
+        }
+        statements.execute("DROP TABLE fly");
+        statements.execute("ALTER TABLE fly_v2 RENAME TO fly");
+        if (dropped > 0) logger.warning("SQLite migration dropped " + dropped + " fly rows without a valid UUID");
+        logger.info("SQLite fly table migrated to blob UUID keys");
+    }
+
     @Override
     public void ensurePlayerRow(UUID uuid) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", 0) ON CONFLICT(player_uuid) DO NOTHING";
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_ENSURE_ROW, ps -> {
+                bindUuid(ps, 1, uuid);
+                return ps.executeUpdate();
+            });
         } catch (Exception e) {
             logger.warning("SQLite ensurePlayerRow error: " + e.getMessage());
         }
@@ -63,41 +313,470 @@ public class FlyDBSQLite implements FlyDB {
 
     @Override
     public int getDuration(UUID uuid) {
-        String sql = "SELECT fly_duration FROM fly WHERE player_uuid = " + q(uuid.toString());
         try {
-            Integer v = db().getValue(sql, Integer.class);
-            return v != null ? v : 0;
+            return statements.with(SQL_GET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (Exception e) {
             logger.warning("SQLite getDuration error: " + e.getMessage());
-            return 0;
+            return -1;
         }
     }
 
     @Override
-    public void setDuration(UUID uuid, int seconds) {
-        String sql = "INSERT INTO fly (player_uuid, fly_duration) VALUES (" +
-            q(uuid.toString()) + ", " + seconds + ") " +
-            "ON CONFLICT(player_uuid) DO UPDATE SET fly_duration = excluded.fly_duration";
+    public boolean setDuration(UUID uuid, int seconds) {
         try {
-            db().executeQuery(sql);
+            statements.with(SQL_SET_DURATION, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setInt(2, seconds);
+                return ps.executeUpdate();
+            });
+            return true;
         } catch (Exception e) {
             logger.warning("SQLite setDuration error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int addDuration(UUID uuid, int seconds) {
+        try {
+            return statements.withConnection(c -> addDuration(c, uuid, seconds));
+        } catch (Exception e) {
+            logger.warning("SQLite addDuration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** {@link #addDuration(UUID, int)} on a connection the caller holds, throwing on failure. */
+    private int addDuration(Connection c, UUID uuid, int seconds) throws SQLException {
+        PreparedStatement ps = statements.prepare(c, SQL_ADD_DURATION);
+        bindUuid(ps, 1, uuid);
+        ps.setInt(2, seconds);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
     }
 
     @Override
     public int decrementDuration(UUID uuid, int seconds) {
-        // 0 = unlimited ⇒ stay 0; else max(fly_duration - seconds, 0)
-        String update = "UPDATE fly SET fly_duration = CASE " +
-            "WHEN fly_duration = 0 THEN 0 " +
-            "WHEN fly_duration - " + seconds + " < 0 THEN 0 " +
-            "ELSE fly_duration - " + seconds + " END " +
-            "WHERE player_uuid = " + q(uuid.toString());
         try {
-            db().executeQuery(update);
+            return statements.with(SQL_DECREMENT, ps -> {
+                ps.setInt(1, seconds);
+                bindUuid(ps, 2, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // No row ⇒ 0, like getDuration
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite decrementDuration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(uuids.size() * 2);
+        List<UUID> all = new ArrayList<>(uuids);
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                statements.with(SQL_BULK_DECREMENT, ps -> {
+                    ps.setInt(1, seconds);
+                    bindUuidChunk(ps, 2, chunk);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            remaining.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                    return null;
+                });
+                // Missing rows read as 0, like getDuration
+                for (UUID uuid : chunk) remaining.putIfAbsent(uuid, 0);
+            } catch (Exception e) {
+                logger.warning("SQLite decrementDurations error: " + e.getMessage());
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public Map<UUID, Integer> addDurations(Collection<UUID> uuids, int seconds) {
+        Map<UUID, Integer> updated = new HashMap<>(uuids.size() * 2);
+        // Distinct players only: a duplicate in another chunk would be credited twice
+        List<UUID> all = new ArrayList<>(new LinkedHashSet<>(uuids));
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                statements.withConnection(c -> {
+                    PreparedStatement ensure = statements.prepare(c, SQL_BULK_ENSURE_ROWS);
+                    bindUuidChunk(ensure, 1, chunk);
+                    ensure.executeUpdate();
+
+                    PreparedStatement update = statements.prepare(c, SQL_BULK_ADD);
+                    update.setInt(1, seconds);
+                    bindUuidChunk(update, 2, chunk);
+                    try (ResultSet rs = update.executeQuery()) {
+                        while (rs.next()) {
+                            updated.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                logger.warning("SQLite addDurations error: " + e.getMessage());
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int addDurationAll(int seconds) {
+        try {
+            return statements.with(SQL_ADD_ALL, ps -> {
+                ps.setInt(1, seconds);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite addDurationAll error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Throws instead of returning a partial page: a silently short page would end an export early. A table not yet
+     * migrated from text keys (e.g. a migration source left by an older version) is read in its own layout, never
+     * converted.
+     */
+    @Override
+    public List<Row> scan(UUID after, int limit) {
+        try {
+            if (statements.hasColumn("fly", "fly_id")) return statements.scanTextKeys(after, limit);
+            return statements.with(after == null ? SQL_SCAN_FIRST : SQL_SCAN_AFTER, ps -> {
+                int i = 1;
+                if (after != null) bindUuid(ps, i++, after);
+                ps.setInt(i, limit);
+                List<Row> rows = new ArrayList<>(Math.max(0, limit));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Row(readUuid(rs, 1), rs.getInt(2)));
+                    }
+                }
+                return rows;
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("SQLite scan error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Upserts the whole batch in one transaction on Fly's own connections (row by row on the shared one, where rows
+     * before a failure stay stored; importing them again is harmless); throws so an import never skips rows silently.
+     */
+    @Override
+    public void setDurations(List<Row> rows) {
+        if (rows.isEmpty()) return;
+        try {
+            statements.inTransactionIfOwned(c -> {
+                PreparedStatement ps = statements.prepare(c, SQL_SET_DURATION);
+                for (Row row : rows) {
+                    bindUuid(ps, 1, row.uuid());
+                    ps.setInt(2, row.seconds());
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
         } catch (Exception e) {
-            logger.warning("SQLite decrementDuration update error: " + e.getMessage());
+            throw new IllegalStateException("SQLite setDurations error: " + e.getMessage(), e);
         }
-        return getDuration(uuid);
+    }
+
+    @Override
+    public boolean acquireLease(UUID uuid, String owner, long token, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            return statements.with(SQL_ACQUIRE_LEASE, ps -> {
+                ps.setString(1, owner);
+                ps.setLong(2, token);
+                ps.setLong(3, now + ttlMillis);
+                bindUuid(ps, 4, uuid);
+                ps.setString(5, owner);
+                ps.setLong(6, now);
+                return ps.executeUpdate() == 1;
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite acquireLease error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void renewLeases(Collection<Long> tokens, long ttlMillis) {
+        List<Long> all = new ArrayList<>(tokens);
+        long expires = System.currentTimeMillis() + ttlMillis;
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            try {
+                statements.with(SQL_RENEW_LEASES, ps -> {
+                    ps.setLong(1, expires);
+                    bindLongChunk(ps, 2, chunk);
+                    return ps.executeUpdate();
+                });
+            } catch (Exception e) {
+                logger.warning("SQLite renewLeases error: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> decrementLeased(Map<UUID, Long> tokens, int seconds) {
+        Map<UUID, Integer> remaining = new HashMap<>(tokens.size() * 2);
+        List<UUID> all = new ArrayList<>(tokens.keySet());
+        for (int from = 0; from < all.size(); from += FlyStatementCache.BULK_CHUNK) {
+            List<UUID> chunk = all.subList(from, Math.min(all.size(), from + FlyStatementCache.BULK_CHUNK));
+            List<Long> chunkTokens = new ArrayList<>(chunk.size());
+            for (UUID uuid : chunk) chunkTokens.add(tokens.get(uuid));
+            try {
+                statements.with(SQL_LEASED_DECREMENT, ps -> {
+                    ps.setInt(1, seconds);
+                    bindLongChunk(ps, 2, chunkTokens);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            remaining.put(readUuid(rs, 1), rs.getInt(2));
+                        }
+                    }
+                    return null;
+                });
+                // Rows not matched by their token were not charged: the lease moved
+                for (UUID uuid : chunk) remaining.putIfAbsent(uuid, LEASE_LOST);
+            } catch (Exception e) {
+                logger.warning("SQLite decrementLeased error: " + e.getMessage());
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public boolean releaseLease(UUID uuid, long token) {
+        try {
+            return statements.with(SQL_RELEASE_LEASE, ps -> {
+                bindUuid(ps, 1, uuid);
+                ps.setLong(2, token);
+                return ps.executeUpdate() == 1;
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite releaseLease error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean leasedElsewhere(UUID uuid, String owner) {
+        try {
+            return statements.with(SQL_LEASE_OWNER, ps -> {
+                bindUuid(ps, 1, uuid);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return false;
+                    String holder = rs.getString(1);
+                    return holder != null && !holder.equals(owner);
+                }
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("SQLite leasedElsewhere error: " + e.getMessage(), e);
+        }
+    }
+
+    /** Bind a chunk of longs into {@link FlyStatementCache#BULK_CHUNK} placeholders, padding with the last value. */
+    private static void bindLongChunk(PreparedStatement ps, int start, List<Long> chunk) throws SQLException {
+        for (int i = 0; i < FlyStatementCache.BULK_CHUNK; i++) {
+            ps.setLong(start + i, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+
+    /** Bind a chunk of UUIDs into {@link FlyStatementCache#BULK_CHUNK} placeholders, padding with the last UUID. */
+    private static void bindUuidChunk(PreparedStatement ps, int start, List<UUID> chunk) throws SQLException {
+        for (int i = 0; i < FlyStatementCache.BULK_CHUNK; i++) {
+            bindUuid(ps, start + i, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+
+    @Override
+    public void recordChanges(Collection<UUID> uuids, String origin) {
+        if (uuids.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        try {
+            statements.with(SQL_RECORD_CHANGE, ps -> {
+                for (UUID uuid : uuids) {
+                    bindUuid(ps, 1, uuid);
+                    ps.setString(2, origin);
+                    ps.setLong(3, now);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite recordChanges error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long latestChangeVersion() {
+        try {
+            return statements.with(SQL_LATEST_CHANGE, ps -> {
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite latestChangeVersion error: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    @Override
+    public List<Change> changesSince(long version, String excludeOrigin, int limit) {
+        try {
+            return statements.with(SQL_CHANGES_SINCE, ps -> {
+                ps.setLong(1, version);
+                ps.setString(2, excludeOrigin);
+                ps.setInt(3, limit);
+                List<Change> changes = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(new Change(rs.getLong(1), readUuid(rs, 2)));
+                    }
+                }
+                return changes;
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite changesSince error: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public void pruneChanges(long beforeMillis) {
+        try {
+            statements.with(SQL_PRUNE_CHANGES, ps -> {
+                ps.setLong(1, beforeMillis);
+                return ps.executeUpdate();
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite pruneChanges error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claims and grant run in one transaction on Fly's own connections. The shared connection gets no transaction:
+     * the claims are committed first and released again if claiming fails; once the grant has been sent they are
+     * kept even if it reports an error, since it may have been written (granting twice would be worse).
+     */
+    @Override
+    public Redemption redeemVouchers(UUID uuid, List<VoucherClaim> vouchers) {
+        long now = System.currentTimeMillis();
+        Set<UUID> duplicates = new HashSet<>();
+        if (statements.ownsConnections()) {
+            try {
+                return statements.inTransaction(c -> {
+                    int seconds = claimVouchers(c, uuid, vouchers, now, duplicates, new ArrayList<>());
+                    return new Redemption(duplicates, seconds, seconds > 0 ? addDuration(c, uuid, seconds) : -1);
+                });
+            } catch (Exception e) {
+                logger.warning("SQLite redeemVouchers error: " + e.getMessage());
+                return null;
+            }
+        }
+
+        List<UUID> claimed = new ArrayList<>();
+        int seconds;
+        try {
+            seconds = statements.withConnection(c -> claimVouchers(c, uuid, vouchers, now, duplicates, claimed));
+        } catch (Exception e) {
+            logger.warning("SQLite redeemVouchers error: " + e.getMessage());
+            releaseVouchers(uuid, claimed, now);
+            return null;
+        }
+        try {
+            return new Redemption(duplicates, seconds,
+                    seconds > 0 ? statements.withConnection(c -> addDuration(c, uuid, seconds)) : -1);
+        } catch (Exception e) {
+            logger.warning("SQLite redeemVouchers grant error (vouchers " + claimed + " stay redeemed): "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Claim every voucher with an id, adding the ones already redeemed to {@code duplicates} and the ones claimed now
+     * to {@code claimed}.
+     *
+     * @return Seconds to grant (capped at {@link Integer#MAX_VALUE}).
+     */
+    private int claimVouchers(Connection c, UUID uuid, List<VoucherClaim> vouchers, long now, Set<UUID> duplicates,
+                              List<UUID> claimed) throws SQLException {
+        long granted = 0;
+        for (VoucherClaim v : vouchers) {
+            if (v.id() != null) {
+                PreparedStatement claim = statements.prepare(c, SQL_CLAIM_VOUCHER);
+                bindUuid(claim, 1, v.id());
+                bindUuid(claim, 2, uuid);
+                claim.setLong(3, now);
+                if (claim.executeUpdate() == 0) {
+                    duplicates.add(v.id());
+                    continue;
+                }
+                claimed.add(v.id());
+            }
+            granted += v.seconds();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, granted);
+    }
+
+    /**
+     * Undo claims made by a redemption that failed before its grant, so the vouchers handed back can be used again.
+     */
+    private void releaseVouchers(UUID uuid, List<UUID> claimed, long now) {
+        for (UUID id : claimed) {
+            try {
+                statements.with(SQL_RELEASE_VOUCHER, ps -> {
+                    bindUuid(ps, 1, id);
+                    bindUuid(ps, 2, uuid);
+                    ps.setLong(3, now);
+                    return ps.executeUpdate();
+                });
+            } catch (Exception e) {
+                logger.warning("SQLite could not release voucher " + id + " (redeemed, nothing granted): "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public boolean isVoucherRedeemed(UUID voucherId) {
+        try {
+            return statements.with(SQL_VOUCHER_REDEEMED, ps -> {
+                bindUuid(ps, 1, voucherId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            });
+        } catch (Exception e) {
+            logger.warning("SQLite isVoucherRedeemed error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public long errorCount() {
+        return statements.failureCount();
+    }
+
+    @Override
+    public void close() {
+        statements.close();
     }
 }
@@ -0,0 +1,389 @@
+package io.github.mcengine.extension.addon.essential.fly.database.transfer;
+
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Streaming export, import and backend-to-backend migration of the {@code fly} table.
+ * <p>
+ * Every transfer moves {@value #PAGE} rows per step, and each step is its own task on the Fly I/O executor:
+ * <ul>
+ *   <li>Memory stays at one page whatever the table size.</li>
+ *   <li>Regular DB calls (joins, charges, grants) are served between pages instead of waiting for the whole transfer.</li>
+ * </ul>
+ * Reads use keyset paging ({@link FlyDB#scan}), writes use batched upserts ({@link FlyDB#setDurations}).
+ * <p>
+ * File formats:
+ * <ul>
+ *   <li>{@link Format#CSV}: a {@code player_uuid,fly_duration} header, then one row per line.</li>
+ *   <li>{@link Format#BINARY}: {@code "FLYX"}, a format version, then 20-byte records
+ *       (UUID most/least significant bits, seconds) up to the end of the file.</li>
+ * </ul>
+ * Imports detect the format from the file's first bytes. Exports are written to a temporary sibling and moved into
+ * place once complete.
+ */
+public final class FlyTransfer {
+
+    /** Rows per page. */
+    public static final int PAGE = 1_000;
+
+    /** Binary header ("FLYX"). */
+    private static final int BINARY_MAGIC = 0x464C5958;
+
+    /** Binary format version. */
+    private static final int BINARY_VERSION = 1;
+
+    /** CSV header line. */
+    private static final String CSV_HEADER = "player_uuid,fly_duration";
+
+    /**
+     * Export file format.
+     */
+    public enum Format {
+        CSV,
+        BINARY;
+
+        /**
+         * Parse a format name ({@code csv}, {@code bin} or {@code binary}).
+         *
+         * @return The format, or null if unknown.
+         */
+        public static Format parse(String name) {
+            if (name == null) return null;
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "bin", "binary" -> BINARY;
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     *
+     * @param rows    Rows written.
+     * @param skipped CSV lines that could not be parsed.
+     */
+    public record ImportResult(long rows, long skipped) {}
+
+    /**
+     * Hidden constructor to enforce static-only usage.
+     */
+    private FlyTransfer() {}
+
+    /**
+     * Write every stored player to {@code file}.
+     *
+     * @param flyDBAsync Accessor for the live backend.
+     * @param file       Destination (replaced once the export completes).
+     * @param format     File format.
+     * @return Future completed with the number of rows written.
+     */
+    public static CompletableFuture<Long> export(FlyDBAsync flyDBAsync, File file, Format format) {
+        File tmp = new File(file.getPath() + ".tmp");
+        RowWriter writer;
+        try {
+            writer = format == Format.BINARY ? new BinaryWriter(tmp) : new CsvWriter(tmp);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return exportPage(flyDBAsync, writer, null, 0L).whenComplete((rows, error) -> {
+            try {
+                writer.close();
+                if (error == null) moveIntoPlace(tmp, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (error != null) tmp.delete();
+            }
+        });
+    }
+
+    /**
+     * Upsert every row of {@code file} into the live backend.
+     *
+     * @param flyDBAsync Accessor for the live backend.
+     * @param file       CSV or binary export.
+     * @return Future completed with the rows written and lines skipped.
+     */
+    public static CompletableFuture<ImportResult> importFile(FlyDBAsync flyDBAsync, File file) {
+        RowReader reader;
+        try {
+            reader = open(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return importPage(flyDBAsync, reader, 0L).handle((rows, error) -> {
+            try {
+                reader.close();
+            } catch (IOException ignore) {}
+            if (error != null) throw error instanceof RuntimeException re ? re : new IllegalStateException(error);
+            return new ImportResult(rows, reader.skipped());
+        });
+    }
+
+    /**
+     * Copy every stored player of {@code source} into the live backend. {@code source} is read on the Fly I/O
+     * executor too, one page per step; the caller closes it afterwards. It is only read: a source left behind by an
+     * older version is scanned in its own layout (see {@link FlyDB#scan}), not upgraded.
+     *
+     * @param flyDBAsync Accessor for the live (destination) backend.
+     * @param source     Backend to copy from.
+     * @return Future completed with the number of rows copied.
+     */
+    public static CompletableFuture<Long> migrate(FlyDBAsync flyDBAsync, FlyDB source) {
+        return migratePage(flyDBAsync, source, null, 0L);
+    }
+
+    /** Export one page, then chain the next. */
+    private static CompletableFuture<Long> exportPage(FlyDBAsync flyDBAsync, RowWriter writer, UUID after, long done) {
+        return flyDBAsync.submit(db -> {
+            List<FlyDB.Row> page = db.scan(after, PAGE);
+            try {
+                for (FlyDB.Row row : page) writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return page;
+        }).thenCompose(page -> page.size() < PAGE
+                ? CompletableFuture.completedFuture(done + page.size())
+                : exportPage(flyDBAsync, writer, page.get(page.size() - 1).uuid(), done + page.size()));
+    }
+
+    /** Import one page, then chain the next. */
+    private static CompletableFuture<Long> importPage(FlyDBAsync flyDBAsync, RowReader reader, long done) {
+        return flyDBAsync.submit(db -> {
+            List<FlyDB.Row> page = new ArrayList<>(PAGE);
+            try {
+                FlyDB.Row row;
+                while (page.size() < PAGE && (row = reader.read()) != null) page.add(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            db.setDurations(page);
+            return page.size();
+        }).thenCompose(n -> n < PAGE
+                ? CompletableFuture.completedFuture(done + n)
+                : importPage(flyDBAsync, reader, done + n));
+    }
+
+    /** Copy one page, then chain the next. */
+    private static CompletableFuture<Long> migratePage(FlyDBAsync flyDBAsync, FlyDB source, UUID after, long done) {
+        return flyDBAsync.submit(db -> {
+            List<FlyDB.Row> page = source.scan(after, PAGE);
+            db.setDurations(page);
+            return page;
+        }).thenCompose(page -> page.size() < PAGE
+                ? CompletableFuture.completedFuture(done + page.size())
+                : migratePage(flyDBAsync, source, page.get(page.size() - 1).uuid(), done + page.size()));
+    }
+
+    /**
+     * Open an export for reading, detecting its format from the first bytes.
+     */
+    private static RowReader open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()));
+        try {
+            in.mark(4);
+            byte[] head = in.readNBytes(4);
+            in.reset();
+            boolean binary = head.length == 4
+                    && ((head[0] & 0xFF) << 24 | (head[1] & 0xFF) << 16 | (head[2] & 0xFF) << 8 | (head[3] & 0xFF)) == BINARY_MAGIC;
+            return binary ? new BinaryReader(in) : new CsvReader(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** Move a finished export over the destination (atomically where supported). */
+    private static void moveIntoPlace(File tmp, File file) throws IOException {
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Sequential row sink.
+     */
+    private interface RowWriter extends Closeable {
+        void write(FlyDB.Row row) throws IOException;
+    }
+
+    /**
+     * Sequential row source.
+     */
+    private interface RowReader extends Closeable {
+
+        /** Next row, or null at the end. */
+        FlyDB.Row read() throws IOException;
+
+        /** Lines skipped as unparseable so far. */
+        default long skipped() {
+            return 0L;
+        }
+    }
+
+    /**
+     * CSV writer.
+     */
+    private static final class CsvWriter implements RowWriter {
+
+        /** Underlying writer. */
+        private final BufferedWriter out;
+
+        private CsvWriter(File file) throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8));
+            out.write(CSV_HEADER);
+            out.newLine();
+        }
+
+        @Override
+        public void write(FlyDB.Row row) throws IOException {
+            out.write(row.uuid().toString());
+            out.write(',');
+            out.write(Integer.toString(row.seconds()));
+            out.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Binary writer.
+     */
+    private static final class BinaryWriter implements RowWriter {
+
+        /** Underlying stream. */
+        private final DataOutputStream out;
+
+        private BinaryWriter(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+        }
+
+        @Override
+        public void write(FlyDB.Row row) throws IOException {
+            out.writeLong(row.uuid().getMostSignificantBits());
+            out.writeLong(row.uuid().getLeastSignificantBits());
+            out.writeInt(row.seconds());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * CSV reader; skips the header, blank lines and lines that are not {@code uuid,seconds}.
+     */
+    private static final class CsvReader implements RowReader {
+
+        /** Underlying reader. */
+        private final BufferedReader in;
+
+        /** Lines skipped as unparseable. */
+        private long skipped;
+
+        private CsvReader(InputStream in) {
+            this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public FlyDB.Row read() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.equalsIgnoreCase(CSV_HEADER)) continue;
+                int comma = line.indexOf(',');
+                try {
+                    if (comma < 0) throw new IllegalArgumentException("missing comma");
+                    UUID uuid = UUID.fromString(line.substring(0, comma).trim());
+                    int seconds = Integer.parseInt(line.substring(comma + 1).trim());
+                    return new FlyDB.Row(uuid, Math.max(0, seconds));
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long skipped() {
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Binary reader; a truncated last record is an error rather than a silently dropped row.
+     */
+    private static final class BinaryReader implements RowReader {
+
+        /** Bytes per record (two longs and an int). */
+        private static final int RECORD_BYTES = 20;
+
+        /** Underlying stream. */
+        private final DataInputStream in;
+
+        /** Reused record buffer. */
+        private final byte[] record = new byte[RECORD_BYTES];
+
+        private BinaryReader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            this.in.readInt();
+            int version = this.in.readInt();
+            if (version != BINARY_VERSION) throw new IOException("Unsupported fly export version " + version);
+        }
+
+        @Override
+        public FlyDB.Row read() throws IOException {
+            int n = in.readNBytes(record, 0, RECORD_BYTES);
+            if (n == 0) return null;
+            if (n < RECORD_BYTES) throw new EOFException("Truncated fly export record");
+            ByteBuffer buf = ByteBuffer.wrap(record);
+            return new FlyDB.Row(new UUID(buf.getLong(), buf.getLong()), Math.max(0, buf.getInt()));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
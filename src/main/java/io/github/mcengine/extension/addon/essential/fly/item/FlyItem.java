@@ -1,6 +1,6 @@
 package io.github.mcengine.extension.addon.essential.fly.item;
 
-import io.github.mcengine.extension.addon.essential.fly.util.FlyDuration;
+import io.github.mcengine.extension.addon.essential.fly.util.DurationUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
@@ -14,14 +14,17 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Factory and utilities for "Fly Time" consumable items.
  * <p>
- * Items carry two PDC entries under the {@code mcengine_essential} namespace:
+ * Items carry three PDC entries under the {@code mcengine_essential} namespace:
  * <ul>
  *   <li>{@code fly_time_add} — a marker (int=1) indicating the item grants fly time when used.</li>
  *   <li>{@code fly_time} — the amount of time (in seconds, int) to grant on use.</li>
+ *   <li>{@code fly_voucher_id} — a random UUID (string) minted per voucher; redeeming records it in the ledger,
+ *       so copies of the item grant only once. Vouchers minted before ids existed have none.</li>
  * </ul>
  * <p>
  * Notes:
@@ -35,6 +38,7 @@ public final class FlyItem {
     /** Namespace + keys (string-based). */
     public static final NamespacedKey KEY_MARKER = NamespacedKey.fromString("mcengine_essential:fly_time_add");
     public static final NamespacedKey KEY_SECONDS = NamespacedKey.fromString("mcengine_essential:fly_time");
+    public static final NamespacedKey KEY_ID = NamespacedKey.fromString("mcengine_essential:fly_voucher_id");
 
     /** Hidden ctor. */
     private FlyItem() {}
@@ -52,13 +56,14 @@ public final class FlyItem {
             meta.setDisplayName("§eFly Time Voucher");
             List<String> lore = new ArrayList<>();
             lore.add("§7Right-click to add:");
-            lore.add("§b" + FlyDuration.formatDuration(Math.max(0, seconds)));
+            lore.add("§b" + DurationUtil.formatCompact(seconds));
             meta.setLore(lore);
             meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
 
             PersistentDataContainer pdc = meta.getPersistentDataContainer();
             if (KEY_MARKER != null) pdc.set(KEY_MARKER, PersistentDataType.INTEGER, 1);
             if (KEY_SECONDS != null) pdc.set(KEY_SECONDS, PersistentDataType.INTEGER, Math.max(0, seconds));
+            if (KEY_ID != null) pdc.set(KEY_ID, PersistentDataType.STRING, UUID.randomUUID().toString());
 
             stack.setItemMeta(meta);
         }
@@ -96,7 +101,7 @@ public final class FlyItem {
                 meta.setDisplayName("§eFly Time Voucher (Head)");
                 List<String> lore = new ArrayList<>();
                 lore.add("§7Right-click to add:");
-                lore.add("§b" + FlyDuration.formatDuration(Math.max(0, seconds)));
+                lore.add("§b" + DurationUtil.formatCompact(seconds));
                 lore.add("§7HDB: §f" + hdbId);
                 meta.setLore(lore);
                 meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES);
@@ -104,6 +109,7 @@ public final class FlyItem {
                 PersistentDataContainer pdc = meta.getPersistentDataContainer();
                 if (KEY_MARKER != null) pdc.set(KEY_MARKER, PersistentDataType.INTEGER, 1);
                 if (KEY_SECONDS != null) pdc.set(KEY_SECONDS, PersistentDataType.INTEGER, Math.max(0, seconds));
+                if (KEY_ID != null) pdc.set(KEY_ID, PersistentDataType.STRING, UUID.randomUUID().toString());
 
                 headStack.setItemMeta(meta);
             }
@@ -133,4 +139,23 @@ public final class FlyItem {
         if (secs == null || secs < 0) return null;
         return secs;
     }
+
+    /**
+     * Helper to read the unique voucher id from an item.
+     *
+     * @param stack item possibly containing voucher PDC
+     * @return the id when present and well-formed; otherwise null (e.g., vouchers minted before ids existed)
+     */
+    public static UUID readVoucherId(ItemStack stack) {
+        if (stack == null || !stack.hasItemMeta()) return null;
+        ItemMeta meta = stack.getItemMeta();
+        if (meta == null || KEY_ID == null) return null;
+        String id = meta.getPersistentDataContainer().get(KEY_ID, PersistentDataType.STRING);
+        if (id == null) return null;
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
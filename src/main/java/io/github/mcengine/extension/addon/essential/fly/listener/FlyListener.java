@@ -1,14 +1,16 @@
 package io.github.mcengine.extension.addon.essential.fly.listener;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
-import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
 import io.github.mcengine.extension.addon.essential.fly.util.FlyDuration;
-import org.bukkit.Bukkit;
+import io.github.mcengine.extension.addon.essential.fly.util.FlyRedemptionQueue;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerKickEvent;
@@ -19,17 +21,21 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Listener that:
  * <ul>
- *   <li>Ensures a default Fly DB record (duration 0) is present when a player joins.</li>
- *   <li>On quit/kick, disables flight, cancels that player's task, and
- *       subtracts partial elapsed time since the last tick using {@code lastTickMillis}.</li>
- *   <li>Detects right-click with a Fly Time voucher and grants the encoded time (consumes one item).</li>
+ *   <li>Loads (and creates if needed) a joining player's Fly DB record on the async pre-login thread,
+ *       stages it in memory, and consumes it on join so the main thread never touches the DB.</li>
+ *   <li>On quit/kick, disables flight, removes that player from the fly wheel,
+ *       subtracts partial elapsed time since the last tick using {@code lastTickMillis},
+ *       and flushes the player's cached duration.</li>
+ *   <li>Detects right-click with a Fly Time voucher and hands it to the per-player {@link FlyRedemptionQueue},
+ *       which takes the item, claims its id in the ledger and grants the encoded time, merging rapid clicks.</li>
  * </ul>
  */
 public class FlyListener implements Listener {
@@ -37,15 +43,24 @@ public class FlyListener implements Listener {
     /** Logger for listener diagnostics. */
     private final MCEngineExtensionLogger logger;
 
-    /** Database accessor for ensuring player rows exist. */
-    private final FlyDB flyDB;
+    /** Asynchronous database accessor for ensuring player rows exist and redeeming vouchers. */
+    private final FlyDBAsync flyDBAsync;
 
     /** Per-player flight/timer manager. */
     private final FlyDuration flyDuration;
 
+    /** Per-player queue that merges voucher clicks into batched redemptions. */
+    private final FlyRedemptionQueue redemptions;
+
     /** Plugin reference for scheduling tasks. */
     private final Plugin plugin;
 
+    /** How long a pre-login prefetch stays usable before it is discarded (e.g., login denied later). */
+    private static final long STAGED_TTL_MILLIS = 60_000L;
+
+    /** Durations loaded during pre-login, waiting for the matching join. */
+    private final Map<UUID, Staged> staged = new ConcurrentHashMap<>();
+
     /** Namespace keys for voucher items. */
     private static final NamespacedKey KEY_MARKER =
             NamespacedKey.fromString("mcengine_essential:fly_time_add");
@@ -56,25 +71,60 @@ public class FlyListener implements Listener {
      * Create a listener for Fly events.
      *
      * @param logger      Logger for diagnostics.
-     * @param flyDB       Database accessor.
+     * @param flyDBAsync  Asynchronous database accessor.
      * @param flyDuration Per-player scheduler manager.
+     * @param redemptions Per-player voucher redemption queue.
      * @param plugin      Owning plugin for task scheduling.
      */
-    public FlyListener(MCEngineExtensionLogger logger, FlyDB flyDB, FlyDuration flyDuration, Plugin plugin) {
+    public FlyListener(MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyDuration flyDuration,
+                       FlyRedemptionQueue redemptions, Plugin plugin) {
         this.logger = logger;
-        this.flyDB = flyDB;
+        this.flyDBAsync = flyDBAsync;
         this.flyDuration = flyDuration;
+        this.redemptions = redemptions;
         this.plugin = plugin;
     }
 
-    /** Ensure the player has a DB row (with default 0) on join. */
-    @EventHandler
-    public void onJoin(PlayerJoinEvent e) {
+    /**
+     * Load (and create if needed) the player's record on the async pre-login thread and stage it for join.
+     * Runs at MONITOR so logins denied by other plugins are skipped.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        long now = System.currentTimeMillis();
+        // Drop prefetches whose join never came
+        staged.values().removeIf(s -> now - s.loadedAt > STAGED_TTL_MILLIS);
+
         try {
-            flyDB.ensurePlayerRow(e.getPlayer().getUniqueId());
+            UUID uuid = e.getUniqueId();
+            int seconds = flyDBAsync.blocking().loadPlayer(uuid);
+            // A failed read is not staged: the join falls back to the row check and the cache loads on first use
+            if (seconds >= 0) staged.put(uuid, new Staged(seconds, now));
         } catch (Exception ex) {
-            logger.warning("Failed to ensure fly row on join: " + ex.getMessage());
+            logger.warning("Failed to prefetch fly row on pre-login: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Consume the pre-login prefetch on join (memory only); falls back to an async row check if none was staged.
+     */
+    @EventHandler
+    public void onJoin(PlayerJoinEvent e) {
+        UUID uuid = e.getPlayer().getUniqueId();
+        // Vouchers handed back by a redemption that finished while the player was away
+        redemptions.restore(e.getPlayer());
+        Staged s = staged.remove(uuid);
+        if (s != null && System.currentTimeMillis() - s.loadedAt <= STAGED_TTL_MILLIS) {
+            flyDBAsync.blocking().prime(uuid, s.seconds);
+            return;
         }
+
+        flyDBAsync.ensurePlayerRow(uuid).exceptionally(ex -> {
+            logger.warning("Failed to ensure fly row on join: " + ex.getMessage());
+            return null;
+        });
     }
 
     @EventHandler
@@ -92,7 +142,13 @@ public class FlyListener implements Listener {
      * <ul>
      *   <li>Right-click anywhere (air or block) with an item carrying
      *       {@code mcengine_essential:fly_time_add=1} and {@code mcengine_essential:fly_time} (seconds).</li>
-     *   <li>Adds the encoded seconds to the player's remaining duration and consumes one item.</li>
+     *   <li>Takes the voucher from the hand and queues it; clicks made while a redemption is at the database are
+     *       merged into one increment (see {@link FlyRedemptionQueue}). A voucher that cannot be redeemed is handed
+     *       back.</li>
+     *   <li>A voucher carrying {@code mcengine_essential:fly_voucher_id} is claimed in the ledger first; a copy of an
+     *       already redeemed voucher grants nothing. Vouchers minted before ids existed are granted directly.</li>
+     *   <li>Sneak-right-click redeems every voucher in the inventory at once
+     *       ({@link FlyRedemptionQueue#enqueueAll}).</li>
      *   <li>Only processes MAIN HAND to prevent double-firing with off-hand.</li>
      * </ul>
      */
@@ -125,66 +181,38 @@ public class FlyListener implements Listener {
         // Prevent default behavior (like placing a head) immediately on main thread
         e.setCancelled(true);
 
-        // Snapshot data for async task
-        final UUID uuid = p.getUniqueId();
-        final int addSeconds = secs;
-
-        // Do DB work asynchronously to avoid blocking the main thread
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                int updated;
-                try {
-                    flyDB.ensurePlayerRow(uuid);
-                    int current = Math.max(0, flyDB.getDuration(uuid));
-                    updated = current + addSeconds;
-                    flyDB.setDuration(uuid, updated);
-                } catch (Exception ex) {
-                    logger.warning("Failed to redeem fly voucher (DB): " + ex.getMessage());
-                    return;
-                }
-
-                // Apply inventory change and send messages back on the main thread
-                final int updatedFinal = updated;
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        Player player = Bukkit.getPlayer(uuid);
-                        if (player == null || !player.isOnline()) return;
-
-                        // Consume exactly one from MAIN HAND if still holding the voucher item
-                        ItemStack currentInHand = player.getInventory().getItemInMainHand();
-                        if (currentInHand != null && currentInHand.hasItemMeta()) {
-                            ItemMeta cm = currentInHand.getItemMeta();
-                            PersistentDataContainer cpdc = cm.getPersistentDataContainer();
-                            Integer cmMarker = KEY_MARKER == null ? null : cpdc.get(KEY_MARKER, PersistentDataType.INTEGER);
-                            Integer cmSecs = KEY_SECONDS == null ? null : cpdc.get(KEY_SECONDS, PersistentDataType.INTEGER);
-
-                            // Only consume if it still looks like the same kind of voucher
-                            if (cmMarker != null && cmMarker == 1 && cmSecs != null && cmSecs == addSeconds) {
-                                int amount = currentInHand.getAmount();
-                                if (amount <= 1) {
-                                    player.getInventory().setItemInMainHand(null);
-                                } else {
-                                    currentInHand.setAmount(amount - 1);
-                                    player.getInventory().setItemInMainHand(currentInHand);
-                                }
-                            }
-                        }
-
-                        player.sendMessage("§aRedeemed voucher. §7Added: §e" +
-                                FlyDuration.formatDuration(addSeconds) +
-                                " §7→ New remaining: §e" +
-                                FlyDuration.formatDuration(updatedFinal) + "§7.");
-                    }
-                }.runTask(plugin);
-            }
-        }.runTaskAsynchronously(plugin);
+        // Sneaking redeems the whole inventory in one batch
+        if (p.isSneaking()) {
+            redemptions.enqueueAll(p);
+            return;
+        }
+
+        // Merge with the player's other pending clicks; the voucher leaves the hand now and is claimed in a batch
+        redemptions.enqueue(p, secs);
     }
 
-    /** Deactivates flight for the given player and cancels their task (with partial deduction + message). */
+    /**
+     * Deactivates flight for the given player and removes them from the fly wheel (with partial deduction + message),
+     * hands off their flight lease, then writes their cached duration back on the Fly I/O executor (all queued in that order).
+     */
     private void deactivate(Player p) {
         UUID uuid = p.getUniqueId();
+        redemptions.forget(p);
         flyDuration.deactivate(uuid, true, true);
+        // Hand the lease off after the partial charge (no-op without leases)
+        flyDuration.release(uuid);
+
+        flyDBAsync.evict(uuid).exceptionally(ex -> {
+            logger.warning("Failed to flush fly duration on leave: " + ex.getMessage());
+            return null;
+        });
     }
+
+    /**
+     * Duration loaded during pre-login.
+     *
+     * @param seconds  Remaining seconds at load time.
+     * @param loadedAt Load time in millis.
+     */
+    private record Staged(int seconds, long loadedAt) {}
 }
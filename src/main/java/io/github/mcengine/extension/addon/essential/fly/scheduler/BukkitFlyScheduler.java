@@ -0,0 +1,51 @@
+package io.github.mcengine.extension.addon.essential.fly.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * {@link FlyScheduler} for Spigot and Paper: player and global work both run on the single main thread.
+ */
+final class BukkitFlyScheduler implements FlyScheduler {
+
+    /** Owning plugin. */
+    private final Plugin plugin;
+
+    BukkitFlyScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task) {
+        runGlobal(task);
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    @Override
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        BukkitTask t = Bukkit.getScheduler().runTaskLater(plugin, task, Math.max(1L, delayTicks));
+        return t::cancel;
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        BukkitTask t = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, Math.max(1L, periodTicks));
+        return t::cancel;
+    }
+
+    @Override
+    public Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        BukkitTask t = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, Math.max(1L, periodTicks));
+        return t::cancel;
+    }
+}
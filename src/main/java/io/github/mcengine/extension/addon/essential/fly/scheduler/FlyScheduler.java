@@ -0,0 +1,64 @@
+package io.github.mcengine.extension.addon.essential.fly.scheduler;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Scheduling abstraction for the Fly AddOn.
+ * <p>
+ * Work is split by what it touches:
+ * <ul>
+ *   <li><b>player</b> – flight flags, messages, inventory: runs on the thread that owns the player
+ *       (the entity scheduler on Folia, the main thread elsewhere).</li>
+ *   <li><b>global</b> – the flight wheel and deadline tasks: the global region thread on Folia, the main thread elsewhere.</li>
+ *   <li><b>async</b> – periodic I/O such as cache flushes and snapshots.</li>
+ * </ul>
+ * Use {@link #create(Plugin)} to get the implementation for the running server.
+ */
+public interface FlyScheduler {
+
+    /**
+     * Handle to a scheduled task.
+     */
+    @FunctionalInterface
+    interface Task {
+        /** Cancel the task (no-op if it already ran or was cancelled). */
+        void cancel();
+    }
+
+    /**
+     * Run {@code task} on the thread that owns {@code player}; immediately when already there.
+     * Dropped when the player is gone or the plugin is disabled.
+     */
+    void runForPlayer(Player player, Runnable task);
+
+    /**
+     * Run {@code task} on the global thread; immediately when already there. Dropped when the plugin is disabled.
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Run {@code task} once on the global thread after {@code delayTicks}.
+     */
+    Task runGlobalLater(Runnable task, long delayTicks);
+
+    /**
+     * Run {@code task} repeatedly on the global thread.
+     */
+    Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Run {@code task} repeatedly off the server threads.
+     */
+    Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Pick the scheduler for the running server: Folia's region schedulers when available, Bukkit's otherwise.
+     *
+     * @param plugin Owning plugin.
+     * @return A scheduler bound to {@code plugin}.
+     */
+    static FlyScheduler create(Plugin plugin) {
+        return FoliaFlyScheduler.isSupported() ? new FoliaFlyScheduler(plugin) : new BukkitFlyScheduler(plugin);
+    }
+}
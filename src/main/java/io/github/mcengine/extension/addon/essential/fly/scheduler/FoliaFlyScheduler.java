@@ -0,0 +1,157 @@
+package io.github.mcengine.extension.addon.essential.fly.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link FlyScheduler} for Folia: player work goes to the player's entity scheduler (their region thread),
+ * wheel and deadline work to the global region scheduler, and I/O timers to the async scheduler.
+ * <p>
+ * The Folia scheduler API is not on the Spigot compile classpath, so it is bound reflectively once at construction.
+ */
+final class FoliaFlyScheduler implements FlyScheduler {
+
+    /** Milliseconds per server tick, for the async scheduler's wall-clock delays. */
+    private static final long MILLIS_PER_TICK = 50L;
+
+    /** Owning plugin. */
+    private final Plugin plugin;
+
+    /** {@code GlobalRegionScheduler} instance. */
+    private final Object global;
+
+    /** {@code AsyncScheduler} instance. */
+    private final Object async;
+
+    /** {@code GlobalRegionScheduler#execute(Plugin, Runnable)}. */
+    private final Method globalExecute;
+
+    /** {@code GlobalRegionScheduler#runDelayed(Plugin, Consumer, long)}. */
+    private final Method globalRunDelayed;
+
+    /** {@code GlobalRegionScheduler#runAtFixedRate(Plugin, Consumer, long, long)}. */
+    private final Method globalRunAtFixedRate;
+
+    /** {@code AsyncScheduler#runAtFixedRate(Plugin, Consumer, long, long, TimeUnit)}. */
+    private final Method asyncRunAtFixedRate;
+
+    /** {@code Entity#getScheduler()}. */
+    private final Method entityGetScheduler;
+
+    /** {@code EntityScheduler#execute(Plugin, Runnable, Runnable, long)}. */
+    private final Method entityExecute;
+
+    /** {@code Server#isOwnedByCurrentRegion(Entity)}. */
+    private final Method ownedByCurrentRegion;
+
+    /** {@code Server#isGlobalTickThread()}. */
+    private final Method globalTickThread;
+
+    /** {@code ScheduledTask#cancel()}. */
+    private final Method taskCancel;
+
+    FoliaFlyScheduler(Plugin plugin) {
+        this.plugin = plugin;
+        try {
+            Class<?> globalType = Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler");
+            Class<?> asyncType = Class.forName("io.papermc.paper.threadedregions.scheduler.AsyncScheduler");
+            Class<?> entityType = Class.forName("io.papermc.paper.threadedregions.scheduler.EntityScheduler");
+            Class<?> taskType = Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask");
+
+            Server server = Bukkit.getServer();
+            global = Server.class.getMethod("getGlobalRegionScheduler").invoke(server);
+            async = Server.class.getMethod("getAsyncScheduler").invoke(server);
+            globalExecute = globalType.getMethod("execute", Plugin.class, Runnable.class);
+            globalRunDelayed = globalType.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+            globalRunAtFixedRate = globalType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+            asyncRunAtFixedRate = asyncType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+            entityGetScheduler = Entity.class.getMethod("getScheduler");
+            entityExecute = entityType.getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+            ownedByCurrentRegion = Server.class.getMethod("isOwnedByCurrentRegion", Entity.class);
+            globalTickThread = Server.class.getMethod("isGlobalTickThread");
+            taskCancel = taskType.getMethod("cancel");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Folia scheduler API not available", e);
+        }
+    }
+
+    /**
+     * Whether the running server is Folia.
+     */
+    static boolean isSupported() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task) {
+        if (player == null) return;
+        if ((boolean) invoke(ownedByCurrentRegion, Bukkit.getServer(), player)) {
+            task.run();
+            return;
+        }
+        if (!plugin.isEnabled()) return;
+        Object scheduler = invoke(entityGetScheduler, player);
+        // Retired callback is null: work for a player who left is dropped, like Bukkit.getPlayer(...) == null
+        invoke(entityExecute, scheduler, plugin, task, null, 1L);
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        if ((boolean) invoke(globalTickThread, Bukkit.getServer())) {
+            task.run();
+        } else if (plugin.isEnabled()) {
+            invoke(globalExecute, global, plugin, task);
+        }
+    }
+
+    @Override
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        Consumer<Object> body = scheduled -> task.run();
+        return handle(invoke(globalRunDelayed, global, plugin, body, Math.max(1L, delayTicks)));
+    }
+
+    @Override
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> body = scheduled -> task.run();
+        return handle(invoke(globalRunAtFixedRate, global, plugin, body, Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+
+    @Override
+    public Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        Consumer<Object> body = scheduled -> task.run();
+        return handle(invoke(asyncRunAtFixedRate, async, plugin, body,
+                Math.max(1L, delayTicks) * MILLIS_PER_TICK, Math.max(1L, periodTicks) * MILLIS_PER_TICK, TimeUnit.MILLISECONDS));
+    }
+
+    /** Wrap a {@code ScheduledTask}. */
+    private Task handle(Object scheduledTask) {
+        return () -> invoke(taskCancel, scheduledTask);
+    }
+
+    /** Invoke a bound method, unwrapping reflective failures. */
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
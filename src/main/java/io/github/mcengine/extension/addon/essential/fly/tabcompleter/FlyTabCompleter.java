@@ -16,11 +16,14 @@ import java.util.List;
  * <p>
  * Supports:
  * <ul>
- *   <li>{@code /fly} → {@code on}, {@code off}, {@code get}, {@code time} (if permitted)</li>
+ *   <li>{@code /fly} → {@code on}, {@code off}, {@code get}, {@code redeem}, {@code time}, {@code data} and {@code stats} (if permitted)</li>
  *   <li>{@code /fly get} → {@code time}, {@code item}</li>
  *   <li>{@code /fly get item} → {@code <seconds>} or {@code <hdbId> <seconds>}</li>
+ *   <li>{@code /fly redeem} → {@code all}</li>
  *   <li>{@code /fly time} → {@code add} (if permitted)</li>
- *   <li>{@code /fly time add <player> <seconds>} → online player names and common second values</li>
+ *   <li>{@code /fly time add <player> <seconds>} → online player names (plus bulk targets if permitted) and common second values</li>
+ *   <li>{@code /fly data} → {@code export}, {@code import}, {@code migrate}; {@code /fly data export} → {@code csv}, {@code bin} (if permitted)</li>
+ *   <li>{@code /fly stats} → {@code reset} (if permitted)</li>
  * </ul>
  */
 public class FlyTabCompleter implements TabCompleter {
@@ -37,10 +40,15 @@ public class FlyTabCompleter implements TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         final boolean canAdmin = sender.hasPermission("essential.fly.add");
+        final boolean canBulk = sender.hasPermission("essential.fly.add.bulk");
+        final boolean canStats = sender.hasPermission("essential.fly.stats");
+        final boolean canData = sender.hasPermission("essential.fly.data");
 
         if (args.length == 1) {
-            List<String> base = new ArrayList<>(Arrays.asList("on", "off", "get"));
+            List<String> base = new ArrayList<>(Arrays.asList("on", "off", "get", "redeem"));
             if (canAdmin) base.add("time");
+            if (canData) base.add("data");
+            if (canStats) base.add("stats");
             return prefixFilter(base, args[0]);
         }
 
@@ -49,6 +57,11 @@ public class FlyTabCompleter implements TabCompleter {
             return prefixFilter(Arrays.asList("time", "item"), args[1]);
         }
 
+        // /fly redeem ...
+        if (args.length == 2 && args[0].equalsIgnoreCase("redeem")) {
+            return prefixFilter(Collections.singletonList("all"), args[1]);
+        }
+
         // /fly get item ...
         if (args.length >= 3 && args[0].equalsIgnoreCase("get") && args[1].equalsIgnoreCase("item")) {
             // If user types only 1 more arg: seconds suggestion
@@ -62,6 +75,20 @@ public class FlyTabCompleter implements TabCompleter {
             }
         }
 
+        // /fly data ...
+        if (args.length >= 2 && args[0].equalsIgnoreCase("data")) {
+            if (!canData) return Collections.emptyList();
+            if (args.length == 2) return prefixFilter(Arrays.asList("export", "import", "migrate"), args[1]);
+            if (args.length == 3 && args[1].equalsIgnoreCase("export")) return prefixFilter(Arrays.asList("csv", "bin"), args[2]);
+            return Collections.emptyList();
+        }
+
+        // /fly stats ...
+        if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            if (!canStats) return Collections.emptyList();
+            return prefixFilter(Collections.singletonList("reset"), args[1]);
+        }
+
         // /fly time ...
         if (args.length >= 2 && args[0].equalsIgnoreCase("time")) {
             if (!canAdmin) return Collections.emptyList();
@@ -76,6 +103,7 @@ public class FlyTabCompleter implements TabCompleter {
                 for (Player p : Bukkit.getOnlinePlayers()) {
                     names.add(p.getName());
                 }
+                if (canBulk) names.addAll(Arrays.asList("@online", "@all", "perm:", "file:"));
                 return prefixFilter(names, args[2]);
             }
 
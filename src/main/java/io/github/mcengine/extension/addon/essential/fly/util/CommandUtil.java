@@ -1,16 +1,38 @@
 package io.github.mcengine.extension.addon.essential.fly.util;
 
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import io.github.mcengine.extension.addon.essential.fly.database.transfer.FlyTransfer;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
 /**
  * Utility methods for the Fly AddOn command layer.
  * <p>
  * Responsibilities:
  * <ul>
- *   <li>Admin subcommands routing (e.g., {@code /fly time add ...}).</li>
+ *   <li>Admin subcommands routing (e.g., {@code /fly time add ...}, {@code /fly stats}).</li>
+ *   <li>Bulk grants to {@code @online}, {@code @all}, {@code perm:<node>} or {@code file:<name>} as set-based DB calls.</li>
+ *   <li>Streaming export, import and migration of the {@code fly} table ({@code /fly data ...}).</li>
  *   <li>Validation helpers (permissions, parsing, player lookup).</li>
  *   <li>Consistent messaging and formatted time display.</li>
  * </ul>
@@ -22,6 +44,36 @@ public final class CommandUtil {
      */
     private static final String PERM_ADD = "essential.fly.add";
 
+    /**
+     * Permission required for bulk time grants ({@code @online}, {@code @all}, {@code perm:}, {@code file:}).
+     */
+    private static final String PERM_ADD_BULK = "essential.fly.add.bulk";
+
+    /**
+     * Permission required to export, import and migrate the {@code fly} table.
+     */
+    private static final String PERM_DATA = "essential.fly.data";
+
+    /**
+     * Permission required to view and reset runtime statistics.
+     */
+    private static final String PERM_STATS = "essential.fly.stats";
+
+    /**
+     * Target prefix selecting online players with a permission node (e.g., {@code perm:group.vip} for a group).
+     */
+    private static final String TARGET_PERM = "perm:";
+
+    /**
+     * Target prefix naming a UUID list file (one UUID per line) inside the Fly folder.
+     */
+    private static final String TARGET_FILE = "file:";
+
+    /**
+     * UUIDs read from a list file per set-based grant, so memory stays flat for any file size.
+     */
+    private static final int FILE_CHUNK = 1_000;
+
     /**
      * Hidden constructor to enforce static-only usage.
      */
@@ -30,35 +82,43 @@ public final class CommandUtil {
     /**
      * Entry point for {@code /fly time ...} subcommands.
      *
-     * @param sender The command sender.
-     * @param args   The raw arguments (expects "time" at index 0).
-     * @param flyDB  Database accessor.
+     * @param sender     The command sender.
+     * @param args       The raw arguments (expects "time" at index 0).
+     * @param flyDBAsync  Asynchronous database accessor.
+     * @param flyDuration Flight manager (applies grants to active flyers).
+     * @param folder      Fly folder ({@code file:} targets are read from it).
      * @return true if handled (including error/help paths).
      */
-    public static boolean handleTimeSubcommand(CommandSender sender, String[] args, FlyDB flyDB) {
-        // /fly time add <player> <seconds>
+    public static boolean handleTimeSubcommand(CommandSender sender, String[] args, FlyDBAsync flyDBAsync,
+                                               FlyDuration flyDuration, File folder) {
+        // /fly time add <target> <seconds>
         if (args.length == 4 && equalsIgnoreCase(args[1], "add")) {
-            return handleTimeAdd(sender, flyDB, args[2], args[3]);
+            if (isBulkTarget(args[2])) {
+                return handleBulkTimeAdd(sender, flyDBAsync, flyDuration, folder, args[2], args[3]);
+            }
+            return handleTimeAdd(sender, flyDBAsync, flyDuration, args[2], args[3]);
         }
 
         // Usage help for /fly time
-        sender.sendMessage("§7Usage: §f/fly time add <player> <seconds>");
+        sender.sendMessage("§7Usage: §f/fly time add <player|@online|@all|perm:<node>|file:<name>> <seconds>");
         return true;
     }
 
     /**
      * Implements {@code /fly time add <player> <seconds>}.
      * <p>
-     * Ensures permissions, validates input, upserts row, and reports updated remaining time
-     * using {@link FlyDuration#formatDuration(int)}.
+     * Ensures permissions, validates input, atomically adds the time on the Fly I/O executor, and reports updated
+     * remaining time on the main thread using {@link DurationUtil#formatCompact(int)}.
      *
-     * @param sender     The command sender (must have {@code essential.fly.add}).
-     * @param flyDB      Database accessor.
-     * @param playerName Target player (must be online).
-     * @param secondsStr Seconds to add (positive integer).
+     * @param sender      The command sender (must have {@code essential.fly.add}).
+     * @param flyDBAsync  Asynchronous database accessor.
+     * @param flyDuration Flight manager (applies grants to active flyers).
+     * @param playerName  Target player (must be online).
+     * @param secondsStr  Seconds to add (positive integer).
      * @return true if handled.
      */
-    public static boolean handleTimeAdd(CommandSender sender, FlyDB flyDB, String playerName, String secondsStr) {
+    public static boolean handleTimeAdd(CommandSender sender, FlyDBAsync flyDBAsync, FlyDuration flyDuration,
+                                        String playerName, String secondsStr) {
         if (!sender.hasPermission(PERM_ADD)) {
             sender.sendMessage("§cYou don't have permission to use this command.");
             return true;
@@ -76,17 +136,387 @@ public final class CommandUtil {
             return true;
         }
 
-        flyDB.ensurePlayerRow(target.getUniqueId());
-        int current = Math.max(0, flyDB.getDuration(target.getUniqueId()));
-        int updated = current + addSeconds;
-        flyDB.setDuration(target.getUniqueId(), updated);
+        final UUID uuid = target.getUniqueId();
+        final int add = addSeconds;
+        flyDBAsync.thenOnMain(flyDBAsync.addDuration(uuid, add), "time add", stored -> {
+            if (stored < 0) {
+                reply(sender, flyDBAsync, "§cCould not add flight time to §b" + target.getName() + "§c: database error (see console).");
+                return;
+            }
+            int updated = flyDuration.applyGrant(uuid, add, stored);
+            String formatted = DurationUtil.formatCompact(updated);
+            reply(sender, flyDBAsync, "§aAdded §e" + add + "s §ato §b" + target.getName() + "§a. New remaining: §e" + formatted + "§a.");
+            if (target.isOnline()) {
+                flyDBAsync.scheduler().runForPlayer(target, () ->
+                        target.sendMessage("§aYou received §e" + add + "s §aof flight time. Remaining: §e" + formatted + "§a."));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Implements {@code /fly time add <target> <seconds>} for bulk targets:
+     * <ul>
+     *   <li>{@code @online} — every online player, in chunked set-based statements.</li>
+     *   <li>{@code @all} — every stored player, in one {@code UPDATE}.</li>
+     *   <li>{@code perm:<node>} — online players with the permission (groups via their {@code group.<name>} node).</li>
+     *   <li>{@code file:<name>} — UUIDs listed in a file in the Fly folder, streamed in chunks of {@value #FILE_CHUNK}.</li>
+     * </ul>
+     * Online recipients are applied to the flight manager and notified; the sender gets a single summary.
+     *
+     * @param sender      The command sender (must have {@code essential.fly.add.bulk}).
+     * @param flyDBAsync  Asynchronous database accessor.
+     * @param flyDuration Flight manager (applies grants to active flyers).
+     * @param folder      Fly folder holding list files.
+     * @param target      Bulk target.
+     * @param secondsStr  Seconds to add (positive integer).
+     * @return true if handled.
+     */
+    public static boolean handleBulkTimeAdd(CommandSender sender, FlyDBAsync flyDBAsync, FlyDuration flyDuration,
+                                            File folder, String target, String secondsStr) {
+        if (!sender.hasPermission(PERM_ADD_BULK)) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
 
-        String formatted = FlyDuration.formatDuration(updated);
-        sender.sendMessage("§aAdded §e" + addSeconds + "s §ato §b" + target.getName() + "§a. New remaining: §e" + formatted + "§a.");
-        target.sendMessage("§aYou received §e" + addSeconds + "s §aof flight time. Remaining: §e" + formatted + "§a.");
+        Integer addSeconds = parsePositiveInt(secondsStr);
+        if (addSeconds == null) {
+            sender.sendMessage("§cInvalid number for seconds: '" + secondsStr + "'.");
+            return true;
+        }
+        final int add = addSeconds;
+
+        // Snapshot online recipients here; the DB work only sees their UUIDs
+        Map<UUID, Player> online = new HashMap<>();
+        String lower = target.toLowerCase(Locale.ROOT);
+        CompletableFuture<BulkGrant> work;
+        if (lower.equals("@online") || lower.startsWith(TARGET_PERM)) {
+            String node = lower.startsWith(TARGET_PERM) ? target.substring(TARGET_PERM.length()) : null;
+            if (node != null && node.isBlank()) {
+                sender.sendMessage("§cMissing permission node: §fperm:<node>");
+                return true;
+            }
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                if (node == null || p.hasPermission(node)) online.put(p.getUniqueId(), p);
+            }
+            List<UUID> uuids = new ArrayList<>(online.keySet());
+            work = flyDBAsync.submit(db -> {
+                Map<UUID, Integer> stored = db.addDurations(uuids, add);
+                return new BulkGrant(stored.size(), 0, stored);
+            });
+        } else if (lower.equals("@all")) {
+            for (Player p : Bukkit.getOnlinePlayers()) online.put(p.getUniqueId(), p);
+            List<UUID> uuids = new ArrayList<>(online.keySet());
+            work = flyDBAsync.submit(db -> {
+                int credited = db.addDurationAll(add);
+                if (credited < 0) return new BulkGrant(-1, 0, Map.of(), "database error (see console)");
+                Map<UUID, Integer> stored = new HashMap<>();
+                // Online players are cached, so these reads are served from memory
+                if (credited > 0) {
+                    for (UUID uuid : uuids) {
+                        int seconds = db.getDuration(uuid);
+                        if (seconds >= 0) stored.put(uuid, seconds);
+                    }
+                }
+                return new BulkGrant(credited, 0, stored);
+            });
+        } else if (lower.startsWith(TARGET_FILE)) {
+            File file = resolveFolderFile(folder, target.substring(TARGET_FILE.length()));
+            if (file == null) {
+                sender.sendMessage("§cList files must be named by file name only, inside the Fly folder.");
+                return true;
+            }
+            if (!file.isFile()) {
+                sender.sendMessage("§cList file not found: §f" + file.getName());
+                return true;
+            }
+            for (Player p : Bukkit.getOnlinePlayers()) online.put(p.getUniqueId(), p);
+            Set<UUID> onlineIds = new HashSet<>(online.keySet());
+            work = flyDBAsync.submit(db -> grantFromFile(db, file, add, onlineIds));
+        } else {
+            sender.sendMessage("§cUnknown target '" + target + "'. §7Use §f@online§7, §f@all§7, §fperm:<node>§7 or §ffile:<name>§7.");
+            return true;
+        }
+
+        flyDBAsync.thenOnMain(work, "bulk time add", result -> {
+            if (result.credited() < 0) {
+                reply(sender, flyDBAsync, "§cBulk grant to " + target + " failed: " + result.error());
+                return;
+            }
+            for (Map.Entry<UUID, Integer> me : result.online().entrySet()) {
+                Player p = online.get(me.getKey());
+                if (p == null) continue;
+                String formatted = DurationUtil.formatCompact(flyDuration.applyGrant(me.getKey(), add, me.getValue()));
+                if (p.isOnline()) {
+                    flyDBAsync.scheduler().runForPlayer(p, () ->
+                            p.sendMessage("§aYou received §e" + add + "s §aof flight time. Remaining: §e" + formatted + "§a."));
+                }
+            }
+            StringBuilder summary = new StringBuilder(96).append("§aAdded §e").append(add).append("s §ato §e")
+                    .append(result.credited()).append(" §aplayer(s) §7(").append(target).append(")");
+            if (result.skipped() > 0) summary.append("§7, skipped §e").append(result.skipped()).append(" §7invalid line(s)");
+            if (result.error() != null) summary.append(" §c— stopped early: ").append(result.error());
+            reply(sender, flyDBAsync, summary.append("§a.").toString());
+        });
         return true;
     }
 
+    /**
+     * Credit every UUID listed in {@code file} (one per line; blank lines and {@code #} comments ignored),
+     * {@value #FILE_CHUNK} at a time. Runs on the Fly I/O executor.
+     *
+     * @return Totals, plus the stored values of listed players in {@code onlineIds}.
+     */
+    private static BulkGrant grantFromFile(FlyDB db, File file, int add, Set<UUID> onlineIds) {
+        Map<UUID, Integer> online = new HashMap<>();
+        List<UUID> chunk = new ArrayList<>(FILE_CHUNK);
+        int credited = 0;
+        int skipped = 0;
+        String error = null;
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    chunk.add(UUID.fromString(line));
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                    continue;
+                }
+                if (chunk.size() == FILE_CHUNK) {
+                    credited += grantChunk(db, chunk, add, onlineIds, online);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+        }
+        // Whatever was read before an error is still granted
+        if (!chunk.isEmpty()) credited += grantChunk(db, chunk, add, onlineIds, online);
+        if (error != null && credited == 0) return new BulkGrant(-1, skipped, online, error);
+        return new BulkGrant(credited, skipped, online, error);
+    }
+
+    /**
+     * Credit one chunk and keep the stored values of online players.
+     *
+     * @return Players credited.
+     */
+    private static int grantChunk(FlyDB db, List<UUID> chunk, int add, Set<UUID> onlineIds, Map<UUID, Integer> online) {
+        Map<UUID, Integer> stored = db.addDurations(chunk, add);
+        for (Map.Entry<UUID, Integer> me : stored.entrySet()) {
+            if (onlineIds.contains(me.getKey())) online.put(me.getKey(), me.getValue());
+        }
+        return stored.size();
+    }
+
+    /**
+     * Resolve a file name inside the Fly folder (list files, exports).
+     *
+     * @return The file, or null if {@code name} is empty or is a path rather than a plain file name.
+     */
+    private static File resolveFolderFile(File folder, String name) {
+        if (name == null || name.isBlank() || name.contains("/") || name.contains("\\") || name.equals("..")) return null;
+        return new File(folder, name);
+    }
+
+    /**
+     * Implements {@code /fly data ...}:
+     * <ul>
+     *   <li>{@code export <csv|bin> <file>} — stream every stored player to a file in the Fly folder.</li>
+     *   <li>{@code import <file>} — upsert every row of an export (format detected) into the live backend.</li>
+     *   <li>{@code migrate} — copy every stored player from the configured {@code migration.source} backend.</li>
+     * </ul>
+     * All run page by page on the Fly I/O executor (see {@link FlyTransfer}); the sender is told when they finish.
+     *
+     * @param sender          The command sender (must have {@code essential.fly.data}).
+     * @param args            The raw arguments (expects "data" at index 0).
+     * @param flyDBAsync      Asynchronous database accessor (the live backend).
+     * @param folder          Fly folder holding export files.
+     * @param migrationSource Opens the configured migration source; returns null when none is configured.
+     * @return true if handled.
+     */
+    public static boolean handleDataSubcommand(CommandSender sender, String[] args, FlyDBAsync flyDBAsync,
+                                               File folder, Supplier<FlyDB> migrationSource) {
+        if (!sender.hasPermission(PERM_DATA)) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
+        long started = System.currentTimeMillis();
+
+        // /fly data export <csv|bin> <file>
+        if (args.length == 4 && equalsIgnoreCase(args[1], "export")) {
+            FlyTransfer.Format format = FlyTransfer.Format.parse(args[2]);
+            if (format == null) {
+                sender.sendMessage("§cUnknown format '" + args[2] + "'. §7Use §fcsv §7or §fbin§7.");
+                return true;
+            }
+            File file = resolveFolderFile(folder, args[3]);
+            if (file == null) {
+                sender.sendMessage("§cExport files must be named by file name only, inside the Fly folder.");
+                return true;
+            }
+            sender.sendMessage("§7Exporting fly durations to §f" + file.getName() + "§7...");
+            FlyTransfer.export(flyDBAsync, file, format).whenComplete((rows, error) -> {
+                if (error != null) {
+                    reply(sender, flyDBAsync, "§cExport failed: " + causeMessage(error));
+                    return;
+                }
+                reply(sender, flyDBAsync, "§aExported §e" + rows + " §aplayer(s) to §f" + file.getName()
+                        + " §7(" + elapsed(started) + ")§a.");
+            });
+            return true;
+        }
+
+        // /fly data import <file>
+        if (args.length == 3 && equalsIgnoreCase(args[1], "import")) {
+            File file = resolveFolderFile(folder, args[2]);
+            if (file == null || !file.isFile()) {
+                sender.sendMessage("§cExport file not found in the Fly folder: §f" + args[2]);
+                return true;
+            }
+            sender.sendMessage("§7Importing fly durations from §f" + file.getName() + "§7...");
+            FlyTransfer.importFile(flyDBAsync, file).whenComplete((result, error) -> {
+                if (error != null) {
+                    reply(sender, flyDBAsync, "§cImport failed: " + causeMessage(error));
+                    return;
+                }
+                String skipped = result.skipped() > 0 ? "§7, skipped §e" + result.skipped() + " §7invalid line(s)" : "";
+                reply(sender, flyDBAsync, "§aImported §e" + result.rows() + " §aplayer(s)" + skipped
+                        + " §7(" + elapsed(started) + ")§a.");
+            });
+            return true;
+        }
+
+        // /fly data migrate
+        if (args.length == 2 && equalsIgnoreCase(args[1], "migrate")) {
+            FlyDB source;
+            try {
+                source = migrationSource.get();
+            } catch (RuntimeException e) {
+                sender.sendMessage("§cCould not open the migration source: " + e.getMessage());
+                return true;
+            }
+            if (source == null) {
+                sender.sendMessage("§cNo migration source configured (§fmigration.source.*§c in the Fly config).");
+                return true;
+            }
+            sender.sendMessage("§7Migrating fly durations from the configured source...");
+            FlyTransfer.migrate(flyDBAsync, source).whenComplete((rows, error) -> {
+                source.close();
+                if (error != null) {
+                    reply(sender, flyDBAsync, "§cMigration failed: " + causeMessage(error));
+                    return;
+                }
+                reply(sender, flyDBAsync, "§aMigrated §e" + rows + " §aplayer(s) §7(" + elapsed(started) + ")§a.");
+            });
+            return true;
+        }
+
+        sender.sendMessage("§7Usage: §f/fly data export <csv|bin> <file> §7| §f/fly data import <file> §7| §f/fly data migrate");
+        return true;
+    }
+
+    /**
+     * Compact time since {@code startedMillis}.
+     */
+    private static String elapsed(long startedMillis) {
+        return DurationUtil.formatCompact((int) ((System.currentTimeMillis() - startedMillis) / 1000L));
+    }
+
+    /**
+     * Message of the underlying failure, unwrapped from async and unchecked I/O wrappers.
+     */
+    private static String causeMessage(Throwable error) {
+        Throwable t = error;
+        while ((t instanceof CompletionException || t instanceof UncheckedIOException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t.getMessage();
+    }
+
+    /**
+     * Whether a {@code /fly time add} target selects many players rather than naming one.
+     */
+    private static boolean isBulkTarget(String target) {
+        if (target == null) return false;
+        String lower = target.toLowerCase(Locale.ROOT);
+        return lower.startsWith("@") || lower.startsWith(TARGET_PERM) || lower.startsWith(TARGET_FILE);
+    }
+
+    /**
+     * Send a message to the command sender on the thread that owns them.
+     */
+    private static void reply(CommandSender sender, FlyDBAsync flyDBAsync, String message) {
+        if (sender instanceof Player senderPlayer) {
+            flyDBAsync.scheduler().runForPlayer(senderPlayer, () -> senderPlayer.sendMessage(message));
+        } else {
+            sender.sendMessage(message);
+        }
+    }
+
+    /**
+     * Implements {@code /fly stats [reset]}: prints (or clears) the runtime counters.
+     *
+     * @param sender      The command sender (must have {@code essential.fly.stats}).
+     * @param args        The raw arguments (expects "stats" at index 0).
+     * @param stats       Runtime counters.
+     * @param flyDuration Flight manager (active flyer count).
+     * @param flyDBAsync  Asynchronous database accessor (recovered error count).
+     * @return true if handled.
+     */
+    public static boolean handleStatsSubcommand(CommandSender sender, String[] args, FlyStats stats,
+                                                FlyDuration flyDuration, FlyDBAsync flyDBAsync) {
+        if (!sender.hasPermission(PERM_STATS)) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
+
+        if (args.length == 2 && equalsIgnoreCase(args[1], "reset")) {
+            stats.reset();
+            sender.sendMessage("§aFly stats reset.");
+            return true;
+        }
+        if (args.length != 1) {
+            sender.sendMessage("§7Usage: §f/fly stats §7or §f/fly stats reset");
+            return true;
+        }
+
+        int since = (int) ((System.currentTimeMillis() - stats.since()) / 1000L);
+        sender.sendMessage(DurationUtil.message("§6Fly stats §7(last ", since, ")"));
+        sender.sendMessage("§7Active flyers: §e" + flyDuration.activeCount());
+        sender.sendMessage("§7Wheel tick: " + histogramLine(stats.tick));
+        sender.sendMessage("§7Voucher redemptions: §e" + stats.redemptionsLastMinute() + "§7/min (total §e"
+                + stats.redemptions() + "§7)");
+        // Recovered = logged inside a backend and answered with a fallback; thrown = surfaced to the caller
+        sender.sendMessage("§7DB errors: §e" + flyDBAsync.blocking().errorCount() + "§7 recovered, §e"
+                + stats.calls.errors() + "§7 thrown (backend §e" + stats.backend.errors() + "§7)");
+        sendDbStats(sender, stats.calls);
+        sendDbStats(sender, stats.backend);
+        return true;
+    }
+
+    /**
+     * Print one line per measured operation of a {@code FlyDB} layer (operations never called are skipped).
+     */
+    private static void sendDbStats(CommandSender sender, FlyStats.DbStats db) {
+        sender.sendMessage("§7DB " + db.name + ":");
+        for (FlyStats.Op op : FlyStats.Op.values()) {
+            LatencyHistogram h = db.op(op);
+            if (h.count() == 0) continue;
+            sender.sendMessage("§7  " + op.label + ": " + histogramLine(h));
+        }
+    }
+
+    /**
+     * Render {@code count, p50, p99} for a histogram.
+     */
+    private static String histogramLine(LatencyHistogram h) {
+        return "§e" + h.count() + "§7 calls, p50 §e" + FlyStats.formatNanos(h.percentile(0.50))
+                + "§7, p99 §e" + FlyStats.formatNanos(h.percentile(0.99));
+    }
+
     /**
      * Get an online player by exact name.
      *
@@ -123,4 +553,19 @@ public final class CommandUtil {
         if (a == null || b == null) return false;
         return a.equalsIgnoreCase(b);
     }
+
+    /**
+     * Outcome of a bulk grant.
+     *
+     * @param credited Players credited, or {@code -1} if nothing could be granted.
+     * @param skipped  List file lines that were not UUIDs.
+     * @param online   Stored values of credited players that were online when the command ran.
+     * @param error    Why the grant failed or stopped early; null on success.
+     */
+    private record BulkGrant(int credited, int skipped, Map<UUID, Integer> online, String error) {
+
+        private BulkGrant(int credited, int skipped, Map<UUID, Integer> online) {
+            this(credited, skipped, online, null);
+        }
+    }
 }
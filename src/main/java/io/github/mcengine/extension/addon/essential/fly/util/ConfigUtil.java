@@ -6,6 +6,7 @@ import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.UUID;
 
 /**
  * Utility functions for configuration tasks in the Fly AddOn.
@@ -15,6 +16,12 @@ import java.io.IOException;
  *   <li>Ensure {@code config.yml} exists under the Fly folder with {@code license: free} by default.</li>
  *   <li>Read the license value.</li>
  *   <li>Read the database type from the root plugin config ({@code database.type}).</li>
+ *   <li>Read the duration cache flush interval ({@code cache.flush-interval-seconds}) and journal switch ({@code cache.journal}).</li>
+ *   <li>Read the cross-server cache invalidation settings ({@code cache.invalidation.*}).</li>
+ *   <li>Read the flight accounting mode ({@code flight.accounting}).</li>
+ *   <li>Read the memory backend snapshot settings ({@code memory.snapshot}, {@code memory.snapshot-interval-seconds}).</li>
+ *   <li>Read the migration source backend ({@code migration.source.*}) used by {@code /fly data migrate}.</li>
+ *   <li>Read the optional dedicated connection pool settings ({@code pool.*}).</li>
  * </ul>
  */
 public final class ConfigUtil {
@@ -41,6 +48,28 @@ public final class ConfigUtil {
         if (!configFile.exists()) {
             YamlConfiguration cfg = new YamlConfiguration();
             cfg.set("license", "free");
+            cfg.set("cache.flush-interval-seconds", 60);
+            cfg.set("cache.journal", true);
+            cfg.set("cache.invalidation.enabled", false);
+            cfg.set("cache.invalidation.poll-interval-seconds", 2);
+            cfg.set("flight.accounting", "periodic");
+            cfg.set("memory.snapshot", false);
+            cfg.set("memory.snapshot-interval-seconds", 300);
+            cfg.set("lease.enabled", false);
+            cfg.set("lease.server-id", "");
+            cfg.set("lease.ttl-seconds", 90);
+            cfg.set("migration.source.type", "");
+            cfg.set("migration.source.jdbc-url", "");
+            cfg.set("migration.source.username", "");
+            cfg.set("migration.source.password", "");
+            cfg.set("pool.enabled", false);
+            cfg.set("pool.jdbc-url", "");
+            cfg.set("pool.username", "");
+            cfg.set("pool.password", "");
+            cfg.set("pool.size", 4);
+            cfg.set("pool.query-timeout-seconds", 5);
+            cfg.set("pool.validation-timeout-seconds", 2);
+            cfg.set("pool.acquire-timeout-millis", 2000);
             cfg.save(configFile);
         }
     }
@@ -62,7 +91,7 @@ public final class ConfigUtil {
      * Read the database type from the root plugin config: {@code database.type}.
      *
      * @param plugin The Bukkit plugin.
-     * @return One of {@code sqlite}, {@code mysql}, {@code postgresql} (defaults to {@code sqlite} on errors).
+     * @return One of {@code sqlite}, {@code mysql}, {@code postgresql}, {@code memory} (defaults to {@code sqlite} on errors).
      */
     public static String readDbType(Plugin plugin) {
         try {
@@ -71,4 +100,257 @@ public final class ConfigUtil {
             return "sqlite";
         }
     }
+
+    /**
+     * Read how often the duration cache writes pending changes: {@code cache.flush-interval-seconds}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Flush interval in seconds (defaults to {@code 60}; minimum {@code 1}).
+     */
+    public static int readCacheFlushIntervalSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(1, config.getInt("cache.flush-interval-seconds", 60));
+    }
+
+    /**
+     * Read whether unflushed cache changes are journaled to disk: {@code cache.journal}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code true} to journal (defaults to {@code true}).
+     */
+    public static boolean readCacheJournal(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return config.getBoolean("cache.journal", true);
+    }
+
+    /**
+     * Read whether cached durations are refreshed from other servers' writes: {@code cache.invalidation.enabled}.
+     * Enable on every server sharing one {@code fly} table.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code true} to publish and poll the change feed (defaults to {@code false}).
+     */
+    public static boolean readCacheInvalidationEnabled(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return config.getBoolean("cache.invalidation.enabled", false);
+    }
+
+    /**
+     * Read how often the change feed is polled: {@code cache.invalidation.poll-interval-seconds}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Poll interval in seconds (defaults to {@code 2}; minimum {@code 1}).
+     */
+    public static int readCacheInvalidationPollSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(1, config.getInt("cache.invalidation.poll-interval-seconds", 2));
+    }
+
+    /**
+     * Read how flight time is charged: {@code flight.accounting} ({@code periodic} or {@code deadline}).
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return The accounting mode (defaults to {@link FlyDuration.Accounting#PERIODIC} for missing or unknown values).
+     */
+    public static FlyDuration.Accounting readAccounting(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return "deadline".equalsIgnoreCase(config.getString("flight.accounting", "periodic"))
+                ? FlyDuration.Accounting.DEADLINE
+                : FlyDuration.Accounting.PERIODIC;
+    }
+
+    /**
+     * Read whether the memory backend persists durations to a snapshot file: {@code memory.snapshot}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code true} to snapshot (defaults to {@code false}).
+     */
+    public static boolean readMemorySnapshot(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return config.getBoolean("memory.snapshot", false);
+    }
+
+    /**
+     * Read how often the memory backend writes its snapshot: {@code memory.snapshot-interval-seconds}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Interval in seconds (defaults to {@code 300}; {@code 0} writes only on shutdown).
+     */
+    public static int readMemorySnapshotIntervalSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(0, config.getInt("memory.snapshot-interval-seconds", 300));
+    }
+
+    /**
+     * Read whether flight session leases are used: {@code lease.enabled}.
+     * Enable on every server sharing one {@code fly} table behind a proxy.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code true} to use leases (defaults to {@code false}).
+     */
+    public static boolean readLeaseEnabled(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return config.getBoolean("lease.enabled", false);
+    }
+
+    /**
+     * Read this server's lease owner id: {@code lease.server-id}.
+     * Also tags this server's change-feed rows ({@code cache.invalidation.enabled}).
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return The configured id, or a random one when blank (leases from a previous run then wait out their TTL).
+     */
+    public static String readLeaseServerId(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        String id = config.getString("lease.server-id", "");
+        if (id == null || id.isBlank()) return UUID.randomUUID().toString();
+        return id.length() > 64 ? id.substring(0, 64) : id;
+    }
+
+    /**
+     * Read the type of the backend {@code /fly data migrate} copies from: {@code migration.source.type}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code sqlite}, {@code mysql} or {@code postgresql}; empty when no source is configured.
+     */
+    public static String readMigrationSourceType(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        String type = config.getString("migration.source.type", "");
+        return type == null ? "" : type.trim().toLowerCase();
+    }
+
+    /**
+     * Read the migration source connection: {@code migration.source.jdbc-url}, {@code migration.source.username}
+     * and {@code migration.source.password}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code {url, username, password}} (blank entries when unset).
+     */
+    public static String[] readMigrationSourceConnection(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return new String[] {
+                config.getString("migration.source.jdbc-url", ""),
+                config.getString("migration.source.username", ""),
+                config.getString("migration.source.password", "")
+        };
+    }
+
+    /**
+     * Read whether the Fly backends use their own connection pool instead of the shared Essential connection:
+     * {@code pool.enabled}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code true} to open a dedicated pool (defaults to {@code false}).
+     */
+    public static boolean readPoolEnabled(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return config.getBoolean("pool.enabled", false);
+    }
+
+    /**
+     * Read the dedicated pool connection: {@code pool.jdbc-url}, {@code pool.username} and {@code pool.password}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return {@code {url, username, password}} (blank entries when unset).
+     */
+    public static String[] readPoolConnection(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return new String[] {
+                config.getString("pool.jdbc-url", ""),
+                config.getString("pool.username", ""),
+                config.getString("pool.password", "")
+        };
+    }
+
+    /**
+     * Read the maximum number of pooled connections: {@code pool.size}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Pool size (defaults to {@code 4}; minimum {@code 1}).
+     */
+    public static int readPoolSize(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(1, config.getInt("pool.size", 4));
+    }
+
+    /**
+     * Read how long one Fly statement may run before it is cancelled: {@code pool.query-timeout-seconds}. Applies on
+     * the shared Essential connection as well as on a dedicated pool.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Timeout in seconds (defaults to {@code 5}; {@code 0} = no limit).
+     */
+    public static int readPoolQueryTimeoutSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(0, config.getInt("pool.query-timeout-seconds", 5));
+    }
+
+    /**
+     * Read how long validating an idle pooled connection may take: {@code pool.validation-timeout-seconds}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Timeout in seconds (defaults to {@code 2}; minimum {@code 1}).
+     */
+    public static int readPoolValidationTimeoutSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(1, config.getInt("pool.validation-timeout-seconds", 2));
+    }
+
+    /**
+     * Read how long a caller waits for a free pooled connection: {@code pool.acquire-timeout-millis}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return Timeout in milliseconds (defaults to {@code 2000}; minimum {@code 0}).
+     */
+    public static long readPoolAcquireTimeoutMillis(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(0L, config.getLong("pool.acquire-timeout-millis", 2000L));
+    }
+
+    /**
+     * Read how long a lease lives without renewal: {@code lease.ttl-seconds}.
+     *
+     * @param plugin     The Bukkit plugin.
+     * @param folderPath The Fly folder path inside the plugin data folder.
+     * @return TTL in seconds (defaults to {@code 90}, minimum {@code 15}).
+     */
+    public static int readLeaseTtlSeconds(Plugin plugin, String folderPath) {
+        File configFile = new File(plugin.getDataFolder(), folderPath + "/config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        return Math.max(15, config.getInt("lease.ttl-seconds", 90));
+    }
 }
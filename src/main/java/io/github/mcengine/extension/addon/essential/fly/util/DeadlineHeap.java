@@ -0,0 +1,105 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of flyer expiry deadlines, used by {@link FlyDuration} in deadline accounting mode.
+ * <p>
+ * Entries are {@code (deadline, row, generation)} triples in parallel primitive arrays. Entries are never
+ * removed out of order: when a flyer stops or its deadline moves, the old entry simply goes stale and the
+ * owner discards it when it reaches the top (the row's generation or deadline no longer matches).
+ * <p>
+ * Not thread-safe; {@link FlyDuration} guards access.
+ */
+final class DeadlineHeap {
+
+    /** Initial capacity (grows by doubling). */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Deadline (epoch millis) per entry. */
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+
+    /** {@link FlyerTable} row per entry. */
+    private int[] rows = new int[INITIAL_CAPACITY];
+
+    /** Row generation at push time per entry. */
+    private int[] generations = new int[INITIAL_CAPACITY];
+
+    /** Number of entries. */
+    private int size;
+
+    /** Whether the heap is empty. */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Earliest deadline; only valid when not empty. */
+    long peekDeadline() {
+        return deadlines[0];
+    }
+
+    /** Row of the earliest entry; only valid when not empty. */
+    int peekRow() {
+        return rows[0];
+    }
+
+    /** Generation of the earliest entry; only valid when not empty. */
+    int peekGeneration() {
+        return generations[0];
+    }
+
+    /** Add an entry. */
+    void push(long deadline, int row, int generation) {
+        if (size == deadlines.length) {
+            int capacity = size * 2;
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        int i = size++;
+        // Sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (deadlines[parent] <= deadline) break;
+            move(parent, i);
+            i = parent;
+        }
+        deadlines[i] = deadline;
+        rows[i] = row;
+        generations[i] = generation;
+    }
+
+    /** Remove the earliest entry; only valid when not empty. */
+    void pop() {
+        int last = --size;
+        if (last == 0) return;
+        long deadline = deadlines[last];
+        int row = rows[last];
+        int generation = generations[last];
+        // Sift the former last entry down from the root
+        int i = 0;
+        for (;;) {
+            int child = 2 * i + 1;
+            if (child >= last) break;
+            if (child + 1 < last && deadlines[child + 1] < deadlines[child]) child++;
+            if (deadlines[child] >= deadline) break;
+            move(child, i);
+            i = child;
+        }
+        deadlines[i] = deadline;
+        rows[i] = row;
+        generations[i] = generation;
+    }
+
+    /** Drop every entry. */
+    void clear() {
+        size = 0;
+    }
+
+    /** Copy entry {@code from} into slot {@code to}. */
+    private void move(int from, int to) {
+        deadlines[to] = deadlines[from];
+        rows[to] = rows[from];
+        generations[to] = generations[from];
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+/**
+ * Duration rendering for the Fly AddOn.
+ * <p>
+ * Two modes:
+ * <ul>
+ *   <li><b>full</b> – every unit, e.g. {@code "0y 0d 1h 30m 0s"} (the historic format).</li>
+ *   <li><b>compact</b> – zero units omitted, e.g. {@code "1h 30m"}; {@code 0} renders as {@code "0s"}.</li>
+ * </ul>
+ * Digits are appended straight into the caller's {@link StringBuilder}; {@link #message(String, int, String)}
+ * reuses a per-thread builder so a chat line costs a single {@link String}. Whole-minute amounts up to
+ * {@link #CACHED_MINUTES} minutes (typical voucher sizes) are rendered once and cached.
+ */
+public final class DurationUtil {
+
+    /**
+     * Seconds per minute unit constant.
+     */
+    private static final int SEC_PER_MIN = 60;
+
+    /**
+     * Seconds per hour unit constant.
+     */
+    private static final int SEC_PER_HOUR = 60 * SEC_PER_MIN;
+
+    /**
+     * Seconds per day unit constant (24 hours).
+     */
+    private static final int SEC_PER_DAY = 24 * SEC_PER_HOUR;
+
+    /**
+     * Seconds per year unit constant (365 days).
+     */
+    private static final int SEC_PER_YEAR = 365 * SEC_PER_DAY;
+
+    /**
+     * Largest whole-minute amount kept in the string caches (7 days).
+     */
+    private static final int CACHED_MINUTES = 7 * 24 * 60;
+
+    /**
+     * Cached full renderings, indexed by minutes (filled lazily; racy writes store equal strings).
+     */
+    private static final String[] FULL_CACHE = new String[CACHED_MINUTES + 1];
+
+    /**
+     * Cached compact renderings, indexed by minutes (filled lazily; racy writes store equal strings).
+     */
+    private static final String[] COMPACT_CACHE = new String[CACHED_MINUTES + 1];
+
+    /**
+     * Per-thread scratch builder for {@link #message(String, int, String)}.
+     */
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    /**
+     * Hidden constructor to enforce static-only usage.
+     */
+    private DurationUtil() {}
+
+    /**
+     * Render a duration in full mode ({@code "Xy Yd Zh Am Bs"}).
+     *
+     * @param totalSeconds seconds; negatives render as zero.
+     * @return formatted string.
+     */
+    public static String format(int totalSeconds) {
+        return format(totalSeconds, false);
+    }
+
+    /**
+     * Render a duration in compact mode (zero units omitted).
+     *
+     * @param totalSeconds seconds; negatives render as zero.
+     * @return formatted string.
+     */
+    public static String formatCompact(int totalSeconds) {
+        return format(totalSeconds, true);
+    }
+
+    /**
+     * Render a duration, serving whole-minute amounts from the cache.
+     *
+     * @param totalSeconds seconds; negatives render as zero.
+     * @param compact      {@code true} to omit zero units.
+     * @return formatted string.
+     */
+    public static String format(int totalSeconds, boolean compact) {
+        if (totalSeconds < 0) totalSeconds = 0;
+
+        if (totalSeconds % SEC_PER_MIN == 0 && totalSeconds / SEC_PER_MIN <= CACHED_MINUTES) {
+            String[] cache = compact ? COMPACT_CACHE : FULL_CACHE;
+            int minutes = totalSeconds / SEC_PER_MIN;
+            String s = cache[minutes];
+            if (s == null) {
+                s = append(new StringBuilder(24), totalSeconds, compact).toString();
+                cache[minutes] = s;
+            }
+            return s;
+        }
+
+        StringBuilder sb = SCRATCH.get();
+        sb.setLength(0);
+        return append(sb, totalSeconds, compact).toString();
+    }
+
+    /**
+     * Build {@code prefix + compact(duration) + suffix} in the per-thread builder.
+     *
+     * @param prefix       text before the duration (may contain colour codes).
+     * @param totalSeconds seconds; negatives render as zero.
+     * @param suffix       text after the duration.
+     * @return the message.
+     */
+    public static String message(String prefix, int totalSeconds, String suffix) {
+        StringBuilder sb = SCRATCH.get();
+        sb.setLength(0);
+        sb.append(prefix);
+        append(sb, totalSeconds, true);
+        return sb.append(suffix).toString();
+    }
+
+    /**
+     * Append a duration to {@code sb} without intermediate allocations.
+     *
+     * @param sb           target builder.
+     * @param totalSeconds seconds; negatives render as zero.
+     * @param compact      {@code true} to omit zero units.
+     * @return {@code sb}, for chaining.
+     */
+    public static StringBuilder append(StringBuilder sb, int totalSeconds, boolean compact) {
+        if (totalSeconds < 0) totalSeconds = 0;
+
+        int years = totalSeconds / SEC_PER_YEAR;
+        int rem = totalSeconds % SEC_PER_YEAR;
+
+        int days = rem / SEC_PER_DAY;
+        rem %= SEC_PER_DAY;
+
+        int hours = rem / SEC_PER_HOUR;
+        rem %= SEC_PER_HOUR;
+
+        int minutes = rem / SEC_PER_MIN;
+        int seconds = rem % SEC_PER_MIN;
+
+        if (!compact) {
+            return sb.append(years).append("y ")
+                    .append(days).append("d ")
+                    .append(hours).append("h ")
+                    .append(minutes).append("m ")
+                    .append(seconds).append('s');
+        }
+
+        if (totalSeconds == 0) return sb.append("0s");
+
+        int start = sb.length();
+        unit(sb, start, years, 'y');
+        unit(sb, start, days, 'd');
+        unit(sb, start, hours, 'h');
+        unit(sb, start, minutes, 'm');
+        unit(sb, start, seconds, 's');
+        return sb;
+    }
+
+    /** Append one non-zero compact unit, space-separated from any earlier unit. */
+    private static void unit(StringBuilder sb, int start, int value, char suffix) {
+        if (value == 0) return;
+        if (sb.length() > start) sb.append(' ');
+        sb.append(value).append(suffix);
+    }
+}
@@ -2,35 +2,74 @@ package io.github.mcengine.extension.addon.essential.fly.util;
 
 import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
 import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import io.github.mcengine.extension.addon.essential.fly.scheduler.FlyScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Manages per-player flight state and spawns an individual 30-second repeating task per active player.
+ * Manages per-player flight state on a single shared timing wheel.
+ * <p>
+ * Instead of one repeating task per active player, one repeating task advances a wheel of
+ * {@link #WHEEL_SIZE} slots (one slot per server tick across the 30-second charge interval).
+ * Every active flyer lives in exactly one slot and is charged when the cursor reaches that slot,
+ * so a slot fires once every 30 seconds and the charge points of all flyers are spread over
+ * the 600 ticks of the interval.
  * <p>
  * Convention: a duration of {@code 0} means no remaining time and activation is denied.
  * <p>
+ * In {@link Accounting#DEADLINE} mode the wheel is not used: activation records the balance and start time,
+ * the remaining time is computed on read, and a single scheduled task fires at the earliest expiry deadline
+ * (kept in a {@link DeadlineHeap}). A flyer then costs one database write when they stop or expire instead of one
+ * per 30 seconds, and expiry is accurate to the tick.
+ * <p>
  * Behavior:
  * <ul>
  *   <li>Prevents duplicate activation by ignoring re-activation attempts at the scheduler layer.</li>
+ *   <li>Activation and deactivation are O(1): slots are doubly-linked lists of {@link FlyerTable} row ids.</li>
+ *   <li>Per-flyer state lives in a primitive table keyed by the UUID's two longs, so the tick loop
+ *       neither boxes nor looks players up through {@code Bukkit.getPlayer}.</li>
+ *   <li>All database work goes through {@link FlyDBAsync}; results are applied back on the main thread.</li>
+ *   <li>The wheel and deadline tasks run on the {@link FlyScheduler}'s global thread, while flight flags and messages
+ *       are dispatched to the thread owning each player. On Folia those are different threads, so every method that
+ *       touches flyer state synchronizes on this instance.</li>
+ *   <li>All flyers due in the same tick are charged with one bulk decrement, followed by one expiry pass.</li>
+ *   <li>Activation bursts are spread by placing each flyer in the least loaded slot within a short window.</li>
  *   <li>On self-deactivation, subtracts the partial elapsed time since the last 30s tick and informs the player.</li>
  *   <li>Whenever time is reduced (each 30s tick or partial on self-deactivate), sends remaining time formatted as year/day/hour/minute/second.</li>
+ *   <li>With {@link #enableLeases(String, int) leases} (servers sharing one table behind a proxy), a player's lease is
+ *       taken by {@link #claim(UUID)} before activation, fences every charge, and is handed off on quit by
+ *       {@link #release(UUID)}; a server that lost the lease stops charging and grounds the player.</li>
  *   <li><b>FIX</b>: Always sends the remaining time message on self-deactivation, even if no partial seconds passed since the last tick.</li>
  * </ul>
  */
 public class FlyDuration {
 
     /**
-     * Owning plugin reference (for scheduling tasks).
+     * How flight time is charged.
      */
-    private final Plugin plugin;
+    public enum Accounting {
+        /** Charge {@link #CHARGE_SECONDS} every 30 seconds on the timing wheel. */
+        PERIODIC,
+        /** Compute remaining time from an expiry deadline; write once on stop or expiry. */
+        DEADLINE
+    }
+
+    /**
+     * Scheduler for the wheel and deadline tasks and for per-player work.
+     */
+    private final FlyScheduler scheduler;
 
     /**
      * Logger for diagnostics and warnings.
@@ -38,133 +77,595 @@ public class FlyDuration {
     private final MCEngineExtensionLogger logger;
 
     /**
-     * Database accessor for reading/updating durations.
+     * Asynchronous database accessor for reading/updating durations off the main thread.
+     */
+    private final FlyDBAsync flyDBAsync;
+
+    /**
+     * Runtime counters; receives the duration of each wheel tick.
      */
-    private final FlyDB flyDB;
+    private final FlyStats stats;
 
     /**
-     * Map of player UUIDs to their active repeating task.
+     * Accounting mode.
+     */
+    private final Accounting accounting;
+
+    /**
+     * Result of {@link #claim(UUID)} when another server still holds the player's lease (distinct from
+     * {@link FlyDB#LEASE_LOST}).
+     */
+    public static final int LEASE_HELD = -3;
+
+    /**
+     * Seconds charged each time a flyer's slot fires.
+     */
+    private static final int CHARGE_SECONDS = 30;
+
+    /**
+     * Number of wheel slots; one per server tick of the charge interval (30s × 20 ticks).
+     */
+    private static final int WHEEL_SIZE = CHARGE_SECONDS * 20;
+
+    /**
+     * Number of consecutive slots considered when placing a new flyer.
      * <p>
-     * Presence in this map means the player is considered "active" for flight.
+     * The least loaded slot in this window is chosen, which delays the first charge by at most one second.
      */
-    private final Map<UUID, BukkitTask> tasksByPlayer = new ConcurrentHashMap<>();
+    private static final int SPREAD_WINDOW = 20;
 
     /**
-     * Map of player UUIDs to the last time (in millis) we accounted for duration.
+     * Primitive state table of active flyers (row per flyer).
      * <p>
-     * Updated on activation, every 30s tick, and used to compute partial elapsed seconds on self-deactivation.
+     * Presence in this table means the player is considered "active" for flight.
+     */
+    private final FlyerTable flyers = new FlyerTable();
+
+    /**
+     * Head row of each wheel slot ({@link FlyerTable#NONE} when the slot is empty).
+     */
+    private final int[] slotHeads = new int[WHEEL_SIZE];
+
+    /**
+     * Number of flyers in each wheel slot; used to balance placement.
      */
-    private final Map<UUID, Long> lastTickMillis = new ConcurrentHashMap<>();
+    private final int[] slotSizes = new int[WHEEL_SIZE];
 
     /**
-     * Seconds per minute unit constant.
+     * Slot processed by the most recent wheel tick.
      */
-    private static final int SEC_PER_MIN = 60;
+    private int cursor;
 
     /**
-     * Seconds per hour unit constant.
+     * Single repeating task that advances the wheel; started lazily on first activation.
      */
-    private static final int SEC_PER_HOUR = 60 * SEC_PER_MIN;
+    private FlyScheduler.Task wheelTask;
 
     /**
-     * Seconds per day unit constant (24 hours).
+     * Expiry deadlines of active flyers ({@link Accounting#DEADLINE} mode).
      */
-    private static final int SEC_PER_DAY = 24 * SEC_PER_HOUR;
+    private final DeadlineHeap deadlines = new DeadlineHeap();
 
     /**
-     * Seconds per year unit constant (365 days).
+     * One-shot task firing at the earliest deadline; null when none is scheduled.
      */
-    private static final int SEC_PER_YEAR = 365 * SEC_PER_DAY;
+    private FlyScheduler.Task deadlineTask;
+
+    /**
+     * Deadline {@link #deadlineTask} was scheduled for (epoch millis).
+     */
+    private long deadlineTaskAt;
+
+    /**
+     * This server's lease owner id; null when leases are off.
+     */
+    private volatile String leaseOwner;
+
+    /**
+     * Lease lifetime without renewal (millis).
+     */
+    private volatile long leaseTtlMillis;
+
+    /**
+     * Lease token per player whose lease this server holds (taken on activation, released on quit).
+     */
+    private final Map<UUID, Long> leases = new ConcurrentHashMap<>();
+
+    /**
+     * Periodic lease renewal; started with the first lease.
+     */
+    private FlyScheduler.Task leaseTask;
 
     /**
      * Construct a new {@link FlyDuration} manager.
      *
-     * @param plugin The Bukkit plugin instance.
-     * @param logger Logger to use.
-     * @param flyDB  Database accessor for durations.
+     * @param scheduler  Scheduler for the wheel task and per-player work.
+     * @param logger     Logger to use.
+     * @param flyDBAsync Asynchronous database accessor for durations.
+     * @param stats      Runtime counters for {@code /fly stats}.
      */
-    public FlyDuration(Plugin plugin, MCEngineExtensionLogger logger, FlyDB flyDB) {
-        this.plugin = plugin;
+    public FlyDuration(FlyScheduler scheduler, MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyStats stats) {
+        this(scheduler, logger, flyDBAsync, stats, Accounting.PERIODIC);
+    }
+
+    /**
+     * Construct a new {@link FlyDuration} manager with an explicit accounting mode.
+     *
+     * @param scheduler  Scheduler for the wheel and deadline tasks and per-player work.
+     * @param logger     Logger to use.
+     * @param flyDBAsync Asynchronous database accessor for durations.
+     * @param stats      Runtime counters for {@code /fly stats}.
+     * @param accounting How flight time is charged.
+     */
+    public FlyDuration(FlyScheduler scheduler, MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyStats stats, Accounting accounting) {
+        this.scheduler = scheduler;
         this.logger = logger;
-        this.flyDB = flyDB;
+        this.flyDBAsync = flyDBAsync;
+        this.stats = stats;
+        this.accounting = accounting;
+        Arrays.fill(slotHeads, FlyerTable.NONE);
+    }
+
+    /**
+     * Fence charges with per-player leases, for servers sharing one {@code fly} table behind a proxy.
+     *
+     * @param serverId   This server's lease owner id.
+     * @param ttlSeconds Lease lifetime without renewal; renewed every third of it.
+     */
+    public void enableLeases(String serverId, int ttlSeconds) {
+        this.leaseTtlMillis = ttlSeconds * 1000L;
+        this.leaseOwner = serverId;
+    }
+
+    /**
+     * Read a player's balance ahead of activation. With leases, the player's lease is taken first (one conditional
+     * update) and the balance is read after it, so it includes the previous server's final charge.
+     *
+     * @param uuid The player's UUID.
+     * @return Future completed with the remaining seconds, {@code -1} on a database error, or {@link #LEASE_HELD} if
+     *         another server still holds the lease.
+     */
+    public CompletableFuture<Integer> claim(UUID uuid) {
+        String owner = leaseOwner;
+        if (owner == null) return flyDBAsync.ensureAndGetDuration(uuid);
+        long ttl = leaseTtlMillis;
+        return flyDBAsync.submit(db -> {
+            db.ensurePlayerRow(uuid);
+            // Fresh token per acquisition: writes fenced with an older one (ours or another server's) miss
+            long token = ThreadLocalRandom.current().nextLong(1L, Long.MAX_VALUE);
+            if (!db.acquireLease(uuid, owner, token, ttl)) return LEASE_HELD;
+            leases.put(uuid, token);
+            ensureLeaseRenewal();
+            return db.getDuration(uuid);
+        });
+    }
+
+    /**
+     * Hand off a player's lease (on quit), queued after any charge already submitted for them.
+     *
+     * @param uuid The player's UUID.
+     */
+    public void release(UUID uuid) {
+        Long token = leases.remove(uuid);
+        if (token == null) return;
+        flyDBAsync.submit(db -> db.releaseLease(uuid, token)).exceptionally(ex -> {
+            logger.warning("Fly lease release failed for " + uuid + ": " + ex.getMessage());
+            return false;
+        });
+    }
+
+    /**
+     * Start the lease renewal task if it is not already running.
+     */
+    private synchronized void ensureLeaseRenewal() {
+        if (leaseTask != null) return;
+        long period = Math.max(20L, leaseTtlMillis / 3L / 50L);
+        leaseTask = scheduler.runAsyncTimer(() -> {
+            if (leases.isEmpty()) return;
+            List<Long> tokens = new ArrayList<>(leases.values());
+            long ttl = leaseTtlMillis;
+            flyDBAsync.submit(db -> {
+                db.renewLeases(tokens, ttl);
+                return null;
+            });
+        }, period, period);
     }
 
     /**
-     * Activate flight for a player and start (or keep) their individual 30s task.
+     * Charge one player, fenced by their lease when this server holds one.
+     *
+     * @return Future completed with the remaining seconds, or {@link FlyDB#LEASE_LOST}.
+     */
+    private CompletableFuture<Integer> decrement(UUID uuid, int seconds) {
+        Long token = leases.get(uuid);
+        if (token == null) return flyDBAsync.decrementDuration(uuid, seconds);
+        return flyDBAsync.submit(db -> {
+            Integer remaining = db.decrementLeased(Collections.singletonMap(uuid, token), seconds).get(uuid);
+            if (remaining == null) throw new IllegalStateException("charge not applied");
+            return remaining;
+        });
+    }
+
+    /**
+     * Charge several players in one round trip; players holding a lease are fenced by it.
+     */
+    private CompletableFuture<Map<UUID, Integer>> decrement(List<UUID> uuids, int seconds) {
+        if (leases.isEmpty()) return flyDBAsync.decrementDurations(uuids, seconds);
+        Map<UUID, Long> fenced = new HashMap<>();
+        List<UUID> unfenced = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            Long token = leases.get(uuid);
+            if (token != null) fenced.put(uuid, token);
+            else unfenced.add(uuid);
+        }
+        return flyDBAsync.submit(db -> {
+            Map<UUID, Integer> remaining = new HashMap<>(uuids.size() * 2);
+            if (!fenced.isEmpty()) remaining.putAll(db.decrementLeased(fenced, seconds));
+            if (!unfenced.isEmpty()) remaining.putAll(db.decrementDurations(unfenced, seconds));
+            return remaining;
+        });
+    }
+
+    /**
+     * Activate flight for a player and place them on the shared timing wheel.
      * If the player is offline, this will do nothing.
      *
      * @param player The online player to activate.
      */
     public void activate(Player player) {
+        activate(player, -1);
+    }
+
+    /**
+     * Activate flight for a player whose remaining balance is already known.
+     *
+     * @param player           The online player to activate.
+     * @param remainingSeconds Remaining seconds just read for the player, or {@code -1} if unknown.
+     */
+    public synchronized void activate(Player player, int remainingSeconds) {
         if (player == null || !player.isOnline()) return;
 
         UUID uuid = player.getUniqueId();
 
         // Enable flight on player
-        try {
-            player.setAllowFlight(true);
-            player.setFlying(true);
-        } catch (Throwable t) {
-            logger.warning("Failed to enable flight for " + player.getName() + ": " + t.getMessage());
-        }
+        setFlight(player, true);
 
         // If already active, don't double-schedule
-        if (tasksByPlayer.containsKey(uuid)) return;
+        if (flyers.find(uuid) != FlyerTable.NONE) return;
 
         // Record "now" as the last accounted moment
-        lastTickMillis.put(uuid, System.currentTimeMillis());
-
-        // Schedule a per-player repeating task (every 30s)
-        BukkitTask task = new BukkitRunnable() {
-            @Override
-            public void run() {
-                try {
-                    Player p = Bukkit.getPlayer(uuid);
-                    if (p == null || !p.isOnline()) {
-                        // Player went offline: cancel their task and ensure no decrement happens offline
-                        deactivate(uuid, false, false);
-                        return;
+        int row = flyers.insert(uuid, player, System.currentTimeMillis());
+        flyers.remaining(row, remainingSeconds);
+
+        if (accounting == Accounting.DEADLINE) {
+            if (remainingSeconds >= 0) {
+                arm(row);
+            } else {
+                // Balance unknown: arm once it is read (unless the flyer stopped meanwhile)
+                int generation = flyers.generation(row);
+                flyDBAsync.thenOnMain(flyDBAsync.ensureAndGetDuration(uuid), "activate for " + uuid, balance -> {
+                    synchronized (this) {
+                        if (flyers.generation(row) != generation || flyers.uuid(row) == null) return;
+                        flyers.lastChargeMillis(row, System.currentTimeMillis());
+                        // Unreadable balance: expire now rather than fly unmetered
+                        flyers.remaining(row, Math.max(0, balance));
+                        arm(row);
                     }
+                });
+            }
+            return;
+        }
 
-                    int current = flyDB.getDuration(uuid);
-                    if (current <= 0) {
-                        // Nothing left; ensure disabled and stop
-                        try {
-                            p.setAllowFlight(false);
-                            p.setFlying(false);
-                        } catch (Throwable ignore) {}
-                        p.sendMessage("§cYour flight time has expired.");
-                        deactivate(uuid, false, false);
-                        return;
-                    }
+        // Pick the least loaded slot in [cursor, cursor + SPREAD_WINDOW); the current slot was
+        // already processed this tick, so any later slot must wait one extra revolution.
+        int best = cursor;
+        for (int i = 1; i < SPREAD_WINDOW && slotSizes[best] > 0; i++) {
+            int candidate = (cursor + i) % WHEEL_SIZE;
+            if (slotSizes[candidate] < slotSizes[best]) best = candidate;
+        }
+        flyers.rounds(row, best == cursor ? 0 : 1);
+        link(row, best);
+
+        ensureWheelRunning();
+    }
 
-                    // Regular 30-second decrement
-                    int remaining = flyDB.decrementDuration(uuid, 30);
+    /**
+     * Start the wheel task if it is not already running.
+     */
+    private void ensureWheelRunning() {
+        if (wheelTask != null) return;
+        wheelTask = scheduler.runGlobalTimer(this::advance, 1L, 1L);
+    }
+
+    /**
+     * Set a player's flight flags on the thread owning them.
+     */
+    private void setFlight(Player player, boolean enabled) {
+        scheduler.runForPlayer(player, () -> applyFlight(player, enabled));
+    }
+
+    /**
+     * Set a player's flight flags on the calling thread.
+     */
+    private void applyFlight(Player player, boolean enabled) {
+        try {
+            player.setAllowFlight(enabled);
+            player.setFlying(enabled);
+        } catch (Throwable t) {
+            if (enabled) logger.warning("Failed to enable flight for " + player.getName() + ": " + t.getMessage());
+        }
+    }
+
+    /**
+     * Send a player a message on the thread owning them.
+     */
+    private void tell(Player player, String message) {
+        scheduler.runForPlayer(player, () -> player.sendMessage(message));
+    }
+
+    /**
+     * Advance the wheel by one slot and charge every flyer due in that slot with one bulk decrement.
+     * <p>
+     * The slot is walked over {@code int} row links without allocating; only the due rows are copied
+     * out for the asynchronous charge.
+     */
+    synchronized void advance() {
+        long started = System.nanoTime();
+        cursor = (cursor + 1) % WHEEL_SIZE;
+        int dueCount = 0;
+        int[] dueRows = null;
+        long now = System.currentTimeMillis();
+
+        int row = slotHeads[cursor];
+        while (row != FlyerTable.NONE) {
+            // Capture next first: dropping an offline flyer unlinks the current row
+            int next = flyers.next(row);
+            int rounds = flyers.rounds(row);
+            if (rounds > 0) {
+                flyers.rounds(row, rounds - 1);
+            } else {
+                Player p = flyers.player(row);
+                if (p == null || !p.isOnline()) {
+                    // Player went offline: drop them from the wheel and ensure no decrement happens offline
+                    deactivate(flyers.uuid(row), false, false);
+                } else {
                     // Update last accounted time to now (align to this run)
-                    lastTickMillis.put(uuid, System.currentTimeMillis());
-
-                    // Inform player of remaining time in formatted units
-                    if (remaining > 0) {
-                        p.sendMessage("§7Flight Remaining: §e" + formatDuration(remaining) + "§7.");
-                    } else {
-                        try {
-                            p.setAllowFlight(false);
-                            p.setFlying(false);
-                        } catch (Throwable ignore) {}
-                        p.sendMessage("§cYour flight time has expired.");
-                        deactivate(uuid, false, false);
-                    }
-                } catch (Exception e) {
-                    logger.warning("Per-player fly task error for " + uuid + ": " + e.getMessage());
+                    flyers.lastChargeMillis(row, now);
+                    if (dueRows == null) dueRows = new int[slotSizes[cursor]];
+                    dueRows[dueCount++] = row;
                 }
             }
-        }.runTaskTimer(plugin, 600L, 600L);
+            row = next;
+        }
+        if (dueCount > 0) charge(dueRows, dueCount);
+        stats.tick.record(System.nanoTime() - started);
+    }
+
+    /**
+     * Charge a slot's flyers for a full interval in one round trip.
+     * <p>
+     * The bulk decrement runs on the Fly I/O executor; the results are applied in one pass on the
+     * main thread, where flyers whose time ran out are expired and unlinked.
+     *
+     * @param rows  Row ids charged this tick.
+     * @param count Number of valid entries in {@code rows}.
+     */
+    private void charge(int[] rows, int count) {
+        int[] generations = new int[count];
+        List<UUID> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generations[i] = flyers.generation(rows[i]);
+            uuids.add(flyers.uuid(rows[i]));
+        }
+
+        // Regular 30-second decrement (0 stays 0, so an empty balance also reports 0)
+        flyDBAsync.thenOnMain(decrement(uuids, CHARGE_SECONDS), "charge",
+                remainingByPlayer -> applyCharge(rows, generations, uuids, count, remainingByPlayer));
+    }
+
+    /**
+     * Apply a slot's charge results: report the remaining time, expire flyers that ran out.
+     */
+    private synchronized void applyCharge(int[] rows, int[] generations, List<UUID> uuids, int count, Map<UUID, Integer> remainingByPlayer) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            // Ignore results for flyers that stopped (or whose row was reused) while the write was in flight
+            if (flyers.generation(row) != generations[i]) continue;
+
+            // Not charged (database error): keep flying, retry next interval
+            Integer remaining = remainingByPlayer.get(uuids.get(i));
+            if (remaining == null) continue;
+
+            Player p = flyers.player(row);
+            if (p == null || !p.isOnline()) {
+                deactivate(uuids.get(i), false, false);
+                continue;
+            }
+
+            // Another server took the lease (ours expired): it charges from now on, so stop here
+            if (remaining == FlyDB.LEASE_LOST) {
+                leases.remove(uuids.get(i));
+                setFlight(p, false);
+                tell(p, "§cYour flight session moved to another server.");
+                deactivate(uuids.get(i), false, false);
+                continue;
+            }
+            flyers.remaining(row, remaining);
+
+            // Inform player of remaining time in formatted units
+            if (remaining > 0) {
+                tell(p, DurationUtil.message("§7Flight Remaining: §e", remaining, "§7."));
+            } else {
+                setFlight(p, false);
+                tell(p, "§cYour flight time has expired.");
+                deactivate(uuids.get(i), false, false);
+            }
+        }
+    }
+
+    /**
+     * Expiry deadline of an armed row (epoch millis).
+     */
+    private long deadlineOf(int row) {
+        return flyers.lastChargeMillis(row) + flyers.remaining(row) * 1000L;
+    }
+
+    /**
+     * Push a row's deadline and make sure the deadline task fires no later than it.
+     */
+    private void arm(int row) {
+        long deadline = deadlineOf(row);
+        deadlines.push(deadline, row, flyers.generation(row));
+        if (deadlineTask == null || deadline < deadlineTaskAt) scheduleDeadlineTask(deadline);
+    }
+
+    /**
+     * (Re)schedule the single deadline task for {@code deadline}.
+     */
+    private void scheduleDeadlineTask(long deadline) {
+        if (deadlineTask != null) {
+            try {
+                deadlineTask.cancel();
+            } catch (Throwable ignore) {}
+        }
+        long ticks = Math.max(1L, (deadline - System.currentTimeMillis() + 49L) / 50L);
+        deadlineTaskAt = deadline;
+        deadlineTask = scheduler.runGlobalLater(() -> {
+            synchronized (this) {
+                deadlineTask = null;
+                expireDue();
+            }
+        }, ticks);
+    }
 
-        tasksByPlayer.put(uuid, task);
+    /**
+     * Expire every flyer whose deadline has passed (within half a tick), then schedule the next deadline.
+     */
+    private void expireDue() {
+        long started = System.nanoTime();
+        long now = System.currentTimeMillis();
+        while (!deadlines.isEmpty() && deadlines.peekDeadline() <= now + 25L) {
+            long deadline = deadlines.peekDeadline();
+            int row = deadlines.peekRow();
+            int generation = deadlines.peekGeneration();
+            deadlines.pop();
+            // Stale entry: the flyer stopped, the row was reused, or a grant moved the deadline
+            if (flyers.generation(row) != generation || flyers.uuid(row) == null || deadlineOf(row) != deadline) continue;
+            expire(row);
+        }
+        // Drop stale entries at the top so the task is not scheduled for a deadline that no longer exists
+        while (!deadlines.isEmpty()) {
+            int row = deadlines.peekRow();
+            if (flyers.generation(row) == deadlines.peekGeneration() && flyers.uuid(row) != null
+                    && deadlineOf(row) == deadlines.peekDeadline()) break;
+            deadlines.pop();
+        }
+        if (!deadlines.isEmpty()) scheduleDeadlineTask(deadlines.peekDeadline());
+        stats.tick.record(System.nanoTime() - started);
     }
 
     /**
-     * Deactivate flight for a player and cancel their individual task.
+     * Stop a flyer whose balance ran out and write the whole balance as used, in one decrement.
+     * <p>
+     * If time was added elsewhere meanwhile (the write leaves a positive balance), flight resumes.
+     */
+    private void expire(int row) {
+        UUID uuid = flyers.uuid(row);
+        Player p = flyers.player(row);
+        int balance = flyers.remaining(row);
+        flyers.remove(row);
+        if (p != null && p.isOnline()) setFlight(p, false);
+
+        flyDBAsync.thenOnMain(decrement(uuid, balance), "expire for " + uuid, remaining -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null || !player.isOnline()) return;
+            if (remaining == FlyDB.LEASE_LOST) {
+                leases.remove(uuid);
+                tell(player, "§cYour flight session moved to another server.");
+            } else if (remaining > 0 && !isActive(uuid)) {
+                activate(player, remaining);
+                tell(player, DurationUtil.message("§7Flight Remaining: §e", remaining, "§7."));
+            } else {
+                tell(player, "§cYour flight time has expired.");
+            }
+        });
+    }
+
+    /**
+     * Whole seconds a deadline-mode flyer has used since activation (capped at the balance when known).
+     */
+    private int elapsedSeconds(int row, long now) {
+        int elapsed = (int) (Math.max(0L, now - flyers.lastChargeMillis(row)) / 1000L);
+        int balance = flyers.remaining(row);
+        return balance >= 0 ? Math.min(elapsed, balance) : elapsed;
+    }
+
+    /**
+     * Remaining seconds of an active flyer computed from their deadline.
+     *
+     * @param uuid The player's UUID.
+     * @return Remaining seconds, or {@code -1} if the player is not active in deadline mode (read the database instead).
+     */
+    public synchronized int remainingSeconds(UUID uuid) {
+        if (accounting != Accounting.DEADLINE) return -1;
+        int row = flyers.find(uuid);
+        if (row == FlyerTable.NONE || flyers.remaining(row) < 0) return -1;
+        return flyers.remaining(row) - elapsedSeconds(row, System.currentTimeMillis());
+    }
+
+    /**
+     * Apply a grant that was just stored in the database to an active flyer.
+     * <p>
+     * In deadline mode the flyer's deadline moves out by {@code seconds} and the computed remaining time is returned,
+     * since the stored balance does not yet reflect the time used in the air. Otherwise {@code stored} is returned as is.
+     *
+     * @param uuid    The player's UUID.
+     * @param seconds Seconds granted.
+     * @param stored  Balance returned by the database after the grant.
+     * @return The player's remaining seconds.
+     */
+    public synchronized int applyGrant(UUID uuid, int seconds, int stored) {
+        if (accounting != Accounting.DEADLINE) return stored;
+        int row = flyers.find(uuid);
+        if (row == FlyerTable.NONE || flyers.remaining(row) < 0) return stored;
+        flyers.remaining(row, flyers.remaining(row) + seconds);
+        arm(row);
+        return flyers.remaining(row) - elapsedSeconds(row, System.currentTimeMillis());
+    }
+
+    /**
+     * Insert a row at the head of a wheel slot.
+     */
+    private void link(int row, int slot) {
+        int head = slotHeads[slot];
+        flyers.slot(row, slot);
+        flyers.prev(row, FlyerTable.NONE);
+        flyers.next(row, head);
+        if (head != FlyerTable.NONE) flyers.prev(head, row);
+        slotHeads[slot] = row;
+        slotSizes[slot]++;
+    }
+
+    /**
+     * Remove a row from its wheel slot.
+     */
+    private void unlink(int row) {
+        int slot = flyers.slot(row);
+        // Deadline-mode rows are never on the wheel
+        if (slot == FlyerTable.NONE) return;
+        int prev = flyers.prev(row);
+        int next = flyers.next(row);
+        if (prev != FlyerTable.NONE) {
+            flyers.next(prev, next);
+        } else {
+            slotHeads[slot] = next;
+        }
+        if (next != FlyerTable.NONE) flyers.prev(next, prev);
+        slotSizes[slot]--;
+    }
+
+    /**
+     * Deactivate flight for a player and remove them from the timing wheel.
      *
      * @param uuid          The player's UUID.
      * @param disableFlight Whether to actively disable flight flags on the player.
@@ -174,105 +675,122 @@ public class FlyDuration {
     }
 
     /**
-     * Deactivate flight for a player and cancel their individual task.
+     * Deactivate flight for a player and remove them from the timing wheel.
      *
      * @param uuid          The player's UUID.
      * @param disableFlight Whether to actively disable flight flags on the player.
      * @param countPartial  When true, also subtract the partial elapsed seconds since the last tick and
      *                      <b>always</b> inform the player of the remaining time (even if partial is 0).
      */
-    public void deactivate(UUID uuid, boolean disableFlight, boolean countPartial) {
-        // Cancel task if present
-        BukkitTask task = tasksByPlayer.remove(uuid);
-        if (task != null) {
-            try {
-                task.cancel();
-            } catch (Throwable ignore) {}
+    public synchronized void deactivate(UUID uuid, boolean disableFlight, boolean countPartial) {
+        // Remove from the wheel if present
+        int row = flyers.find(uuid);
+        long lastChargeMillis = -1L;
+        int usedSeconds = 0;
+        if (row != FlyerTable.NONE) {
+            lastChargeMillis = flyers.lastChargeMillis(row);
+            if (accounting == Accounting.DEADLINE) usedSeconds = elapsedSeconds(row, System.currentTimeMillis());
+            unlink(row);
+            flyers.remove(row);
         }
 
-        boolean informed = false;
-        int remainingAfter = -1;
+        // Deadline mode: this is the flight's single write, so it happens even when nobody is told
+        if (!countPartial && usedSeconds > 0) {
+            flyDBAsync.thenOnMain(decrement(uuid, usedSeconds), "deactivate for " + uuid, remaining -> {});
+        }
 
-        // Optionally subtract partial elapsed time since last tick
+        // Optionally subtract partial elapsed time since last tick, then always report the remaining time
         if (countPartial) {
-            Long last = lastTickMillis.get(uuid);
-            if (last != null) {
-                long now = System.currentTimeMillis();
-                long deltaMs = Math.max(0L, now - last);
-                int partialSeconds = (int) Math.floor(deltaMs / 1000.0);
-
-                if (partialSeconds > 0) {
-                    remainingAfter = flyDB.decrementDuration(uuid, partialSeconds);
-                    Player p = Bukkit.getPlayer(uuid);
-                    if (p != null) {
-                        if (remainingAfter > 0) {
-                            p.sendMessage("§cFlight disabled. §7Remaining: §e" + formatDuration(remainingAfter) + "§7.");
-                        } else {
-                            p.sendMessage("§cYour flight time has expired.");
-                        }
-                        informed = true;
-                    }
-                }
+            int partialSeconds = usedSeconds;
+            if (accounting == Accounting.PERIODIC && lastChargeMillis >= 0L) {
+                long deltaMs = Math.max(0L, System.currentTimeMillis() - lastChargeMillis);
+                partialSeconds = (int) Math.floor(deltaMs / 1000.0);
             }
-        }
 
-        // If we didn't inform yet (e.g., partialSeconds == 0), still send remaining time on self-deactivate
-        if (countPartial && !informed) {
-            Player p = Bukkit.getPlayer(uuid);
-            if (p != null) {
-                if (remainingAfter < 0) {
-                    remainingAfter = Math.max(0, flyDB.getDuration(uuid));
-                }
-                if (remainingAfter > 0) {
-                    p.sendMessage("§cFlight disabled. §7Remaining: §e" + formatDuration(remainingAfter) + "§7.");
+            CompletableFuture<Integer> remainingAfter = partialSeconds > 0
+                    ? decrement(uuid, partialSeconds)
+                    : flyDBAsync.getDuration(uuid);
+            flyDBAsync.thenOnMain(remainingAfter, "deactivate for " + uuid, remaining -> {
+                Player p = Bukkit.getPlayer(uuid);
+                if (p == null) return;
+                if (remaining < 0) {
+                    // Lease lost, or the charge could not be written: the balance is unknown here
+                    tell(p, "§cFlight disabled.");
+                } else if (remaining > 0) {
+                    tell(p, DurationUtil.message("§cFlight disabled. §7Remaining: §e", remaining, "§7."));
                 } else {
-                    p.sendMessage("§cYour flight time has expired.");
+                    tell(p, "§cYour flight time has expired.");
                 }
-            }
+            });
         }
 
-        // Clear lastTick marker
-        lastTickMillis.remove(uuid);
-
         if (disableFlight) {
             Player p = Bukkit.getPlayer(uuid);
-            if (p != null) {
-                try {
-                    p.setAllowFlight(false);
-                    p.setFlying(false);
-                } catch (Throwable ignore) {}
-            }
+            if (p != null) setFlight(p, false);
         }
     }
 
     /**
-     * Check if a player currently has an active per-player task (i.e., is flying via this AddOn).
+     * Check if a player is currently on the timing wheel (i.e., is flying via this AddOn).
      *
      * @param uuid The player's UUID.
      * @return true if the player is active.
      */
-    public boolean isActive(UUID uuid) {
-        return tasksByPlayer.containsKey(uuid);
+    public synchronized boolean isActive(UUID uuid) {
+        return flyers.find(uuid) != FlyerTable.NONE;
     }
 
     /**
-     * Stop all per-player tasks and disable flight for anyone tracked.
+     * Stop the wheel and deadline tasks, clear every slot, and disable flight for anyone tracked.
+     * <p>
+     * Called while the plugin is being disabled, when the scheduler drops new tasks, so flight is cleared on the
+     * calling thread rather than scheduled.
+     * <p>
+     * In deadline mode, each flyer's used time is queued as its final write (before the I/O executor shuts down).
+     * Held leases are released after those writes, so players can fly on another server right away.
      */
-    public void stopAll() {
-        for (Map.Entry<UUID, BukkitTask> e : tasksByPlayer.entrySet()) {
+    public synchronized void stopAll() {
+        if (wheelTask != null) {
+            try {
+                wheelTask.cancel();
+            } catch (Throwable ignore) {}
+            wheelTask = null;
+        }
+        if (deadlineTask != null) {
             try {
-                e.getValue().cancel();
+                deadlineTask.cancel();
             } catch (Throwable ignore) {}
-            Player p = Bukkit.getPlayer(e.getKey());
-            if (p != null) {
-                try {
-                    p.setAllowFlight(false);
-                    p.setFlying(false);
-                } catch (Throwable ignore) {}
+            deadlineTask = null;
+        }
+        if (leaseTask != null) {
+            try {
+                leaseTask.cancel();
+            } catch (Throwable ignore) {}
+            leaseTask = null;
+        }
+        long now = System.currentTimeMillis();
+        for (int row = 0; row < flyers.rowLimit(); row++) {
+            UUID uuid = flyers.uuid(row);
+            if (uuid == null) continue;
+            if (accounting == Accounting.DEADLINE) {
+                int used = elapsedSeconds(row, now);
+                if (used > 0) decrement(uuid, used);
             }
+            Player p = flyers.player(row);
+            if (p != null && p.isOnline()) applyFlight(p, false);
         }
-        tasksByPlayer.clear();
-        lastTickMillis.clear();
+        for (UUID uuid : new ArrayList<>(leases.keySet())) release(uuid);
+        flyers.clear();
+        deadlines.clear();
+        Arrays.fill(slotHeads, FlyerTable.NONE);
+        Arrays.fill(slotSizes, 0);
+    }
+
+    /**
+     * Number of players currently flying (on the wheel or on a deadline).
+     */
+    public synchronized int activeCount() {
+        return flyers.size();
     }
 
     /**
@@ -280,22 +798,10 @@ public class FlyDuration {
      *
      * @param totalSeconds total seconds remaining.
      * @return formatted string containing years, days, hours, minutes, and seconds.
+     * @deprecated use {@link DurationUtil#format(int, boolean)}; kept for API compatibility.
      */
+    @Deprecated
     public static String formatDuration(int totalSeconds) {
-        if (totalSeconds < 0) totalSeconds = 0;
-
-        int years = totalSeconds / SEC_PER_YEAR;
-        int rem = totalSeconds % SEC_PER_YEAR;
-
-        int days = rem / SEC_PER_DAY;
-        rem %= SEC_PER_DAY;
-
-        int hours = rem / SEC_PER_HOUR;
-        rem %= SEC_PER_HOUR;
-
-        int minutes = rem / SEC_PER_MIN;
-        int seconds = rem % SEC_PER_MIN;
-
-        return years + "y " + days + "d " + hours + "h " + minutes + "m " + seconds + "s";
+        return DurationUtil.format(totalSeconds);
     }
 }
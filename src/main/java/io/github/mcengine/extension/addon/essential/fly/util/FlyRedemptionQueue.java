@@ -0,0 +1,489 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import io.github.mcengine.api.core.extension.logger.MCEngineExtensionLogger;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDB;
+import io.github.mcengine.extension.addon.essential.fly.database.FlyDBAsync;
+import io.github.mcengine.extension.addon.essential.fly.database.cache.FlyVoucherLedger;
+import io.github.mcengine.extension.addon.essential.fly.item.FlyItem;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-player queue that merges voucher clicks into batched redemptions.
+ * <p>
+ * Each player has at most one batch at the database. Clicks arriving meanwhile wait in the player's pending list
+ * and go out together as the next batch: one Fly I/O task claims every voucher id in the ledger and adds the sum
+ * of the claimed vouchers' seconds in a single {@link FlyDB#redeemVouchers} transaction. The batch result is applied
+ * with one grant to the flight manager, so spam-clicking costs one round trip per batch instead of one per click.
+ * <p>
+ * A voucher leaves the player's inventory when it is queued and travels with the queue entry, so it can never be
+ * used again (or kept by quitting) while its batch is at the database. Vouchers that come back already
+ * redeemed, or whose batch failed, are handed back: into the inventory, at the player's feet when it is full, or on
+ * the player's next join when they left meanwhile. Pending clicks of a player who quits are handed back on the spot.
+ * Vouchers owed to players who are away are kept in a file, so a restart does not lose them: {@link #shutdown()}
+ * turns every pending click into an owed voucher before the I/O executor drains, batches finishing during the drain
+ * owe what they return, and {@link #close()} hands owed vouchers to online players and saves the rest.
+ * <p>
+ * {@link #enqueueAll(Player)} queues every voucher in the player's inventory at once (sneak-right-click or
+ * {@code /fly redeem all}): every voucher stack is taken in one pass on the player's thread and each id-less stack
+ * becomes one entry with its copy count, so a full inventory is a single batch, one transaction and one increment
+ * however many items it holds. If the redemption fails, every stack is handed back.
+ * <p>
+ * A click is dropped (without a message) when it adds nothing: the same voucher id is already queued, or the player
+ * already has {@link #MAX_PENDING} entries waiting.
+ */
+public final class FlyRedemptionQueue {
+
+    /** Most entries a player can have queued (in flight plus pending); further clicks are dropped. */
+    private static final int MAX_PENDING = 64;
+
+    /**
+     * One queued voucher entry.
+     *
+     * @param id      Voucher id, or null for vouchers minted before ids existed.
+     * @param seconds Seconds each copy grants.
+     * @param copies  Copies redeemed together (always 1 for vouchers with an id).
+     * @param item    The vouchers taken from the player for this entry.
+     */
+    private record Voucher(UUID id, int seconds, int copies, ItemStack item) {}
+
+    /**
+     * Outcome of one batch.
+     *
+     * @param redeemed    Entries claimed and granted.
+     * @param duplicates  Entries skipped because they had already been redeemed.
+     * @param unavailable Entries skipped because the database could not be reached (left unredeemed).
+     * @param granted     Seconds added in total.
+     * @param stored      Remaining seconds after the grant ({@code -1} when nothing was granted).
+     */
+    private record Batch(List<Voucher> redeemed, List<Voucher> duplicates, List<Voucher> unavailable,
+                         int granted, int stored) {
+
+        /** A batch that reached nothing: every entry stays unredeemed. */
+        static Batch failed(List<Voucher> batch) {
+            return new Batch(new ArrayList<>(), new ArrayList<>(), batch, 0, -1);
+        }
+    }
+
+    /**
+     * One player's clicks. Guarded by itself.
+     */
+    private static final class Queue {
+
+        /** Clicks waiting for the next batch. */
+        final List<Voucher> pending = new ArrayList<>();
+
+        /** Clicks at the database; null when idle. */
+        List<Voucher> inFlight;
+
+        /** Entries queued or at the database. */
+        int size() {
+            return pending.size() + (inFlight == null ? 0 : inFlight.size());
+        }
+    }
+
+    /** Logger for diagnostics. */
+    private final MCEngineExtensionLogger logger;
+
+    /** Asynchronous database accessor. */
+    private final FlyDBAsync flyDBAsync;
+
+    /** Per-player flight manager; receives the merged grant. */
+    private final FlyDuration flyDuration;
+
+    /** Runtime counters; receives one redemption per voucher. */
+    private final FlyStats stats;
+
+    /** Redeemed-voucher ledger front. */
+    private final FlyVoucherLedger ledger;
+
+    /** Queues by player. */
+    private final Map<UUID, Queue> queues = new ConcurrentHashMap<>();
+
+    /** Vouchers waiting to be handed back, by player; lists are replaced, never changed, so they can be saved. */
+    private final Map<UUID, List<ItemStack>> owed = new ConcurrentHashMap<>();
+
+    /** File {@link #owed} is kept in across restarts; null keeps it in memory only. */
+    private final File owedFile;
+
+    /** Set by {@link #shutdown()}: the main thread no longer runs tasks, so batch results are only parked. */
+    private volatile boolean closing;
+
+    /**
+     * Create the redemption queue.
+     *
+     * @param logger      Logger for diagnostics.
+     * @param flyDBAsync  Asynchronous database accessor.
+     * @param flyDuration Per-player flight manager.
+     * @param stats       Runtime counters for {@code /fly stats}.
+     * @param ledger      Redeemed-voucher ledger front.
+     */
+    public FlyRedemptionQueue(MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyDuration flyDuration,
+                              FlyStats stats, FlyVoucherLedger ledger) {
+        this(logger, flyDBAsync, flyDuration, stats, ledger, null);
+    }
+
+    /**
+     * Create the redemption queue, keeping vouchers owed to absent players in {@code owedFile} and loading the
+     * ones a previous run left there.
+     *
+     * @param logger      Logger for diagnostics.
+     * @param flyDBAsync  Asynchronous database accessor.
+     * @param flyDuration Per-player flight manager.
+     * @param stats       Runtime counters for {@code /fly stats}.
+     * @param ledger      Redeemed-voucher ledger front.
+     * @param owedFile    File owed vouchers are kept in; null keeps them in memory only.
+     */
+    public FlyRedemptionQueue(MCEngineExtensionLogger logger, FlyDBAsync flyDBAsync, FlyDuration flyDuration,
+                              FlyStats stats, FlyVoucherLedger ledger, File owedFile) {
+        this.logger = logger;
+        this.flyDBAsync = flyDBAsync;
+        this.flyDuration = flyDuration;
+        this.stats = stats;
+        this.ledger = ledger;
+        this.owedFile = owedFile;
+        load();
+    }
+
+    /**
+     * Queue one voucher click, taking one voucher from the player's main hand. Call on the thread owning
+     * {@code player}.
+     *
+     * @param player  Clicking player.
+     * @param seconds Seconds the held voucher grants.
+     * @return true if the click was queued; false if it was dropped or refused as already redeemed.
+     */
+    public boolean enqueue(Player player, int seconds) {
+        if (closing) return false;
+        PlayerInventory inv = player.getInventory();
+        int slot = inv.getHeldItemSlot();
+        ItemStack hand = inv.getItem(slot);
+        if (hand == null || hand.getAmount() <= 0) return false;
+
+        // A copy of a voucher redeemed here moments ago: turn it away without a database call
+        UUID id = FlyItem.readVoucherId(hand);
+        if (id != null && ledger.knownRedeemed(id)) {
+            player.sendMessage("§cThis voucher has already been redeemed.");
+            return false;
+        }
+
+        UUID uuid = player.getUniqueId();
+        Queue q = queues.computeIfAbsent(uuid, k -> new Queue());
+        synchronized (q) {
+            if (q.size() >= MAX_PENDING || id != null && queuedId(q, id)) return false;
+            q.pending.add(new Voucher(id, seconds, 1, take(inv, slot, hand, 1)));
+        }
+        startIfIdle(uuid, q);
+        return true;
+    }
+
+    /**
+     * Queue every voucher in the player's inventory (storage slots) that is not already queued, taking the stacks
+     * out of the inventory in one pass. Call on the thread owning {@code player}.
+     *
+     * @param player Redeeming player.
+     * @return Number of voucher items queued ({@code 0} when there was nothing new; the player is told if they
+     *         hold no vouchers, or only redeemed ones).
+     */
+    public int enqueueAll(Player player) {
+        if (closing) return 0;
+        PlayerInventory inv = player.getInventory();
+        ItemStack[] contents = inv.getStorageContents();
+        UUID uuid = player.getUniqueId();
+        Queue q = queues.computeIfAbsent(uuid, k -> new Queue());
+        int found = 0;
+        int known = 0;
+        int added = 0;
+        synchronized (q) {
+            for (int slot = 0; slot < contents.length && q.size() < MAX_PENDING; slot++) {
+                ItemStack item = contents[slot];
+                Integer secs = FlyItem.readSeconds(item);
+                if (secs == null || secs <= 0) continue;
+                found++;
+                UUID id = FlyItem.readVoucherId(item);
+                if (id != null && ledger.knownRedeemed(id)) {
+                    known++;
+                    continue;
+                }
+                // A stack of copies of one id redeems once; the rest stay behind as spent copies
+                if (id != null && queuedId(q, id)) continue;
+                int count = id == null ? item.getAmount() : 1;
+                q.pending.add(new Voucher(id, secs, count, take(inv, slot, item, count)));
+                added += count;
+            }
+        }
+        if (added > 0) {
+            startIfIdle(uuid, q);
+        } else if (found == 0) {
+            player.sendMessage("§7You have no fly vouchers to redeem.");
+        } else if (known == found) {
+            player.sendMessage("§cYour fly vouchers have already been redeemed.");
+        }
+        return added;
+    }
+
+    /**
+     * Drop a player's pending clicks on quit, handing their vouchers back. Call on the thread owning {@code player}.
+     * A batch already at the database still completes; what it hands back is kept for the player's next join.
+     */
+    public void forget(Player player) {
+        Queue q = queues.remove(player.getUniqueId());
+        if (q == null) return;
+        List<ItemStack> back = new ArrayList<>();
+        synchronized (q) {
+            for (Voucher v : q.pending) back.add(v.item());
+            q.pending.clear();
+        }
+        giveBack(player, back);
+    }
+
+    /**
+     * Hand back vouchers kept for {@code player} (e.g., on join after a batch returned while they were away).
+     * Call on the thread owning {@code player}.
+     */
+    public void restore(Player player) {
+        List<ItemStack> items = owed.remove(player.getUniqueId());
+        if (items == null) return;
+        giveBack(player, items);
+        persist();
+    }
+
+    /**
+     * Stop taking clicks and turn every pending one into an owed voucher. Call while the plugin is being disabled,
+     * before the I/O executor drains; batches still at the database then owe what they return (see {@link #close()}).
+     */
+    public void shutdown() {
+        closing = true;
+        for (Map.Entry<UUID, Queue> me : queues.entrySet()) {
+            List<Voucher> back;
+            Queue q = me.getValue();
+            synchronized (q) {
+                back = new ArrayList<>(q.pending);
+                q.pending.clear();
+            }
+            owe(me.getKey(), back);
+        }
+    }
+
+    /**
+     * Hand owed vouchers to online players and save the rest for their next join. Call after the I/O executor has
+     * drained; like {@link FlyDuration#stopAll()}, this runs on the disabling thread because the scheduler no longer
+     * runs tasks.
+     */
+    public void close() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            List<ItemStack> items = owed.remove(player.getUniqueId());
+            if (items != null) giveBack(player, items);
+        }
+        save();
+    }
+
+    /** Whether an entry with voucher id {@code id} is queued. Caller holds {@code q}. */
+    private static boolean queuedId(Queue q, UUID id) {
+        return containsId(q.pending, id) || q.inFlight != null && containsId(q.inFlight, id);
+    }
+
+    /** Whether {@code list} has an entry with voucher id {@code id}. */
+    private static boolean containsId(List<Voucher> list, UUID id) {
+        for (Voucher v : list) {
+            if (id.equals(v.id())) return true;
+        }
+        return false;
+    }
+
+    /** Take {@code count} items from {@code slot} (holding {@code stack}) and return them as one stack. */
+    private static ItemStack take(PlayerInventory inv, int slot, ItemStack stack, int count) {
+        ItemStack taken = stack.clone();
+        taken.setAmount(count);
+        if (stack.getAmount() <= count) {
+            inv.setItem(slot, null);
+        } else {
+            stack.setAmount(stack.getAmount() - count);
+            inv.setItem(slot, stack);
+        }
+        return taken;
+    }
+
+    /** Put items back into the player's inventory, dropping what does not fit at their feet. */
+    private static void giveBack(Player player, List<ItemStack> items) {
+        if (items.isEmpty()) return;
+        Map<Integer, ItemStack> leftover = player.getInventory().addItem(items.toArray(new ItemStack[0]));
+        for (ItemStack item : leftover.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), item);
+        }
+    }
+
+    /** Send the pending entries as a batch unless one is already at the database. */
+    private void startIfIdle(UUID uuid, Queue q) {
+        List<Voucher> batch;
+        synchronized (q) {
+            if (q.inFlight != null || q.pending.isEmpty()) return;
+            batch = q.inFlight = new ArrayList<>(q.pending);
+            q.pending.clear();
+        }
+        dispatch(uuid, q, batch);
+    }
+
+    /** Send a batch to the database, apply its result, then send whatever queued up meanwhile. */
+    private void dispatch(UUID uuid, Queue q, List<Voucher> batch) {
+        flyDBAsync.submit(db -> redeem(db, uuid, batch)).whenComplete((result, error) -> {
+            if (error != null) logger.warning("Fly async voucher redeem failed: " + error.getMessage());
+            Batch done = result != null ? result : Batch.failed(batch);
+            // Park the vouchers to hand back first, so they survive the player leaving (or a shutdown) before delivery
+            owe(uuid, done.duplicates());
+            owe(uuid, done.unavailable());
+            if (closing) return;
+            flyDBAsync.mainThread().execute(() -> {
+                int remaining = grant(uuid, done);
+                Player player = Bukkit.getPlayer(uuid);
+                if (player == null || !player.isOnline()) {
+                    next(uuid, q);
+                    return;
+                }
+                flyDBAsync.scheduler().runForPlayer(player, () -> {
+                    deliver(player, done, remaining);
+                    next(uuid, q);
+                });
+            });
+        });
+    }
+
+    /** Keep the vouchers taken for {@code entries} until they can be handed back to {@code uuid}. */
+    private void owe(UUID uuid, List<Voucher> entries) {
+        if (entries.isEmpty()) return;
+        owed.compute(uuid, (k, items) -> {
+            List<ItemStack> list = items != null ? new ArrayList<>(items) : new ArrayList<>();
+            for (Voucher v : entries) list.add(v.item());
+            return list;
+        });
+        persist();
+    }
+
+    /** Save {@link #owed} on the I/O executor; after {@link #shutdown()}, {@link #close()} saves it instead. */
+    private void persist() {
+        if (owedFile == null || closing) return;
+        flyDBAsync.submit(db -> {
+            save();
+            return null;
+        });
+    }
+
+    /** Write {@link #owed} to {@link #owedFile}, deleting the file when nothing is owed. */
+    private synchronized void save() {
+        if (owedFile == null) return;
+        try {
+            if (owed.isEmpty()) {
+                Files.deleteIfExists(owedFile.toPath());
+                return;
+            }
+            YamlConfiguration yaml = new YamlConfiguration();
+            for (Map.Entry<UUID, List<ItemStack>> me : owed.entrySet()) {
+                yaml.set(me.getKey().toString(), me.getValue());
+            }
+            yaml.save(owedFile);
+        } catch (IOException e) {
+            logger.warning("Could not save owed fly vouchers to " + owedFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /** Load the vouchers a previous run saved to {@link #owedFile}. */
+    private void load() {
+        if (owedFile == null || !owedFile.isFile()) return;
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(owedFile);
+        for (String key : yaml.getKeys(false)) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(key);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            List<?> list = yaml.getList(key);
+            if (list == null) continue;
+            List<ItemStack> items = new ArrayList<>(list.size());
+            for (Object o : list) {
+                if (o instanceof ItemStack item) items.add(item);
+            }
+            if (!items.isEmpty()) owed.put(uuid, items);
+        }
+    }
+
+    /**
+     * Count the batch's redemptions and apply its merged grant to an active flyer (main thread).
+     *
+     * @return The player's remaining seconds, or {@code -1} when nothing was granted.
+     */
+    private int grant(UUID uuid, Batch result) {
+        if (result.granted() <= 0) return -1;
+        for (Voucher v : result.redeemed()) {
+            for (int i = 0; i < v.copies(); i++) stats.recordRedemption();
+        }
+        return flyDuration.applyGrant(uuid, result.granted(), result.stored());
+    }
+
+    /** Mark the batch done and send the next one, if any clicks are pending. */
+    private void next(UUID uuid, Queue q) {
+        List<Voucher> batch;
+        synchronized (q) {
+            if (q.pending.isEmpty()) {
+                q.inFlight = null;
+                return;
+            }
+            batch = q.inFlight = new ArrayList<>(q.pending);
+            q.pending.clear();
+        }
+        dispatch(uuid, q, batch);
+    }
+
+    /** Claim and grant one batch, in one transaction, on the Fly I/O executor. */
+    private Batch redeem(FlyDB db, UUID uuid, List<Voucher> batch) {
+        List<FlyDB.VoucherClaim> claims = new ArrayList<>(batch.size());
+        for (Voucher v : batch) {
+            claims.add(new FlyDB.VoucherClaim(v.id(), (int) Math.min(Integer.MAX_VALUE, (long) v.seconds() * v.copies())));
+        }
+        FlyDB.Redemption result = ledger.redeem(db, uuid, claims);
+        if (result == null) return Batch.failed(batch);
+
+        List<Voucher> redeemed = new ArrayList<>(batch.size());
+        List<Voucher> duplicates = new ArrayList<>();
+        for (Voucher v : batch) {
+            if (v.id() != null && result.duplicates().contains(v.id())) duplicates.add(v);
+            else redeemed.add(v);
+        }
+        return new Batch(redeemed, duplicates, new ArrayList<>(), result.granted(), result.remaining());
+    }
+
+    /** Hand back what the batch returned and report the batch. */
+    private void deliver(Player player, Batch result, int remaining) {
+        restore(player);
+
+        if (!result.redeemed().isEmpty()) {
+            int count = 0;
+            for (Voucher v : result.redeemed()) count += v.copies();
+            StringBuilder msg = new StringBuilder(64)
+                    .append(count == 1 ? "§aRedeemed voucher." : "§aRedeemed " + count + " vouchers.")
+                    .append(" §7Added: §e");
+            DurationUtil.append(msg, result.granted(), true).append(" §7→ New remaining: §e");
+            player.sendMessage(DurationUtil.append(msg, remaining, true).append("§7.").toString());
+        }
+        if (!result.duplicates().isEmpty()) {
+            player.sendMessage(result.duplicates().size() == 1
+                    ? "§cThis voucher has already been redeemed."
+                    : "§c" + result.duplicates().size() + " vouchers had already been redeemed.");
+        }
+        if (!result.unavailable().isEmpty()) {
+            player.sendMessage("§cCould not redeem the voucher right now; it was returned to you. Please try again.");
+        }
+    }
+}
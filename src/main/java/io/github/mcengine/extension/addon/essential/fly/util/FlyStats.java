@@ -0,0 +1,185 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime counters for the Fly AddOn, shown by {@code /fly stats}.
+ * <p>
+ * Collected:
+ * <ul>
+ *   <li>Per-operation call counts and latencies for {@code FlyDB}, both as seen by callers ({@link #calls})
+ *       and at the backend behind the cache ({@link #backend}).</li>
+ *   <li>Wheel tick duration in {@link FlyDuration}.</li>
+ *   <li>Voucher redemptions (total and over the last minute).</li>
+ * </ul>
+ * All recording is lock-free ({@link LongAdder}, atomic arrays) so it can sit on the hot paths it measures.
+ */
+public final class FlyStats {
+
+    /**
+     * Measured {@code FlyDB} operations.
+     */
+    public enum Op {
+        ENSURE_PLAYER_ROW("ensurePlayerRow"),
+        GET_DURATION("getDuration"),
+        SET_DURATION("setDuration"),
+        ADD_DURATION("addDuration"),
+        DECREMENT_DURATION("decrementDuration"),
+        DECREMENT_DURATIONS("decrementDurations"),
+        ADD_DURATIONS("addDurations"),
+        ADD_DURATION_ALL("addDurationAll"),
+        SCAN("scan"),
+        SET_DURATIONS("setDurations"),
+        REDEEM_VOUCHERS("redeemVouchers"),
+        VOUCHER_REDEEMED("isVoucherRedeemed"),
+        LOAD_PLAYER("loadPlayer"),
+        ACQUIRE_LEASE("acquireLease"),
+        RENEW_LEASES("renewLeases"),
+        DECREMENT_LEASED("decrementLeased"),
+        RELEASE_LEASE("releaseLease");
+
+        /** Name shown in {@code /fly stats}. */
+        public final String label;
+
+        Op(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Latencies and error count for one layer of the {@code FlyDB} stack.
+     */
+    public static final class DbStats {
+
+        /** Layer name shown in {@code /fly stats}. */
+        public final String name;
+
+        /** One histogram per {@link Op}, indexed by ordinal. */
+        private final LatencyHistogram[] ops = new LatencyHistogram[Op.values().length];
+
+        /** Calls that threw. */
+        private final LongAdder errors = new LongAdder();
+
+        DbStats(String name) {
+            this.name = name;
+            for (int i = 0; i < ops.length; i++) ops[i] = new LatencyHistogram();
+        }
+
+        /** Record one completed call. */
+        public void record(Op op, long nanos) {
+            ops[op.ordinal()].record(nanos);
+        }
+
+        /** Record one call that threw. */
+        public void error() {
+            errors.increment();
+        }
+
+        /** Histogram for {@code op}. */
+        public LatencyHistogram op(Op op) {
+            return ops[op.ordinal()];
+        }
+
+        /** Calls that threw. */
+        public long errors() {
+            return errors.sum();
+        }
+
+        /** Clear all samples. */
+        void reset() {
+            for (LatencyHistogram h : ops) h.reset();
+            errors.reset();
+        }
+    }
+
+    /** Window for the redemption rate, in seconds. */
+    private static final int RATE_WINDOW = 60;
+
+    /** {@code FlyDB} calls as made by commands, listeners and the wheel (cache hits included). */
+    public final DbStats calls = new DbStats("calls");
+
+    /** {@code FlyDB} calls that reached the database backend. */
+    public final DbStats backend = new DbStats("backend");
+
+    /** Main-thread time spent per wheel tick (or per expiry pass in deadline accounting). */
+    public final LatencyHistogram tick = new LatencyHistogram();
+
+    /** Redemptions since start (or last reset). */
+    private final LongAdder redemptions = new LongAdder();
+
+    /** Redemptions per second slot of the rate window. */
+    private final AtomicLongArray rateCounts = new AtomicLongArray(RATE_WINDOW);
+
+    /** Epoch second each rate slot currently counts. */
+    private final AtomicLongArray rateStamps = new AtomicLongArray(RATE_WINDOW);
+
+    /** When the counters were last reset (epoch millis). */
+    private volatile long since = System.currentTimeMillis();
+
+    /**
+     * Record a voucher redemption.
+     */
+    public void recordRedemption() {
+        redemptions.increment();
+        long second = System.currentTimeMillis() / 1000L;
+        int i = (int) (second % RATE_WINDOW);
+        long stamp = rateStamps.get(i);
+        if (stamp != second && rateStamps.compareAndSet(i, stamp, second)) {
+            // First redemption in this second: the slot still holds a count from a minute ago
+            rateCounts.set(i, 0);
+        }
+        rateCounts.incrementAndGet(i);
+    }
+
+    /** Redemptions since start (or last reset). */
+    public long redemptions() {
+        return redemptions.sum();
+    }
+
+    /** Redemptions over the last {@value #RATE_WINDOW} seconds. */
+    public long redemptionsLastMinute() {
+        long now = System.currentTimeMillis() / 1000L;
+        long total = 0;
+        for (int i = 0; i < RATE_WINDOW; i++) {
+            if (now - rateStamps.get(i) < RATE_WINDOW) total += rateCounts.get(i);
+        }
+        return total;
+    }
+
+    /** When the counters were last reset (epoch millis). */
+    public long since() {
+        return since;
+    }
+
+    /**
+     * Clear every counter and histogram.
+     */
+    public void reset() {
+        calls.reset();
+        backend.reset();
+        tick.reset();
+        redemptions.reset();
+        for (int i = 0; i < RATE_WINDOW; i++) {
+            rateCounts.set(i, 0);
+            rateStamps.set(i, 0);
+        }
+        since = System.currentTimeMillis();
+    }
+
+    /**
+     * Render nanoseconds with a readable unit ({@code ns}, {@code µs}, {@code ms} or {@code s}).
+     */
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000L) return nanos + "ns";
+        if (nanos < 1_000_000L) return oneDecimal(nanos, 1_000L) + "µs";
+        if (nanos < 1_000_000_000L) return oneDecimal(nanos, 1_000_000L) + "ms";
+        return oneDecimal(nanos, 1_000_000_000L) + "s";
+    }
+
+    /** {@code value / unit} with one decimal place. */
+    private static String oneDecimal(long value, long unit) {
+        long tenths = value * 10 / unit;
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+}
@@ -0,0 +1,265 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact state table for active flyers, used by {@link FlyDuration}.
+ * <p>
+ * Layout:
+ * <ul>
+ *   <li>Rows live in parallel primitive arrays (struct-of-arrays) and keep a stable row id while active,
+ *       so wheel links can be plain {@code int} row ids. Freed rows are recycled through a free list.</li>
+ *   <li>An open-addressing index (linear probing, backward-shift deletion) maps the UUID's two longs
+ *       to a row id without boxing.</li>
+ *   <li>Each row carries a generation that changes when the row is freed, so asynchronous results
+ *       can tell whether the flyer they were computed for is still the one in that row.</li>
+ * </ul>
+ * <p>
+ * Not thread-safe; {@link FlyDuration} guards access.
+ */
+final class FlyerTable {
+
+    /** Marker for "no row". */
+    static final int NONE = -1;
+
+    /** Initial row capacity (grows by doubling). */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** UUID most significant bits per row. */
+    private long[] msb;
+
+    /** UUID least significant bits per row. */
+    private long[] lsb;
+
+    /** Last time (in millis) duration was accounted per row. */
+    private long[] lastChargeMillis;
+
+    /** Cached remaining seconds per row ({@code -1} when unknown). */
+    private int[] remaining;
+
+    /** Wheel slot per row. */
+    private int[] slot;
+
+    /** Revolutions to skip before the first charge per row. */
+    private int[] rounds;
+
+    /** Previous row in the same wheel slot. */
+    private int[] prev;
+
+    /** Next row in the same wheel slot; doubles as the free-list link for free rows. */
+    private int[] next;
+
+    /** Generation per row; bumped whenever the row is freed. */
+    private int[] generation;
+
+    /** UUID object per row, kept so callers never rebuild it from the two longs. */
+    private UUID[] uuids;
+
+    /** Online player handle per row, so the tick loop avoids {@code Bukkit.getPlayer} lookups. */
+    private Player[] players;
+
+    /** Number of rows ever handed out (high-water mark). */
+    private int highWater;
+
+    /** Head of the free-row list. */
+    private int freeHead = NONE;
+
+    /** Number of live rows. */
+    private int size;
+
+    /** Open-addressing index: row id + 1, or 0 for an empty bucket. Length is a power of two. */
+    private int[] index;
+
+    /** {@code index.length - 1}. */
+    private int mask;
+
+    FlyerTable() {
+        allocateRows(INITIAL_CAPACITY);
+        index = new int[INITIAL_CAPACITY * 2];
+        mask = index.length - 1;
+    }
+
+    /** Number of live rows. */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find the row of a flyer.
+     *
+     * @return row id, or {@link #NONE} if absent.
+     */
+    int find(UUID uuid) {
+        long m = uuid.getMostSignificantBits();
+        long l = uuid.getLeastSignificantBits();
+        for (int i = home(m, l); ; i = (i + 1) & mask) {
+            int entry = index[i];
+            if (entry == 0) return NONE;
+            int row = entry - 1;
+            if (msb[row] == m && lsb[row] == l) return row;
+        }
+    }
+
+    /**
+     * Insert a flyer that is not yet present.
+     *
+     * @return the new row id.
+     */
+    int insert(UUID uuid, Player player, long nowMillis) {
+        if ((size + 1) * 2 > index.length) rehash(index.length * 2);
+
+        int row;
+        if (freeHead != NONE) {
+            row = freeHead;
+            freeHead = next[row];
+        } else {
+            if (highWater == msb.length) allocateRows(msb.length * 2);
+            row = highWater++;
+        }
+
+        long m = uuid.getMostSignificantBits();
+        long l = uuid.getLeastSignificantBits();
+        msb[row] = m;
+        lsb[row] = l;
+        uuids[row] = uuid;
+        players[row] = player;
+        lastChargeMillis[row] = nowMillis;
+        remaining[row] = -1;
+        slot[row] = NONE;
+        rounds[row] = 0;
+        prev[row] = NONE;
+        next[row] = NONE;
+
+        int i = home(m, l);
+        while (index[i] != 0) i = (i + 1) & mask;
+        index[i] = row + 1;
+        size++;
+        return row;
+    }
+
+    /**
+     * Remove a live row (already unlinked from the wheel) and recycle it.
+     */
+    void remove(int row) {
+        int i = home(msb[row], lsb[row]);
+        while (index[i] != row + 1) i = (i + 1) & mask;
+        deleteAt(i);
+
+        uuids[row] = null;
+        players[row] = null;
+        generation[row]++;
+        next[row] = freeHead;
+        freeHead = row;
+        size--;
+    }
+
+    /** Exclusive upper bound of row ids ever handed out; rows below it are live when {@link #uuid(int)} is non-null. */
+    int rowLimit() {
+        return highWater;
+    }
+
+    /** Drop every row. */
+    void clear() {
+        Arrays.fill(index, 0);
+        Arrays.fill(uuids, null);
+        Arrays.fill(players, null);
+        for (int row = 0; row < highWater; row++) generation[row]++;
+        highWater = 0;
+        freeHead = NONE;
+        size = 0;
+    }
+
+    UUID uuid(int row) { return uuids[row]; }
+
+    Player player(int row) { return players[row]; }
+
+    void player(int row, Player player) { players[row] = player; }
+
+    long lastChargeMillis(int row) { return lastChargeMillis[row]; }
+
+    void lastChargeMillis(int row, long millis) { lastChargeMillis[row] = millis; }
+
+    int remaining(int row) { return remaining[row]; }
+
+    void remaining(int row, int seconds) { remaining[row] = seconds; }
+
+    int slot(int row) { return slot[row]; }
+
+    void slot(int row, int s) { slot[row] = s; }
+
+    int rounds(int row) { return rounds[row]; }
+
+    void rounds(int row, int r) { rounds[row] = r; }
+
+    int prev(int row) { return prev[row]; }
+
+    void prev(int row, int p) { prev[row] = p; }
+
+    int next(int row) { return next[row]; }
+
+    void next(int row, int n) { next[row] = n; }
+
+    int generation(int row) { return generation[row]; }
+
+    /** Ideal bucket for a key (mixes both halves; UUIDv4 bits are already well distributed). */
+    private int home(long m, long l) {
+        long h = m ^ l;
+        h ^= (h >>> 32);
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /** Backward-shift deletion: clear bucket {@code i} and pull displaced entries back into the gap. */
+    private void deleteAt(int i) {
+        for (;;) {
+            index[i] = 0;
+            int j = i;
+            for (;;) {
+                j = (j + 1) & mask;
+                int entry = index[j];
+                if (entry == 0) return;
+                int row = entry - 1;
+                int k = home(msb[row], lsb[row]);
+                // Leave the entry if its home lies cyclically in (i, j]
+                boolean stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (!stays) {
+                    index[i] = entry;
+                    i = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Rebuild the index at a new power-of-two capacity. */
+    private void rehash(int capacity) {
+        int[] old = index;
+        index = new int[capacity];
+        mask = capacity - 1;
+        for (int entry : old) {
+            if (entry == 0) continue;
+            int row = entry - 1;
+            int i = home(msb[row], lsb[row]);
+            while (index[i] != 0) i = (i + 1) & mask;
+            index[i] = entry;
+        }
+    }
+
+    /** Grow (or create) the row arrays. */
+    private void allocateRows(int capacity) {
+        msb = msb == null ? new long[capacity] : Arrays.copyOf(msb, capacity);
+        lsb = lsb == null ? new long[capacity] : Arrays.copyOf(lsb, capacity);
+        lastChargeMillis = lastChargeMillis == null ? new long[capacity] : Arrays.copyOf(lastChargeMillis, capacity);
+        remaining = remaining == null ? new int[capacity] : Arrays.copyOf(remaining, capacity);
+        slot = slot == null ? new int[capacity] : Arrays.copyOf(slot, capacity);
+        rounds = rounds == null ? new int[capacity] : Arrays.copyOf(rounds, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        generation = generation == null ? new int[capacity] : Arrays.copyOf(generation, capacity);
+        uuids = uuids == null ? new UUID[capacity] : Arrays.copyOf(uuids, capacity);
+        players = players == null ? new Player[capacity] : Arrays.copyOf(players, capacity);
+    }
+}
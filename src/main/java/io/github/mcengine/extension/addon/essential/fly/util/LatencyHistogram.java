@@ -0,0 +1,103 @@
+package io.github.mcengine.extension.addon.essential.fly.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of nanosecond latencies.
+ * <p>
+ * Each power of two is split into four sub-buckets, so a reported percentile is within ~25% of the
+ * true value. Recording is one bucket-index computation plus two atomic increments; no locks, no allocation.
+ * Reads ({@link #percentile(double)}) walk a racy snapshot, which is fine for diagnostics.
+ */
+public final class LatencyHistogram {
+
+    /** Sub-buckets per power of two (must be a power of two). */
+    private static final int SUB_BUCKETS = 4;
+
+    /** {@code log2(SUB_BUCKETS)}. */
+    private static final int SUB_BITS = 2;
+
+    /** Bucket count covering every non-negative {@code long}. */
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BITS);
+
+    /** Sample count per bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** Total samples recorded. */
+    private final LongAdder count = new LongAdder();
+
+    /** Sum of recorded values (nanoseconds). */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Record one sample.
+     *
+     * @param nanos elapsed nanoseconds (negatives count as zero).
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0L, nanos)));
+        count.increment();
+        sum.add(Math.max(0L, nanos));
+    }
+
+    /** Number of samples recorded. */
+    public long count() {
+        return count.sum();
+    }
+
+    /** Mean of recorded samples in nanoseconds (0 when empty). */
+    public long mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile.
+     *
+     * @param p fraction in {@code (0, 1]}, e.g. {@code 0.99}.
+     * @return nanoseconds, or 0 when empty.
+     */
+    public long percentile(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1L, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /** Clear every sample (racy with concurrent recording; acceptable for diagnostics). */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+    }
+
+    /** Bucket for a non-negative value: exact below {@link #SUB_BUCKETS}, log-linear above. */
+    private static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exp - SUB_BITS + 1) + sub;
+    }
+
+    /** Largest value that maps to {@code bucket}. */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exp - SUB_BITS);
+        long lower = (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+        return lower + width - 1 < 0 ? Long.MAX_VALUE : lower + width - 1;
+    }
+}